@@ -0,0 +1,132 @@
+package net.vidageek.crawler.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The checked-in pages the benchmarks run over, read from the classpath so a
+ * run never touches the network. Each page comes with the url and the
+ * Content-Type header it was served with, listed in corpus/index.txt.
+ */
+public final class Corpus {
+
+	public static final String NEWS = "news.html";
+	public static final String FORUM = "forum.html";
+	public static final String FRAMES = "frames.html";
+	public static final String ARTICLE = "article.html";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Map<String, Corpus> PAGES = load();
+
+	private final String name;
+	private final String url;
+	private final String contentType;
+	private final byte[] bytes;
+
+	private Corpus(final String name, final String url, final String contentType, final byte[] bytes) {
+		this.name = name;
+		this.url = url;
+		this.contentType = contentType;
+		this.bytes = bytes;
+	}
+
+	public static Corpus page(final String name) {
+		Corpus page = PAGES.get(name);
+		if (page == null) {
+			throw new IllegalArgumentException("No page " + name + " in the corpus");
+		}
+		return page;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String url() {
+		return url;
+	}
+
+	public String contentType() {
+		return contentType;
+	}
+
+	/**
+	 * The page as it came off the wire. Callers must not change it.
+	 */
+	public byte[] bytes() {
+		return bytes;
+	}
+
+	/**
+	 * The page decoded with the charset the crawler resolves for it.
+	 */
+	public String html() {
+		return new String(bytes, charset());
+	}
+
+	public Charset charset() {
+		String declared = contentType + " " + new String(bytes, 0, Math.min(bytes.length, 1024), UTF_8);
+		int index = declared.toLowerCase().indexOf("charset=");
+		if (index < 0) {
+			return UTF_8;
+		}
+		int end = index + "charset=".length();
+		while ((end < declared.length()) && (Character.isLetterOrDigit(declared.charAt(end))
+				|| (declared.charAt(end) == '-') || (declared.charAt(end) == '_'))) {
+			end++;
+		}
+		return Charset.forName(declared.substring(index + "charset=".length(), end));
+	}
+
+	private static Map<String, Corpus> load() {
+		Map<String, Corpus> pages = new LinkedHashMap<String, Corpus>();
+		try {
+			BufferedReader index = new BufferedReader(new InputStreamReader(resource("index.txt"), UTF_8));
+			try {
+				String line;
+				while ((line = index.readLine()) != null) {
+					if (line.isEmpty() || line.startsWith("#")) {
+						continue;
+					}
+					String[] fields = line.split("\t");
+					pages.put(fields[0], new Corpus(fields[0], fields[1], fields[2], read(fields[0])));
+				}
+			} finally {
+				index.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read the corpus", e);
+		}
+		return pages;
+	}
+
+	private static byte[] read(final String name) throws IOException {
+		InputStream input = resource(name);
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+			return output.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+
+	private static InputStream resource(final String name) throws IOException {
+		InputStream input = Corpus.class.getResourceAsStream("/corpus/" + name);
+		if (input == null) {
+			throw new IOException("Missing corpus resource " + name);
+		}
+		return input;
+	}
+
+}
@@ -0,0 +1,59 @@
+package net.vidageek.crawler.benchmark;
+
+import java.util.List;
+
+import net.vidageek.crawler.component.LinkFinder.impl.DefaultLinkFinder;
+import net.vidageek.crawler.component.LinkFinder.impl.FrameLinkFinder;
+import net.vidageek.crawler.component.LinkFinder.impl.HtmlLinkFinder;
+import net.vidageek.crawler.component.LinkFinder.impl.IframeLinkFinder;
+import net.vidageek.crawler.http.page.OkPage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Link extraction from a whole page: {@link OkPage#getLinks()}, which is what
+ * the crawler calls, and each finder on its own.
+ */
+public class LinkFinderBenchmark extends PerPageBenchmark {
+
+	@Param({ Corpus.NEWS, Corpus.FORUM, Corpus.FRAMES, Corpus.ARTICLE })
+	public String page;
+
+	private String url;
+	private String html;
+
+	@Setup
+	public void setup() {
+		Corpus corpus = Corpus.page(page);
+		url = corpus.url();
+		html = corpus.html();
+	}
+
+	@Benchmark
+	public List<String> okPage() {
+		return new OkPage(url, html).getLinks();
+	}
+
+	@Benchmark
+	public List<String> htmlLinkFinder() {
+		return new HtmlLinkFinder(html).getLinks();
+	}
+
+	@Benchmark
+	public List<String> defaultLinkFinder() {
+		return new DefaultLinkFinder(html).getLinks();
+	}
+
+	@Benchmark
+	public List<String> frameLinkFinder() {
+		return new FrameLinkFinder(html).getLinks();
+	}
+
+	@Benchmark
+	public List<String> iframeLinkFinder() {
+		return new IframeLinkFinder(html).getLinks();
+	}
+
+}
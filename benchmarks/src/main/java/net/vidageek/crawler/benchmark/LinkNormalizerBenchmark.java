@@ -0,0 +1,70 @@
+package net.vidageek.crawler.benchmark;
+
+import java.util.List;
+
+import net.vidageek.crawler.component.LinkNormalizer.impl.DefaultLinkNormalizer;
+import net.vidageek.crawler.http.page.OkPage;
+import net.vidageek.crawler.utils.UrlResolver;
+import net.vidageek.crawler.utils.UrlUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Normalization of every link found on a page against the page's url. Each
+ * operation is one link, so the scores of different pages compare.
+ */
+public class LinkNormalizerBenchmark extends PerPageBenchmark {
+
+	// every page of the corpus yields at least this many links
+	private static final int LINKS = 64;
+
+	@Param({ Corpus.NEWS, Corpus.FORUM, Corpus.FRAMES, Corpus.ARTICLE })
+	public String page;
+
+	private String url;
+	private String[] links;
+	private DefaultLinkNormalizer normalizer;
+	private UrlResolver resolver;
+
+	@Setup
+	public void setup() {
+		Corpus corpus = Corpus.page(page);
+		url = corpus.url();
+		List<String> found = new OkPage(url, corpus.html()).getLinks();
+		if (found.size() < LINKS) {
+			throw new IllegalStateException(page + " has only " + found.size() + " links");
+		}
+		links = found.subList(0, LINKS).toArray(new String[LINKS]);
+		normalizer = new DefaultLinkNormalizer(url);
+		resolver = new UrlResolver(url);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINKS)
+	public void normalize(final Blackhole blackhole) {
+		for (String link : links) {
+			blackhole.consume(normalizer.normalize(link));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINKS)
+	public void resolveUrl(final Blackhole blackhole) {
+		for (String link : links) {
+			blackhole.consume(UrlUtils.resolveUrl(url, link));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINKS)
+	public void urlResolver(final Blackhole blackhole) {
+		for (String link : links) {
+			blackhole.consume(resolver.resolve(link));
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package net.vidageek.crawler.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler always on, so every result has
+ * its allocation rate (gc.alloc.rate.norm, bytes per operation) next to its
+ * ops/s. Takes the usual JMH command line, e.g. a regexp to pick benchmarks
+ * or -f 1 -wi 3 -i 5 for a quicker run, and -l or -h to list the benchmarks
+ * or show the options without running anything.
+ */
+public final class Main {
+
+	private Main() {
+	}
+
+	public static void main(final String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		Runner runner = new Runner(new OptionsBuilder()
+				.parent(options)
+				.addProfiler(GCProfiler.class)
+				.build());
+		if (options.shouldList()) {
+			runner.list();
+		} else if (options.shouldListWithParams()) {
+			runner.listWithParams(options);
+		} else {
+			runner.run();
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package net.vidageek.crawler.benchmark;
+
+import net.vidageek.crawler.http.Status;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link Status#fromHttpCode(int)} over a mix of codes in the proportions a
+ * crawl sees them: mostly 200, some redirects and not founds, a few others.
+ */
+public class StatusBenchmark extends PerPageBenchmark {
+
+	private static final int[] CODES = { 200, 200, 200, 200, 200, 200, 200, 200, 200, 200, 200, 200, 301, 302,
+			304, 304, 404, 404, 200, 200, 200, 200, 503, 500, 200, 200, 403, 200, 200, 410, 429, 999 };
+
+	@Benchmark
+	@OperationsPerInvocation(32)
+	public void fromHttpCode(final Blackhole blackhole) {
+		for (int code : CODES) {
+			blackhole.consume(Status.fromHttpCode(code));
+		}
+	}
+
+}
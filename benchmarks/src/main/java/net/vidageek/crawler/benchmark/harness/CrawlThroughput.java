@@ -0,0 +1,174 @@
+package net.vidageek.crawler.benchmark.harness;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.vidageek.crawler.PageCrawler;
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.visitor.PageVisitor;
+import net.vidageek.crawler.config.CrawlerConfiguration;
+import net.vidageek.crawler.config.CrawlerConfigurationBuilder;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.Url;
+
+/**
+ * Crawls a {@link SyntheticSite} with {@link PageCrawler} and reports pages/s,
+ * the 50th and 99th percentile fetch latency, the heap high-water mark and
+ * how many pages were fetched more than once, followed by the time spent in
+ * each stage of the crawl. Everything runs on the
+ * loopback interface, so runs on one machine compare.
+ *
+ * Options, all with a default:
+ *
+ * <pre>
+ * site:  --pages 10000 --fan-out 10 --page-size 16384 --latency-median 20
+ *        --latency-p99 100 --error-rate 0.01 --redirect-rate 0.02 --seed 1
+ * crawl: --threads 16 --delay 0 --per-host-delay --virtual-threads
+ *        --connection-pool 64 --async 64
+ * </pre>
+ *
+ * Latencies are in milliseconds and sizes in bytes. --async sets the maximum
+ * number of requests in flight; --connection-pool the pooled connections.
+ * --threads sizes the thread pool, so --virtual-threads ignores it.
+ */
+public final class CrawlThroughput {
+
+	private static final Map<String, String> DEFAULTS = new LinkedHashMap<String, String>();
+	static {
+		DEFAULTS.put("pages", "10000");
+		DEFAULTS.put("fan-out", "10");
+		DEFAULTS.put("page-size", "16384");
+		DEFAULTS.put("latency-median", "20");
+		DEFAULTS.put("latency-p99", "100");
+		DEFAULTS.put("error-rate", "0.01");
+		DEFAULTS.put("redirect-rate", "0.02");
+		DEFAULTS.put("seed", "1");
+		DEFAULTS.put("threads", "16");
+		DEFAULTS.put("delay", "0");
+		DEFAULTS.put("per-host-delay", "false");
+		DEFAULTS.put("virtual-threads", "false");
+		DEFAULTS.put("connection-pool", "0");
+		DEFAULTS.put("async", "0");
+	}
+
+	private final Map<String, String> options;
+
+	private CrawlThroughput(final Map<String, String> options) {
+		this.options = options;
+	}
+
+	public static void main(final String[] args) throws IOException {
+		new CrawlThroughput(parse(args)).run();
+	}
+
+	private void run() throws IOException {
+		SyntheticSite site = new SyntheticSite(integer("pages"), integer("fan-out"), integer("page-size"),
+				decimal("latency-median"), decimal("latency-p99"), decimal("error-rate"), decimal("redirect-rate"),
+				Long.parseLong(options.get("seed")));
+		site.start();
+		try {
+			crawl(site);
+		} finally {
+			site.stop();
+		}
+	}
+
+	private void crawl(final SyntheticSite site) {
+		CrawlMetrics metrics = new CrawlMetrics();
+		CrawlerConfigurationBuilder builder = CrawlerConfiguration.forStartPoint(site.rootUrl())
+				.withMaxParallelRequests(integer("threads")).withMetrics(metrics);
+		if (flag("per-host-delay")) {
+			builder.withRequestDelayPerHost(integer("delay"));
+		} else {
+			builder.withRequestDelay(integer("delay"));
+		}
+		if (flag("virtual-threads")) {
+			builder.withVirtualThreads();
+		}
+		if (integer("connection-pool") > 0) {
+			builder.withConnectionPool(integer("connection-pool"), integer("connection-pool"));
+		}
+		if (integer("async") > 0) {
+			builder.withAsyncDownloads(integer("async"), integer("async"));
+		}
+		CrawlerConfiguration config = builder.build();
+		Downloader downloader = config.downloader();
+		LatencyRecorder latencies = new LatencyRecorder();
+		config.downloader(TimedDownloader.wrap(downloader, latencies));
+
+		final AtomicLong visited = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+		PageVisitor visitor = new PageVisitor() {
+			public boolean followUrl(final Url url) {
+				return true;
+			}
+
+			public void visit(final Page page) {
+				visited.incrementAndGet();
+			}
+
+			public void onError(final Url url, final Status statusError) {
+				errors.incrementAndGet();
+			}
+		};
+
+		System.gc();
+		HeapSampler heap = new HeapSampler(10);
+		heap.start();
+		long start = System.nanoTime();
+		try {
+			new PageCrawler(config).crawl(visitor);
+		} finally {
+			heap.stop();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("options            " + options);
+		System.out.printf("pages visited      %d of %d (%d errors reported, %d error pages, %d redirects)%n",
+				visited.get(), site.pages(), errors.get(), site.errorPages(), site.redirectPages());
+		System.out.printf("pages fetched      %d, %d requests%n", site.fetchedPages(), site.requests());
+		System.out.printf("elapsed            %.2f s%n", seconds);
+		System.out.printf("throughput         %.1f pages/s%n", (visited.get() + errors.get()) / seconds);
+		System.out.printf("fetch latency      p50 %.2f ms, p99 %.2f ms (%d fetches)%n",
+				latencies.percentileNanos(0.5) / 1e6, latencies.percentileNanos(0.99) / 1e6, latencies.count());
+		System.out.printf("heap high-water    %.1f MB%n", heap.highWaterBytes() / (1024.0 * 1024.0));
+		System.out.printf("duplicate fetches  %d%n", site.duplicateFetches());
+		System.out.println();
+		System.out.print(metrics);
+	}
+
+	private int integer(final String name) {
+		return Integer.parseInt(options.get(name));
+	}
+
+	private double decimal(final String name) {
+		return Double.parseDouble(options.get(name));
+	}
+
+	private boolean flag(final String name) {
+		return Boolean.parseBoolean(options.get(name));
+	}
+
+	private static Map<String, String> parse(final String[] args) {
+		Map<String, String> options = new LinkedHashMap<String, String>(DEFAULTS);
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--") || !DEFAULTS.containsKey(args[i].substring(2))) {
+				throw new IllegalArgumentException("Unknown option " + args[i] + ", options are " + DEFAULTS.keySet());
+			}
+			String name = args[i].substring(2);
+			if ("false".equals(DEFAULTS.get(name))) {
+				options.put(name, "true");
+			} else if (i + 1 < args.length) {
+				options.put(name, args[++i]);
+			} else {
+				throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+			}
+		}
+		return options;
+	}
+
+}
@@ -0,0 +1,66 @@
+package net.vidageek.crawler.benchmark.harness;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Samples the used heap on a daemon thread and keeps the highest value seen.
+ * Short spikes between two samples are missed, so the high-water mark is a
+ * lower bound.
+ */
+public final class HeapSampler implements Runnable {
+
+	private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+	private final long intervalMilliseconds;
+	private volatile long highWaterBytes;
+	private volatile boolean running = true;
+	private final Thread thread;
+
+	public HeapSampler(final long intervalMilliseconds) {
+		if (intervalMilliseconds <= 0) {
+			throw new IllegalArgumentException("interval must be positive");
+		}
+		this.intervalMilliseconds = intervalMilliseconds;
+		thread = new Thread(this, "heap-sampler");
+		thread.setDaemon(true);
+	}
+
+	public void start() {
+		sample();
+		thread.start();
+	}
+
+	public void stop() {
+		running = false;
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		sample();
+	}
+
+	public long highWaterBytes() {
+		return highWaterBytes;
+	}
+
+	public void run() {
+		while (running) {
+			sample();
+			try {
+				Thread.sleep(intervalMilliseconds);
+			} catch (InterruptedException e) {
+				// stopped
+			}
+		}
+	}
+
+	private void sample() {
+		long used = memory.getHeapMemoryUsage().getUsed();
+		if (used > highWaterBytes) {
+			highWaterBytes = used;
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package net.vidageek.crawler.benchmark.harness;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every recorded latency, so percentiles are exact. Meant for runs of
+ * up to a few million fetches.
+ */
+public final class LatencyRecorder {
+
+	private long[] nanos = new long[1024];
+	private int size;
+
+	public synchronized void record(final long latencyNanos) {
+		if (size == nanos.length) {
+			nanos = Arrays.copyOf(nanos, size * 2);
+		}
+		nanos[size++] = latencyNanos;
+	}
+
+	public synchronized int count() {
+		return size;
+	}
+
+	/**
+	 * The latency under which the given fraction of the recorded ones fall
+	 * (nearest rank), or 0 if none was recorded.
+	 */
+	public synchronized long percentileNanos(final double fraction) {
+		if ((fraction <= 0) || (fraction > 1)) {
+			throw new IllegalArgumentException("fraction must be in (0, 1]");
+		}
+		if (size == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(nanos, size);
+		Arrays.sort(sorted);
+		return sorted[(int) Math.ceil(fraction * size) - 1];
+	}
+
+}
@@ -0,0 +1,244 @@
+package net.vidageek.crawler.benchmark.harness;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A generated site served from an embedded http server on the loopback
+ * interface. Page i lives at /p/i (page 0 also at /) and links to page i + 1,
+ * so every page is reachable, plus fanOut - 1 other pages picked from a
+ * seeded generator: the same seed gives the same graph.
+ *
+ * A fixed fraction of the pages answer 500, and another fraction answer 302
+ * to /r/i, which serves the page. Which pages fail or redirect depends only
+ * on the seed, so refetching a page gives the same answer. Each response is
+ * held back by a latency drawn from a log-normal distribution with the given
+ * median and 99th percentile (a constant latency when they are equal).
+ *
+ * Every request is counted by page, so fetches of a page after its first one
+ * show up in {@link #duplicateFetches()}.
+ */
+public final class SyntheticSite {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	// the 99th percentile of the standard normal distribution
+	private static final double Z_99 = 2.3263478740408408;
+
+	private static final byte OK = 0;
+	private static final byte ERROR = 1;
+	private static final byte REDIRECT = 2;
+
+	private final int pages;
+	private final int fanOut;
+	private final int pageSize;
+	private final double latencyMu;
+	private final double latencySigma;
+	private final long seed;
+	private final byte[] kinds;
+	private final AtomicIntegerArray pageFetches;
+	private final AtomicIntegerArray redirectFetches;
+	private final AtomicLong requests = new AtomicLong();
+	private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+	private final HttpServer server;
+
+	/**
+	 * @param latencyMedianMilliseconds 0 for no latency
+	 * @param latencyP99Milliseconds not less than the median
+	 */
+	public SyntheticSite(final int pages, final int fanOut, final int pageSize, final double latencyMedianMilliseconds,
+			final double latencyP99Milliseconds, final double errorRate, final double redirectRate, final long seed)
+			throws IOException {
+		if ((pages <= 0) || (fanOut <= 0) || (pageSize < 0)) {
+			throw new IllegalArgumentException("pages and fanOut must be positive and pageSize not negative");
+		}
+		if ((latencyMedianMilliseconds < 0) || (latencyP99Milliseconds < latencyMedianMilliseconds)) {
+			throw new IllegalArgumentException("latency p99 cannot be less than its median, nor the median negative");
+		}
+		if ((errorRate < 0) || (redirectRate < 0) || (errorRate + redirectRate > 1)) {
+			throw new IllegalArgumentException("error and redirect rates must be fractions adding up to at most 1");
+		}
+		this.pages = pages;
+		this.fanOut = fanOut;
+		this.pageSize = pageSize;
+		this.seed = seed;
+		latencyMu = latencyMedianMilliseconds > 0 ? Math.log(latencyMedianMilliseconds) : Double.NEGATIVE_INFINITY;
+		latencySigma = latencyMedianMilliseconds > 0
+				? Math.log(latencyP99Milliseconds / latencyMedianMilliseconds) / Z_99 : 0;
+		kinds = new byte[pages];
+		Random random = new Random(seed);
+		for (int i = 1; i < pages; i++) {
+			double r = random.nextDouble();
+			kinds[i] = r < errorRate ? ERROR : r < errorRate + redirectRate ? REDIRECT : OK;
+		}
+		pageFetches = new AtomicIntegerArray(pages);
+		redirectFetches = new AtomicIntegerArray(pages);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		server.createContext("/", this::respond);
+		server.setExecutor(handlers);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	public String rootUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	/**
+	 * Pages a complete crawl fetches: all of them, each once.
+	 */
+	public int pages() {
+		return pages;
+	}
+
+	public int errorPages() {
+		return count(ERROR);
+	}
+
+	public int redirectPages() {
+		return count(REDIRECT);
+	}
+
+	public long requests() {
+		return requests.get();
+	}
+
+	/**
+	 * Pages fetched at least once.
+	 */
+	public int fetchedPages() {
+		int fetched = 0;
+		for (int i = 0; i < pages; i++) {
+			if (pageFetches.get(i) > 0) {
+				fetched++;
+			}
+		}
+		return fetched;
+	}
+
+	/**
+	 * Requests for a page, or for its redirect target, beyond the first one.
+	 */
+	public long duplicateFetches() {
+		long duplicates = 0;
+		for (int i = 0; i < pages; i++) {
+			duplicates += Math.max(0, pageFetches.get(i) - 1) + Math.max(0, redirectFetches.get(i) - 1);
+		}
+		return duplicates;
+	}
+
+	private int count(final byte kind) {
+		int count = 0;
+		for (byte k : kinds) {
+			if (k == kind) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void respond(final HttpExchange exchange) throws IOException {
+		try {
+			requests.incrementAndGet();
+			String path = exchange.getRequestURI().getPath();
+			int page = pageOf(path);
+			if (page < 0) {
+				send(exchange, 404, null);
+				return;
+			}
+			boolean redirected = path.startsWith("/r/");
+			(redirected ? redirectFetches : pageFetches).incrementAndGet(page);
+			sleep();
+			if (kinds[page] == ERROR) {
+				send(exchange, 500, null);
+			} else if ((kinds[page] == REDIRECT) && !redirected) {
+				exchange.getResponseHeaders().add("Location", "/r/" + page);
+				send(exchange, 302, null);
+			} else {
+				send(exchange, 200, html(page));
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private int pageOf(final String path) {
+		if ("/".equals(path)) {
+			return 0;
+		}
+		if ((path.length() < 4) || (!path.startsWith("/p/") && !path.startsWith("/r/"))) {
+			return -1;
+		}
+		try {
+			int page = Integer.parseInt(path.substring(3));
+			return (page >= 0) && (page < pages) ? page : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private void sleep() {
+		if (latencyMu == Double.NEGATIVE_INFINITY) {
+			return;
+		}
+		double milliseconds = Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian());
+		try {
+			TimeUnit.MICROSECONDS.sleep((long) (milliseconds * 1000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private byte[] html(final int page) {
+		Random random = new Random(seed * 31 + page);
+		StringBuilder html = new StringBuilder(pageSize + 256);
+		html.append("<html><head><meta charset=\"utf-8\"><title>Page ").append(page).append("</title></head><body>\n");
+		html.append("<h1>Page ").append(page).append("</h1>\n");
+		if (page + 1 < pages) {
+			html.append("<p><a href=\"/p/").append(page + 1).append("\">next</a></p>\n");
+		}
+		for (int i = 1; (i < fanOut) && (pages > 1); i++) {
+			// page 0 is only linked as /, so that it has a single url
+			int target = 1 + random.nextInt(pages - 1);
+			// alternate absolute and relative links, as real pages do
+			html.append("<p><a href=\"").append(i % 2 == 0 ? "/p/" : "../p/").append(target).append("\">page ")
+					.append(target).append("</a></p>\n");
+		}
+		while (html.length() < pageSize) {
+			html.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.</p>\n");
+		}
+		html.append("</body></html>\n");
+		return html.toString().getBytes(UTF_8);
+	}
+
+	private static void send(final HttpExchange exchange, final int status, final byte[] body) throws IOException {
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(body);
+		output.close();
+	}
+
+}
@@ -0,0 +1,61 @@
+package net.vidageek.crawler.benchmark.harness;
+
+import java.util.concurrent.CompletableFuture;
+
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.http.Page;
+
+/**
+ * Records how long each fetch of the wrapped downloader takes, from the call
+ * to the page being built, including any wait for a connection or an
+ * in-flight slot. Failed fetches are recorded too.
+ */
+public class TimedDownloader implements Downloader {
+
+	private final Downloader downloader;
+	protected final LatencyRecorder latencies;
+
+	private TimedDownloader(final Downloader downloader, final LatencyRecorder latencies) {
+		this.downloader = downloader;
+		this.latencies = latencies;
+	}
+
+	/**
+	 * Wraps the downloader keeping whether it is an {@link AsyncDownloader}, so
+	 * the crawl uses it the same way.
+	 */
+	public static Downloader wrap(final Downloader downloader, final LatencyRecorder latencies) {
+		if (downloader instanceof AsyncDownloader) {
+			return new Async(downloader, latencies);
+		}
+		return new TimedDownloader(downloader, latencies);
+	}
+
+	public Page get(final String url) {
+		final long start = System.nanoTime();
+		try {
+			return downloader.get(url);
+		} finally {
+			latencies.record(System.nanoTime() - start);
+		}
+	}
+
+	private static final class Async extends TimedDownloader implements AsyncDownloader {
+
+		private final AsyncDownloader asyncDownloader;
+
+		private Async(final Downloader downloader, final LatencyRecorder latencies) {
+			super(downloader, latencies);
+			asyncDownloader = (AsyncDownloader) downloader;
+		}
+
+		public CompletableFuture<Page> getAsync(final String url) {
+			final long start = System.nanoTime();
+			return asyncDownloader.getAsync(url)
+					.whenComplete((page, error) -> latencies.record(System.nanoTime() - start));
+		}
+
+	}
+
+}
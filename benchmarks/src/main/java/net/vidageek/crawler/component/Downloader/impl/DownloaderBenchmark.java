@@ -0,0 +1,81 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import net.vidageek.crawler.benchmark.Corpus;
+import net.vidageek.crawler.benchmark.PerPageBenchmark;
+import net.vidageek.crawler.http.page.OkPage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * What {@link WebDownloader} does to a page besides the network: encoding the
+ * url, reading the body and turning its bytes into a String. Lives in the
+ * downloader's package to reach those steps directly.
+ */
+public class DownloaderBenchmark extends PerPageBenchmark {
+
+	@Param({ Corpus.NEWS, Corpus.FORUM, Corpus.FRAMES, Corpus.ARTICLE })
+	public String page;
+
+	private String contentType;
+	private byte[] bytes;
+	private Charset charset;
+	private String[] urls;
+
+	@Setup
+	public void setup() {
+		Corpus corpus = Corpus.page(page);
+		contentType = corpus.contentType();
+		bytes = corpus.bytes();
+		charset = CharsetResolver.resolve(contentType, bytes, bytes.length);
+		List<String> links = new OkPage(corpus.url(), corpus.html()).getLinks();
+		urls = links.toArray(new String[links.size()]);
+	}
+
+	/**
+	 * Every link of the page; one operation encodes them all.
+	 */
+	@Benchmark
+	public void encode(final Blackhole blackhole) {
+		for (String url : urls) {
+			blackhole.consume(WebDownloader.encode(url));
+		}
+	}
+
+	@Benchmark
+	public byte[] readSized() {
+		return ResponseBody.read(new ByteArrayInputStream(bytes), bytes.length).bytes();
+	}
+
+	@Benchmark
+	public byte[] readChunked() {
+		return ResponseBody.read(new ByteArrayInputStream(bytes), -1).bytes();
+	}
+
+	@Benchmark
+	public Charset resolveCharset() {
+		return CharsetResolver.resolve(contentType, bytes, bytes.length);
+	}
+
+	@Benchmark
+	public String decode() {
+		return CharsetResolver.decode(bytes, bytes.length, charset);
+	}
+
+	/**
+	 * Everything between the response stream and the page's String.
+	 */
+	@Benchmark
+	public String readAndDecode() {
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(bytes), bytes.length);
+		return CharsetResolver.decode(body.bytes(), body.length(),
+				CharsetResolver.resolve(contentType, body.bytes(), body.length()));
+	}
+
+}
@@ -3,17 +3,34 @@
  */
 package net.vidageek.crawler;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import net.vidageek.crawler.component.CrawlContext;
+import net.vidageek.crawler.component.CrawlJournal;
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
 import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.MeteredDownloader;
+import net.vidageek.crawler.component.Downloader.TransferStatistics;
 import net.vidageek.crawler.component.ExecutorCounter;
 import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
-import net.vidageek.crawler.component.PageCrawlerExecutor;
+import net.vidageek.crawler.component.Progress.CrawlProgress;
+import net.vidageek.crawler.component.Robots.RobotsCache;
+import net.vidageek.crawler.component.Sitemap.SitemapReader;
+import net.vidageek.crawler.component.VirtualThreadExecutor;
+import net.vidageek.crawler.component.VisitedSet.VisitedSet;
+import net.vidageek.crawler.component.VisitedSet.impl.BloomFilterVisitedSet;
+import net.vidageek.crawler.component.VisitedSet.impl.FingerprintVisitedSet;
 import net.vidageek.crawler.config.CrawlerConfiguration;
 import net.vidageek.crawler.exception.CrawlerException;
 import net.vidageek.crawler.http.Url;
+import net.vidageek.crawler.queue.CapacityGatedQueue;
 import net.vidageek.crawler.queue.DelayedBlockingQueue;
+import net.vidageek.crawler.queue.PerHostDelayedBlockingQueue;
+import net.vidageek.crawler.queue.SpillingFrontierQueue;
+import net.vidageek.crawler.component.visitor.impl.DoesNotFollowProbablyVisitedUrlVisitor;
 import net.vidageek.crawler.component.visitor.impl.DoesNotFollowVisitedUrlVisitor;
 
 import net.vidageek.crawler.component.visitor.PageVisitor;
@@ -97,10 +114,45 @@ public class PageCrawler {
      *                作者定义的PageVisitor的风格，可以实现PageVisitor的嵌套调用
      */
 	public void crawl(final PageVisitor visitor) {
+		crawl(visitor, false);
+	}
+
+    /**
+     *      从检查点目录中的日志恢复上一次没有完成的抓取：已经访问过的链接恢复到已访问集合中，
+     * 已经安排但没有处理完的链接按原来的深度重新加入队列，已经处理完的页面不会再次下载。
+     * 需要在配置中通过withCheckpoints指定检查点目录。如果目录中没有日志则从起始地址开始新的抓取。
+     * @param visitor 用户自定义页面处理器，和crawl中的相同
+     */
+	public void resume(final PageVisitor visitor) {
+		if (!config.checkpoints()) {
+			throw new CrawlerException("resume needs a checkpoint directory. Use withCheckpoints to configure one.");
+		}
+		crawl(visitor, true);
+	}
+
+	private void crawl(final PageVisitor visitor, final boolean resume) {
 		if (visitor == null) {
 			throw new IllegalArgumentException("visitor cannot be null");
 		}
 
+        /**
+         *      配置了检查点目录时，所有安排的链接和处理完的链接都写入日志。恢复时先读出日志中的状态，
+         * 新的抓取则从空的状态开始
+         */
+		final CrawlJournal journal = config.checkpoints() ? new CrawlJournal(config.checkpointDirectory()) : null;
+		final CrawlJournal.State state = resume ? journal.replay() : new CrawlJournal.State();
+		if (!state.isEmpty() && state.isFinished()) {
+			log.info("crawl in " + config.checkpointDirectory() + " is already finished");
+			return;
+		}
+		final VisitedSet visitedUrls = createVisitedSet();
+		for (long fingerprint : state.visited()) {
+			visitedUrls.add(fingerprint);
+		}
+		if (journal != null) {
+			journal.start(state);
+		}
+
 
         /**
          *      定义一个进程池对象executor，指定进程池对象的核心进程数，最大进程数，空闲进程
@@ -134,18 +186,37 @@ public class PageCrawler {
          *
          *
          */
-		ThreadPoolExecutor executor =
-                new ThreadPoolExecutor(config.minPoolSize(),
-                                       config.maxPoolSize(),
-                                       config.keepAliveMilliseconds(),
-                                       TimeUnit.MILLISECONDS,
-                                       new DelayedBlockingQueue(config.requestDelayMilliseconds()));
+		final BlockingQueue<Runnable> delayQueue = createDelayQueue();
+		final BlockingQueue<Runnable> frontier = createQueue(delayQueue);
+		final BlockingQueue<Runnable> queue = gate(frontier);
+		final ExecutorService executor = createExecutor(queue);
 
         /**
          * 定义一个进程计数器，在运行过程中记录已执行的任务即已经下载的网页和当前的活动进程
          */
 		final ExecutorCounter counter = new ExecutorCounter();
 
+        /**
+         * 不重复访问的Visitor，根据配置使用精确的已访问集合或者固定大小的布隆过滤器
+         */
+		final PageVisitor notVisitedVisitor = createVisitor(visitor, visitedUrls);
+
+        /**
+         * 配置了robots.txt时，每个网站的规则只下载一次并缓存，网站要求的Crawl-delay作为这个域名的请求延时
+         */
+		final RobotsCache robots = createRobots(delayQueue);
+
+        /**
+         * 所有下载进程共享的上下文，等待中的每个链接只需要保存链接、深度和对上下文的一个引用
+         */
+		final CrawlContext context =
+                CrawlContext.builder(executor, counter, config.downloader(), config.normalizer(), notVisitedVisitor)
+                            .withJournal(journal)
+                            .withDnsPrefetch(queue, config.dnsCache())
+                            .withRobots(robots)
+                            .withMetrics(config.metrics())
+                            .build();
+
         /**
          *      启动初始进程，这个进程回去访问给定的网址，并在给定的网址里面寻找其他网址，对于找到
          * 的网址一次进行访问。给定的网址的深度定义为0。在这个进程中，对于找到的每一个网址，调用
@@ -159,40 +230,192 @@ public class PageCrawler {
              *      给进程池执行一个PageCrawlerExecutor对象，PageCrawlerExecutor对象实现了
              * Runnable接口，新建的进程会自动执行PageCrawlerExecutor对象中的run（）方法
              */
-			executor.execute(
-                    new PageCrawlerExecutor(new Url(config.beginUrl(), 0),
-                                            executor,
-                                            counter,
-                                            config.downloader(),
-                                            config.normalizer(),
-                                            new DoesNotFollowVisitedUrlVisitor(config.beginUrl(),visitor)));
+			if (state.isEmpty()) {
+				context.schedule(new Url(config.beginUrl(), 0));
+				scheduleSitemaps(context, notVisitedVisitor);
+			} else {
+				for (Url url : state.pending()) {
+					context.schedule(url);
+				}
+			}
 
             /**
-             *      在进程执行期间，如果进程数不为0，则每个1s中输出一个完成的访问网页数和当前
-             * 进程数。sleep（）函数包装了Thread.sleep()函数，睡眠1s。当前进程是在主线程中，
-             * 负责下载页面的都是启动的其他线程，每一个下载任务对应一个下载线程，在主线程中输出
-             * 当前完成的下载任务和当前存活的线程数
+             *      主线程等待计数器归零，最后一个下载进程结束时立即返回，不再每秒轮询一次。
+             * 等待期间按配置的间隔把完成的访问网页数和当前进程数交给ProgressListener（默认输出
+             * 调试信息），并按检查点间隔把日志写入磁盘
              */
-			while (counter.value() != 0) {
-				log.debug("executors that finished: " + executor.getCompletedTaskCount());
-				log.debug("Number of Executors alive: " + counter.value());
-				sleep();
+			final long start = System.currentTimeMillis();
+			long nextProgress = start + config.progressIntervalMilliseconds();
+			long nextCheckpoint = journal != null ? start + config.checkpointIntervalMilliseconds() : Long.MAX_VALUE;
+			while (!awaitCompletion(counter, Math.min(nextProgress, nextCheckpoint))) {
+				long now = System.currentTimeMillis();
+				if (now >= nextProgress) {
+					config.progressListener().onProgress(progress(counter, now - start));
+					if (notVisitedVisitor instanceof DoesNotFollowProbablyVisitedUrlVisitor) {
+						DoesNotFollowProbablyVisitedUrlVisitor bloomVisitor = (DoesNotFollowProbablyVisitedUrlVisitor) notVisitedVisitor;
+						log.debug("Visited set fill: " + bloomVisitor.fill() + ", estimated false positive rate: "
+								+ bloomVisitor.estimatedFalsePositiveRate());
+					}
+					if (config.metrics() != null) {
+						log.debug("Crawl stages:\n" + config.metrics());
+					}
+					nextProgress = now + config.progressIntervalMilliseconds();
+				}
+				if (now >= nextCheckpoint) {
+					journal.checkpoint();
+					if (config.validatorStore() != null) {
+						config.validatorStore().flush();
+					}
+					nextCheckpoint = now + config.checkpointIntervalMilliseconds();
+				}
 			}
 		} finally {
 			executor.shutdown();
+			if (frontier instanceof SpillingFrontierQueue) {
+				((SpillingFrontierQueue) frontier).close();
+			}
+			if (journal != null) {
+				journal.close();
+			}
+            /**
+             *保存这次爬取记录的ETag和Last-Modified，下次爬取时发送条件GET
+             */
+			if (config.validatorStore() != null) {
+				config.validatorStore().flush();
+			}
+            /**
+             *关闭配置自己创建的下载器的连接池和回调线程，使用者传入的下载器由使用者自己关闭
+             */
+			config.shutdownDownloaders();
+		}
+	}
+
+    /**
+     *      读取配置的站点地图，把其中列出的链接直接加入队列，深度为0，带上lastmod。站点地图边下载边解析，
+     * 不会把整个文档放在内存里。和网页中找到的链接一样，每个链接先交给visitor的followUrl判断，
+     * 已经访问过的链接不会重复加入
+     */
+	private void scheduleSitemaps(final CrawlContext context, final PageVisitor visitor) {
+		if (config.sitemaps().isEmpty()) {
+			return;
+		}
+		final SitemapReader reader = new SitemapReader(config.sitemapSource());
+		for (String sitemap : config.sitemaps()) {
+			long urls = reader.read(sitemap, (link, lastModified) -> {
+				Url url = new Url(context.normalizer().normalize(link), 0, lastModified);
+				if (visitor.followUrl(url)) {
+					context.schedule(url);
+				}
+			});
+			log.info(urls + " urls read from sitemap " + sitemap);
 		}
 	}
 
     /**
-     *      辅助函数，包装Thread.sleep()，线程停止1s，当主线程出错时输出CrawlerException
-     * 异常。
+     * 当前的进度，下载器记录了传输统计的时候包括传输的字节数和解压后的字节数
      */
-	private void sleep() {
+	private CrawlProgress progress(final ExecutorCounter counter, final long elapsedMilliseconds) {
+		if (config.downloader() instanceof MeteredDownloader) {
+			TransferStatistics statistics = ((MeteredDownloader) config.downloader()).transferStatistics();
+			return new CrawlProgress(counter.finished(), counter.value(), elapsedMilliseconds,
+					statistics.wireBytes(), statistics.decodedBytes());
+		}
+		return new CrawlProgress(counter.finished(), counter.value(), elapsedMilliseconds);
+	}
+
+    /**
+     *      根据配置选择执行下载进程的方式。默认使用固定大小的进程池ThreadPoolExecutor，预先启动
+     * 所有核心线程，使第一批任务也经过队列的延时控制，而不是直接交给新建的线程。配置了虚拟线程时
+     * 每个下载进程运行在自己的虚拟线程上，同时运行的虚拟线程数不超过为虚拟线程单独配置的上限，
+     * 这个上限不受最大进程数的限制
+     */
+	private ExecutorService createExecutor(final BlockingQueue<Runnable> queue) {
+		if (config.virtualThreads()) {
+			return new VirtualThreadExecutor(queue, config.maxVirtualThreads());
+		}
+		ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(config.minPoolSize(),
+                                       config.maxPoolSize(),
+                                       config.keepAliveMilliseconds(),
+                                       TimeUnit.MILLISECONDS,
+                                       queue);
+		executor.prestartAllCoreThreads();
+		return executor;
+	}
+
+    /**
+     * 根据配置选择延时队列：全局延时的DelayedBlockingQueue，或者每个域名单独计算延时的
+     * PerHostDelayedBlockingQueue。读取robots.txt时总是按域名计算延时，以便使用每个网站的Crawl-delay
+     */
+	private BlockingQueue<Runnable> createDelayQueue() {
+		if (config.requestDelayPerHost() || config.followsRobots()) {
+			return new PerHostDelayedBlockingQueue(config.requestDelayMilliseconds());
+		}
+		return new DelayedBlockingQueue(config.requestDelayMilliseconds());
+	}
+
+    /**
+     * 进程池的缓冲队列。配置了溢出到磁盘时，延时队列只保存一个固定大小的热窗口，其余链接以紧凑记录
+     * 的形式写入内存映射的分段文件
+     */
+	private BlockingQueue<Runnable> createQueue(final BlockingQueue<Runnable> queue) {
+		if (config.spillsFrontier()) {
+			return new SpillingFrontierQueue(queue, config.frontierHotWindowSize(), config.frontierSpillDirectory());
+		}
+		return queue;
+	}
+
+    /**
+     * 使用异步下载器时，工作线程只负责发出请求，会马上回来取下一个链接。下载器没有空闲的并发名额时
+     * 不从队列中取出链接，让链接留在队列中继续受延时控制和溢出到磁盘，而不是全部堆积在下载器里
+     */
+	private BlockingQueue<Runnable> gate(final BlockingQueue<Runnable> queue) {
+		if (config.downloader() instanceof AsyncDownloader) {
+			return new CapacityGatedQueue(queue, (AsyncDownloader) config.downloader());
+		}
+		return queue;
+	}
+
+    /**
+     * 没有配置robots.txt时返回null。网站的Crawl-delay交给按域名延时的队列
+     */
+	private RobotsCache createRobots(final BlockingQueue<Runnable> delayQueue) {
+		if (!config.followsRobots()) {
+			return null;
+		}
+		return new RobotsCache(config.robotsDownloader(), config.robotsUserAgent(), config.robotsExpiryMilliseconds(),
+				config.maxCrawlDelayMilliseconds(), ((PerHostDelayedBlockingQueue) delayQueue)::hostDelay);
+	}
+
+    /**
+     * 根据配置选择不重复访问的Visitor：用精确集合记录已访问链接的DoesNotFollowVisitedUrlVisitor，
+     * 或者用固定大小布隆过滤器记录的DoesNotFollowProbablyVisitedUrlVisitor，后者内存不随抓取
+     * 增长，但会按配置的误判率跳过少量没有访问过的链接
+     */
+	private PageVisitor createVisitor(final PageVisitor visitor, final VisitedSet visitedUrls) {
+		if (visitedUrls instanceof BloomFilterVisitedSet) {
+			return new DoesNotFollowProbablyVisitedUrlVisitor(config.beginUrl(), visitor,
+					(BloomFilterVisitedSet) visitedUrls, config.metrics());
+		}
+		return new DoesNotFollowVisitedUrlVisitor(config.beginUrl(), visitor, visitedUrls, config.metrics());
+	}
+
+	private VisitedSet createVisitedSet() {
+		if (config.usesProbabilisticVisitedSet()) {
+			return new BloomFilterVisitedSet(config.expectedUrls(), config.falsePositiveRate());
+		}
+		return new FingerprintVisitedSet();
+	}
+
+    /**
+     *      辅助函数，等待所有下载进程结束，最多等到deadline（毫秒时间戳）。所有进程结束时返回
+     * true，当主线程被中断时输出CrawlerException异常。
+     */
+	private boolean awaitCompletion(final ExecutorCounter counter, final long deadline) {
 		try {
-			Thread.sleep(1000);
+			return counter.awaitZero(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
 		} catch (InterruptedException e) {
 			throw new CrawlerException("main thread died. ", e);
 		}
-
 	}
 }
@@ -0,0 +1,220 @@
+package net.vidageek.crawler.component;
+
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import net.vidageek.crawler.component.Dns.impl.CachingDnsResolver;
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Robots.RobotsCache;
+import net.vidageek.crawler.component.visitor.PageVisitor;
+import net.vidageek.crawler.http.Url;
+import net.vidageek.crawler.utils.UrlUtils;
+
+/**
+ * Everything the executors of a crawl share. Each pending url holds a single
+ * reference to it instead of one reference per collaborator.
+ */
+final public class CrawlContext {
+
+    private final Executor executor;
+    private final ExecutorCounter counter;
+    private final Downloader downloader;
+    private final LinkNormalizer normalizer;
+    private final PageVisitor visitor;
+    private final CrawlJournal journal;
+    private final Queue<Runnable> frontier;
+    private final CachingDnsResolver dns;
+    private final RobotsCache robots;
+    private final CrawlMetrics metrics;
+
+    private CrawlContext(final Builder builder) {
+        this.executor = builder.executor;
+        this.counter = builder.counter;
+        this.downloader = builder.downloader;
+        this.normalizer = builder.normalizer;
+        this.visitor = builder.visitor;
+        this.journal = builder.journal;
+        this.frontier = builder.frontier;
+        this.dns = builder.dns;
+        this.robots = builder.robots;
+        this.metrics = builder.metrics;
+    }
+
+    /**
+     * Starts a context of the collaborators every crawl has. The optional
+     * ones are added through the returned builder.
+     */
+    public static Builder builder(final Executor executor,
+                                  final ExecutorCounter counter,
+                                  final Downloader downloader,
+                                  final LinkNormalizer normalizer,
+                                  final PageVisitor visitor) {
+        return new Builder(executor, counter, downloader, normalizer, visitor);
+    }
+
+    /**
+     * Counts a new pending url and hands its executor to the pool.
+     */
+    public void schedule(final Url url) {
+        if (journal != null) {
+            journal.scheduled(url);
+        }
+        executor.execute(new PageCrawlerExecutor(url, this));
+    }
+
+    /**
+     * Rebuilds the executor of a url that is already counted as pending, for
+     * instance one read back from disk.
+     */
+    public PageCrawlerExecutor restore(final Url url) {
+        return new PageCrawlerExecutor(url, this, false);
+    }
+
+    /**
+     * Called once the page of url and all the links found in it were
+     * processed.
+     */
+    public void completed(final Url url) {
+        if (journal != null) {
+            journal.done(url);
+        }
+    }
+
+    /**
+     * Starts resolving the host of the url at the head of the frontier, the
+     * next one to be dequeued, so its lookup is done by the time a worker
+     * connects to it.
+     */
+    public void prefetchNext() {
+        if (dns == null) {
+            return;
+        }
+        Runnable next = frontier.peek();
+        if (next instanceof PageCrawlerExecutor) {
+            String host = UrlUtils.hostName(((PageCrawlerExecutor) next).url().link());
+            if (host.length() > 0) {
+                dns.prefetch(host);
+            }
+        }
+    }
+
+    /**
+     * Whether the robots.txt of the url's site lets it be fetched. The first
+     * url of each site waits for its robots.txt to be fetched.
+     */
+    public boolean allowedByRobots(final Url url) {
+        return (robots == null) || robots.allows(url.link());
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    public ExecutorCounter counter() {
+        return counter;
+    }
+
+    public Downloader downloader() {
+        return downloader;
+    }
+
+    /**
+     * The downloader as an {@link AsyncDownloader}, or null if it can only
+     * download blocking the caller.
+     */
+    public AsyncDownloader asyncDownloader() {
+        return downloader instanceof AsyncDownloader ? (AsyncDownloader) downloader : null;
+    }
+
+    public LinkNormalizer normalizer() {
+        return normalizer;
+    }
+
+    public PageVisitor visitor() {
+        return visitor;
+    }
+
+    /**
+     * Null when the crawl is not metered.
+     */
+    public CrawlMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Collects the optional collaborators of a {@link CrawlContext}. Each is
+     * null, and the feature it stands for off, until it is given.
+     *
+     * WARNING: This class is not thread-safe.
+     */
+    final public static class Builder {
+
+        private final Executor executor;
+        private final ExecutorCounter counter;
+        private final Downloader downloader;
+        private final LinkNormalizer normalizer;
+        private final PageVisitor visitor;
+        private CrawlJournal journal;
+        private Queue<Runnable> frontier;
+        private CachingDnsResolver dns;
+        private RobotsCache robots;
+        private CrawlMetrics metrics;
+
+        private Builder(final Executor executor,
+                        final ExecutorCounter counter,
+                        final Downloader downloader,
+                        final LinkNormalizer normalizer,
+                        final PageVisitor visitor) {
+            this.executor = executor;
+            this.counter = counter;
+            this.downloader = downloader;
+            this.normalizer = normalizer;
+            this.visitor = visitor;
+        }
+
+        /**
+         * Logs scheduled and finished urls to journal.
+         */
+        public Builder withJournal(final CrawlJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Prefetches in dns the host of the url at the head of frontier, the
+         * executor's queue.
+         */
+        public Builder withDnsPrefetch(final Queue<Runnable> frontier, final CachingDnsResolver dns) {
+            if ((dns != null) && (frontier == null)) {
+                throw new IllegalArgumentException("frontier cannot be null when dns is given");
+            }
+            this.frontier = frontier;
+            this.dns = dns;
+            return this;
+        }
+
+        /**
+         * Checks robots before each url is fetched.
+         */
+        public Builder withRobots(final RobotsCache robots) {
+            this.robots = robots;
+            return this;
+        }
+
+        /**
+         * Records the time spent on each url in metrics.
+         */
+        public Builder withMetrics(final CrawlMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public CrawlContext build() {
+            return new CrawlContext(this);
+        }
+    }
+
+}
@@ -0,0 +1,369 @@
+package net.vidageek.crawler.component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.Url;
+import net.vidageek.crawler.utils.AppendLog;
+import net.vidageek.crawler.utils.UrlFingerprint;
+
+/**
+ * Append-only log of a crawl, kept in a directory so the crawl can be resumed
+ * after the process dies. It records every url handed to the pool, with its
+ * depth, and every url whose page was completely processed.
+ *
+ * Workers never wait for each other or for the disk: each record is encoded by
+ * the thread that logs it and queued, and the queue is written in batches by
+ * whichever thread finds it full and the file free. Records logged after
+ * {@link #close()} are dropped; such urls are simply fetched again on resume.
+ *
+ * {@link #checkpoint()} makes everything logged so far durable. When the log
+ * has grown enough it is also compacted: the state up to that point is
+ * replayed and written to a temporary file while logging goes on, then the
+ * records appended meanwhile are copied after it, and the file is synced and
+ * atomically moved over the log, see {@link AppendLog}.
+ */
+final public class CrawlJournal {
+
+    private static final String FILE_NAME = "crawl.journal";
+
+    private static final byte SCHEDULED = 'S';
+    private static final byte DONE = 'D';
+    private static final byte VISITED = 'V';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final File tmpFile;
+
+    // records logged but not written yet, in order
+    private final Queue<byte[]> records = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicLong recordsSize = new AtomicLong();
+    private volatile boolean closed = true;
+
+    // guards output, data and written; held only to write records or swap the file
+    private final ReentrantLock fileLock = new ReentrantLock();
+    // serializes checkpoints, so only one compaction runs at a time
+    private final Object checkpointLock = new Object();
+    private FileOutputStream output;
+    private DataOutputStream data;
+    private long written;
+    private long compactedSize;
+
+    public CrawlJournal(final File directory) {
+        if ((directory == null) || !directory.isDirectory()) {
+            throw new IllegalArgumentException("directory must be an existing directory");
+        }
+        file = new File(directory, FILE_NAME);
+        tmpFile = new File(directory, FILE_NAME + ".tmp");
+    }
+
+    /**
+     * Reads the state left by a previous crawl. Returns an empty state if
+     * there is none.
+     */
+    public State replay() {
+        State state = new State();
+        if (file.exists()) {
+            read(state, Long.MAX_VALUE);
+        }
+        return state;
+    }
+
+    /**
+     * Replaces the log with the given state and opens it for appending.
+     */
+    public void start(final State state) {
+        synchronized (checkpointLock) {
+            close();
+            fileLock.lock();
+            try {
+                write(state);
+                replaceLog();
+                compactedSize = written;
+                closed = false;
+            } catch (IOException e) {
+                throw new CrawlerException("Could not write journal " + file, e);
+            } finally {
+                fileLock.unlock();
+            }
+        }
+    }
+
+    public void scheduled(final Url url) {
+        byte[] link = url.link().getBytes(UTF_8);
+        log(ByteBuffer.allocate(9 + link.length).put(SCHEDULED).putInt(url.depth()).putInt(link.length).put(link)
+                .array());
+    }
+
+    public void done(final Url url) {
+        log(ByteBuffer.allocate(9).put(DONE).putLong(UrlFingerprint.of(url.link())).array());
+    }
+
+    /**
+     * Forces what was logged so far to disk, compacting the log when it has
+     * doubled since the last compaction.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            final long size;
+            fileLock.lock();
+            try {
+                if (data == null) {
+                    return;
+                }
+                writeRecords();
+                data.flush();
+                output.getFD().sync();
+                size = written;
+            } catch (IOException e) {
+                throw new CrawlerException("Could not write journal " + file, e);
+            } finally {
+                fileLock.unlock();
+            }
+            if (AppendLog.needsCompaction(size, compactedSize)) {
+                compact(size);
+            }
+        }
+    }
+
+    /**
+     * Writes what is left and closes the log. Records logged from now on are
+     * dropped.
+     */
+    public void close() {
+        closed = true;
+        fileLock.lock();
+        try {
+            if (data == null) {
+                return;
+            }
+            try {
+                writeRecords();
+                data.flush();
+                output.getFD().sync();
+                output.close();
+            } finally {
+                output = null;
+                data = null;
+            }
+        } catch (IOException e) {
+            throw new CrawlerException("Could not write journal " + file, e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private void log(final byte[] record) {
+        if (closed) {
+            return;
+        }
+        records.add(record);
+        if ((recordsSize.addAndGet(record.length) >= AppendLog.BATCH_SIZE) && fileLock.tryLock()) {
+            try {
+                if (data != null) {
+                    writeRecords();
+                }
+            } catch (IOException e) {
+                throw new CrawlerException("Could not write journal " + file, e);
+            } finally {
+                fileLock.unlock();
+            }
+        }
+    }
+
+    // must hold fileLock
+    private void writeRecords() throws IOException {
+        byte[] record;
+        while ((record = records.poll()) != null) {
+            recordsSize.addAndGet(-record.length);
+            data.write(record);
+            written += record.length;
+        }
+    }
+
+    /**
+     * Rewrites the first size bytes of the log, which are synced, as a
+     * compact state without holding up the workers, then copies what they
+     * appended meanwhile and swaps the files.
+     */
+    private void compact(final long size) {
+        State state = new State();
+        read(state, size);
+        fileLock.lock();
+        try {
+            if (data == null) {
+                return;
+            }
+            writeRecords();
+            data.flush();
+            output.close();
+            final long end = written;
+            write(state);
+            long compacted = written;
+            append(size, end);
+            replaceLog();
+            compactedSize = compacted;
+        } catch (IOException e) {
+            throw new CrawlerException("Could not write journal " + file, e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    // must hold fileLock; leaves tmpFile open for appending
+    private void write(final State state) throws IOException {
+        output = new FileOutputStream(tmpFile);
+        data = new DataOutputStream(new BufferedOutputStream(output));
+        written = 0;
+        for (int i = 0; i < state.numberOfVisited; i++) {
+            data.writeByte(VISITED);
+            data.writeLong(state.visited[i]);
+            written += 9;
+        }
+        for (Url url : state.pending.values()) {
+            byte[] link = url.link().getBytes(UTF_8);
+            data.writeByte(SCHEDULED);
+            data.writeInt(url.depth());
+            data.writeInt(link.length);
+            data.write(link);
+            written += 9 + link.length;
+        }
+    }
+
+    // must hold fileLock; copies bytes from..to of the log after what was written
+    private void append(final long from, final long to) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            input.getChannel().position(from);
+            byte[] buffer = new byte[8192];
+            long left = to - from;
+            while (left > 0) {
+                int n = input.read(buffer, 0, (int) Math.min(buffer.length, left));
+                if (n == -1) {
+                    throw new EOFException("Journal " + file + " is shorter than what was written to it");
+                }
+                data.write(buffer, 0, n);
+                written += n;
+                left -= n;
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    // must hold fileLock; syncs tmpFile, renames it over the log and reopens the log for appending
+    private void replaceLog() throws IOException {
+        try {
+            data.flush();
+            output.getFD().sync();
+        } finally {
+            output.close();
+            output = null;
+            data = null;
+        }
+        AppendLog.replace(tmpFile, file);
+        output = new FileOutputStream(file, true);
+        data = new DataOutputStream(new BufferedOutputStream(output));
+    }
+
+    // replays the records in the first limit bytes of the log into state
+    private void read(final State state, final long limit) {
+        try {
+            AppendLog.replay(file, limit, (type, input, position) -> {
+                if (type == SCHEDULED) {
+                    int depth = input.readInt();
+                    byte[] link = new byte[input.readInt()];
+                    input.readFully(link);
+                    state.scheduled(new Url(new String(link, UTF_8), depth));
+                    return 9 + link.length;
+                } else if (type == DONE) {
+                    state.done(input.readLong());
+                    return 9;
+                } else if (type == VISITED) {
+                    state.visited(input.readLong());
+                    return 9;
+                }
+                throw new CrawlerException("Journal " + file + " is corrupted.");
+            });
+        } catch (IOException e) {
+            throw new CrawlerException("Could not read journal " + file, e);
+        }
+    }
+
+    /**
+     * What a journal says about a crawl: the urls that were scheduled but not
+     * finished, in order, and the fingerprints of the finished ones.
+     */
+    final public static class State {
+
+        private final Map<Long, Url> pending = new LinkedHashMap<Long, Url>();
+        private long[] visited = new long[16];
+        private int numberOfVisited;
+
+        private void scheduled(final Url url) {
+            Long fingerprint = UrlFingerprint.of(url.link());
+            if (!pending.containsKey(fingerprint)) {
+                pending.put(fingerprint, url);
+            }
+        }
+
+        private void done(final long fingerprint) {
+            if (pending.remove(fingerprint) != null) {
+                visited(fingerprint);
+            }
+        }
+
+        private void visited(final long fingerprint) {
+            if (numberOfVisited == visited.length) {
+                visited = Arrays.copyOf(visited, visited.length * 2);
+            }
+            visited[numberOfVisited++] = fingerprint;
+        }
+
+        public Collection<Url> pending() {
+            return new ArrayList<Url>(pending.values());
+        }
+
+        /**
+         * Fingerprints of every url already followed, finished or not.
+         */
+        public long[] visited() {
+            long[] all = Arrays.copyOf(visited, numberOfVisited + pending.size());
+            int i = numberOfVisited;
+            for (Long fingerprint : pending.keySet()) {
+                all[i++] = fingerprint;
+            }
+            return all;
+        }
+
+        /**
+         * True when there is no previous crawl at all.
+         */
+        public boolean isEmpty() {
+            return pending.isEmpty() && (numberOfVisited == 0);
+        }
+
+        public boolean isFinished() {
+            return pending.isEmpty();
+        }
+    }
+
+}
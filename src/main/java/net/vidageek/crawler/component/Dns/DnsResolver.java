@@ -0,0 +1,13 @@
+package net.vidageek.crawler.component.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Turns host names into addresses for the downloader's connections.
+ */
+public interface DnsResolver {
+
+    InetAddress[] resolve(String host) throws UnknownHostException;
+
+}
@@ -0,0 +1,180 @@
+package net.vidageek.crawler.component.Dns.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.vidageek.crawler.component.Dns.DnsResolver;
+
+/**
+ * Caches the answers of another resolver: addresses for ttl milliseconds and
+ * unknown hosts for negativeTtl milliseconds. Threads that ask for a host
+ * being looked up wait for that lookup instead of starting their own.
+ *
+ * {@link #prefetch(String)} resolves a host on a background thread, so the
+ * crawler can look up the hosts it is about to fetch before a worker needs
+ * them. Prefetches are best effort: when too many are pending, new ones are
+ * dropped.
+ */
+final public class CachingDnsResolver implements DnsResolver {
+
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
+    private static final int MAX_PENDING_PREFETCHES = 1024;
+
+    private final DnsResolver delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+    private final ThreadPoolExecutor prefetcher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+    public CachingDnsResolver(final DnsResolver delegate, final long ttlMilliseconds,
+            final long negativeTtlMilliseconds) {
+        this(delegate, ttlMilliseconds, negativeTtlMilliseconds, 4);
+    }
+
+    public CachingDnsResolver(final DnsResolver delegate, final long ttlMilliseconds,
+            final long negativeTtlMilliseconds, final int prefetchThreads) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        if ((ttlMilliseconds < 0) || (negativeTtlMilliseconds < 0)) {
+            throw new IllegalArgumentException("ttls cannot be negative");
+        }
+        if (prefetchThreads <= 0) {
+            throw new IllegalArgumentException("prefetchThreads must be positive");
+        }
+        this.delegate = delegate;
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMilliseconds);
+        negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMilliseconds);
+        prefetcher = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_PREFETCHES),
+                Thread.ofPlatform().name("crawler-dns-", 0).daemon().factory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        prefetcher.allowCoreThreadTimeOut(true);
+    }
+
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        final String key = host.toLowerCase(Locale.ENGLISH);
+        final long now = System.nanoTime();
+        Entry entry = cache.get(key);
+        if ((entry != null) && !entry.expired(now)) {
+            hits.increment();
+        } else {
+            misses.increment();
+            entry = lookup(key, now);
+        }
+        return entry.addresses(host);
+    }
+
+    /**
+     * Starts resolving host in the background unless a fresh answer, or a
+     * lookup, is already there.
+     */
+    public void prefetch(final String host) {
+        final String key = host.toLowerCase(Locale.ENGLISH);
+        Entry entry = cache.get(key);
+        if ((entry != null) && !entry.expired(System.nanoTime())) {
+            return;
+        }
+        prefetcher.execute(() -> lookup(key, System.nanoTime()));
+    }
+
+    /**
+     * Resolutions answered from the cache, including the ones that waited for
+     * a lookup already in progress.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Hosts cached, expired ones included until they are swept.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    private Entry lookup(final String key, final long now) {
+        final Entry created = new Entry();
+        Entry entry = cache.compute(key, (k, old) -> ((old != null) && !old.expired(now)) ? old : created);
+        if (entry == created) {
+            created.resolve(key);
+            if (cache.size() >= sweepThreshold) {
+                sweep();
+            }
+        }
+        return entry;
+    }
+
+    private synchronized void sweep() {
+        if (cache.size() < sweepThreshold) {
+            return;
+        }
+        final long now = System.nanoTime();
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expired(now)) {
+                iterator.remove();
+            }
+        }
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, cache.size() * 2);
+    }
+
+    private final class Entry {
+
+        private final CompletableFuture<InetAddress[]> answer = new CompletableFuture<InetAddress[]>();
+        // only read once answer is done
+        private volatile long expiresAt;
+
+        private void resolve(final String host) {
+            try {
+                InetAddress[] addresses = delegate.resolve(host);
+                expiresAt = System.nanoTime() + ttlNanos;
+                answer.complete(addresses);
+            } catch (UnknownHostException e) {
+                expiresAt = System.nanoTime() + negativeTtlNanos;
+                answer.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                // not an answer about the host: don't keep it
+                expiresAt = System.nanoTime();
+                answer.completeExceptionally(e);
+            }
+        }
+
+        private boolean expired(final long now) {
+            return answer.isDone() && (now - expiresAt >= 0);
+        }
+
+        private InetAddress[] addresses(final String host) throws UnknownHostException {
+            try {
+                return answer.join().clone();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UnknownHostException) {
+                    throw (UnknownHostException) new UnknownHostException(e.getCause().getMessage())
+                            .initCause(e.getCause());
+                }
+                throw (RuntimeException) e.getCause();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package net.vidageek.crawler.component.Dns.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import net.vidageek.crawler.component.Dns.DnsResolver;
+
+/**
+ * Resolves through the JVM, exactly like a connection does by default.
+ */
+final public class SystemDnsResolver implements DnsResolver {
+
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+}
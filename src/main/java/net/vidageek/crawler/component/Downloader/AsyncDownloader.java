@@ -0,0 +1,26 @@
+package net.vidageek.crawler.component.Downloader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.http.Page;
+
+/**
+ * Downloader that doesn't block the calling thread. The returned future
+ * completes with the page, or exceptionally if it could not be retrieved.
+ */
+public interface AsyncDownloader {
+
+    CompletableFuture<Page> getAsync(String url);
+
+    /**
+     * Waits until a request started now would go on the wire instead of
+     * waiting behind others. Whoever takes urls from a queue calls it first,
+     * so the urls that can't be fetched yet stay in the queue. Returns false
+     * if the timeout elapsed first.
+     */
+    default boolean awaitCapacity(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return true;
+    }
+
+}
@@ -0,0 +1,70 @@
+package net.vidageek.crawler.component.Downloader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds on a single fetch. A body bigger than maxBodyBytes ends the fetch
+ * with {@link net.vidageek.crawler.http.Status#TRUNCATED}, and a fetch still
+ * running after fetchDeadlineMilliseconds, counting from when the request is
+ * sent, is aborted with {@link net.vidageek.crawler.http.Status#ABORTED}. A
+ * zero disables the limit.
+ */
+final public class FetchLimits {
+
+    public static final FetchLimits DEFAULT = new FetchLimits(15000, 15000, 0, 0);
+
+    private final int connectTimeoutMilliseconds;
+    private final int readTimeoutMilliseconds;
+    private final long maxBodyBytes;
+    private final long fetchDeadlineMilliseconds;
+
+    public FetchLimits(final int connectTimeoutMilliseconds, final int readTimeoutMilliseconds,
+            final long maxBodyBytes, final long fetchDeadlineMilliseconds) {
+        if ((connectTimeoutMilliseconds < 0) || (readTimeoutMilliseconds < 0)) {
+            throw new IllegalArgumentException("timeouts cannot be negative");
+        }
+        if ((maxBodyBytes < 0) || (fetchDeadlineMilliseconds < 0)) {
+            throw new IllegalArgumentException("fetch limits cannot be negative");
+        }
+        this.connectTimeoutMilliseconds = connectTimeoutMilliseconds;
+        this.readTimeoutMilliseconds = readTimeoutMilliseconds;
+        this.maxBodyBytes = maxBodyBytes;
+        this.fetchDeadlineMilliseconds = fetchDeadlineMilliseconds;
+    }
+
+    public int connectTimeoutMilliseconds() {
+        return connectTimeoutMilliseconds;
+    }
+
+    /**
+     * Longest wait for any single read.
+     */
+    public int readTimeoutMilliseconds() {
+        return readTimeoutMilliseconds;
+    }
+
+    public long maxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public long fetchDeadlineMilliseconds() {
+        return fetchDeadlineMilliseconds;
+    }
+
+    public boolean limitsBody() {
+        return maxBodyBytes > 0;
+    }
+
+    public boolean hasDeadline() {
+        return fetchDeadlineMilliseconds > 0;
+    }
+
+    /**
+     * The deadline, in {@link System#nanoTime()} terms, of a fetch started at
+     * startNanos; Long.MAX_VALUE when there is none.
+     */
+    public long deadline(final long startNanos) {
+        return hasDeadline() ? startNanos + TimeUnit.MILLISECONDS.toNanos(fetchDeadlineMilliseconds) : Long.MAX_VALUE;
+    }
+
+}
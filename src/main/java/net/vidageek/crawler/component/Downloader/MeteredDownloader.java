@@ -0,0 +1,11 @@
+package net.vidageek.crawler.component.Downloader;
+
+/**
+ * Downloader that keeps {@link TransferStatistics} of what it downloads. The
+ * crawler reports them with its progress.
+ */
+public interface MeteredDownloader {
+
+    TransferStatistics transferStatistics();
+
+}
@@ -0,0 +1,37 @@
+package net.vidageek.crawler.component.Downloader;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes of response bodies a downloader read, as they came over the wire and
+ * after content decoding. The difference is what compression saved.
+ * Safe to update from many threads.
+ */
+final public class TransferStatistics {
+
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+
+    public void record(final long wireBytes, final long decodedBytes) {
+        responses.increment();
+        this.wireBytes.add(wireBytes);
+        this.decodedBytes.add(decodedBytes);
+    }
+
+    /**
+     * Bodies recorded so far.
+     */
+    public long responses() {
+        return responses.sum();
+    }
+
+    public long wireBytes() {
+        return wireBytes.sum();
+    }
+
+    public long decodedBytes() {
+        return decodedBytes.sum();
+    }
+
+}
@@ -0,0 +1,410 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.FetchLimits;
+import net.vidageek.crawler.component.Downloader.MeteredDownloader;
+import net.vidageek.crawler.component.Downloader.TransferStatistics;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Metrics.CrawlStage;
+import net.vidageek.crawler.component.ValidatorStore.ValidatorStore;
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.Cookie;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.Validators;
+import net.vidageek.crawler.http.page.DefaultPageFactory;
+import net.vidageek.crawler.http.page.PageFactory;
+import net.vidageek.crawler.utils.UrlUtils;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link AsyncDownloader} on top of the JDK's non-blocking http client. A
+ * single selector thread does all the I/O, and a small pool, one thread per
+ * processor, completes the returned futures. Requests over the global or per
+ * host in-flight limit wait without holding any thread.
+ *
+ * Pages are built exactly like {@link WebDownloader} builds them, including
+ * conditional GETs when a {@link ValidatorStore} is given and gzip or deflate
+ * compressed transfer, though a compressed body is inflated only once it has
+ * been received whole. The body of a response that is not an accepted mime
+ * type or not OK is dropped: up to {@link WebDownloader#MAX_DRAINED_BYTES}
+ * are read to keep the connection, and a longer one is cancelled.
+ *
+ * The read timeout of the {@link FetchLimits} bounds the wait for the
+ * response headers; the body is bounded by the fetch deadline.
+ */
+final public class AsyncWebDownloader implements AsyncDownloader, Downloader, MeteredDownloader {
+
+	private final Logger log = Logger.getLogger(AsyncWebDownloader.class);
+
+	private final List<String> mimeTypesToInclude;
+	private final PageFactory pageFactory;
+	private final ValidatorStore validatorStore;
+	private final TransferStatistics statistics = new TransferStatistics();
+	private final FetchLimits limits;
+	private final InFlightLimiter limiter;
+	private final ExecutorService callbacks;
+	private final HttpClient client;
+	private final CrawlMetrics metrics;
+
+	public AsyncWebDownloader(final int maxInFlight, final int maxInFlightPerHost) {
+		this(builder(maxInFlight, maxInFlightPerHost));
+	}
+
+	private AsyncWebDownloader(final Builder builder) {
+		this.mimeTypesToInclude = new ArrayList<String>(builder.mimeTypesToInclude);
+		this.pageFactory = builder.pageFactory;
+		this.validatorStore = builder.validatorStore;
+		this.limits = builder.limits;
+		this.metrics = builder.metrics;
+		limiter = new InFlightLimiter(builder.maxInFlight, builder.maxInFlightPerHost, builder.hostDelayMilliseconds);
+		callbacks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				Thread.ofPlatform().name("crawler-async-", 0).daemon().factory());
+		HttpClient.Builder client = HttpClient.newBuilder()
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.cookieHandler(cookieManager(builder.cookies))
+				.executor(callbacks);
+		if (limits.connectTimeoutMilliseconds() > 0) {
+			client.connectTimeout(Duration.ofMillis(limits.connectTimeoutMilliseconds()));
+		}
+		this.client = client.build();
+	}
+
+	/**
+	 * Starts a downloader with at most maxInFlight requests on the wire, and
+	 * maxInFlightPerHost to the same host. Everything else has a default: text/html
+	 * only, no cookies, no conditional GETs, the default limits and no host
+	 * delay.
+	 */
+	public static Builder builder(final int maxInFlight, final int maxInFlightPerHost) {
+		return new Builder(maxInFlight, maxInFlightPerHost);
+	}
+
+	public CompletableFuture<Page> getAsync(final String url) {
+		final URI uri;
+		try {
+			uri = URI.create(WebDownloader.encode(url));
+		} catch (IllegalArgumentException e) {
+			return CompletableFuture.failedFuture(new CrawlerException("Could not retrieve data from " + url, e));
+		}
+		return limiter.submit(UrlUtils.host(url), () -> send(url, uri));
+	}
+
+	public boolean awaitCapacity(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return limiter.awaitCapacity(timeout, unit);
+	}
+
+	/**
+	 * Blocks until the page is retrieved.
+	 */
+	public Page get(final String url) {
+		try {
+			return getAsync(url).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CrawlerException("Interrupted while retrieving " + url, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CrawlerException) {
+				throw (CrawlerException) e.getCause();
+			}
+			throw new CrawlerException("Could not retrieve data from " + url, e.getCause());
+		}
+	}
+
+	/**
+	 * Requests currently on the wire.
+	 */
+	public int inFlight() {
+		return limiter.inFlight();
+	}
+
+	/**
+	 * Requests waiting for an in-flight slot.
+	 */
+	public int waiting() {
+		return limiter.waiting();
+	}
+
+	public TransferStatistics transferStatistics() {
+		return statistics;
+	}
+
+	public void shutdown() {
+		client.shutdown();
+		callbacks.shutdown();
+	}
+
+	private CompletableFuture<Page> send(final String url, final URI uri) {
+		log.debug("Requesting url: [" + uri + "]");
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri).GET()
+				.header("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING);
+		if (limits.readTimeoutMilliseconds() > 0) {
+			request.timeout(Duration.ofMillis(limits.readTimeoutMilliseconds()));
+		}
+		Validators validators = validatorStore == null ? null : validatorStore.get(url);
+		if (validators != null) {
+			if (validators.etag() != null) {
+				request.header("If-None-Match", validators.etag());
+			}
+			if (validators.lastModified() != null) {
+				request.header("If-Modified-Since", validators.lastModified());
+			}
+		}
+		final long start = System.nanoTime();
+		final long deadline = limits.deadline(start);
+		final CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(request.build(), this::subscriber);
+		// cancelling completes the page on the calling thread: keep that off the watchdog's
+		final ScheduledFuture<?> watchdog = FetchWatchdog.schedule(
+				() -> callbacks.execute(() -> exchange.cancel(true)), deadline);
+		return exchange.handle((response, error) -> {
+			FetchWatchdog.cancel(watchdog);
+			if (metrics != null) {
+				metrics.record(CrawlStage.HTTP, System.nanoTime() - start);
+			}
+			try {
+				if (error != null) {
+					FetchLimitExceededException exceeded = limitExceeded(error);
+					if (exceeded != null) {
+						throw exceeded;
+					}
+					if (LimitedInputStream.passed(deadline)) {
+						return pageFactory.buildErrorPage(url, Status.ABORTED);
+					}
+					throw new CompletionException(new CrawlerException("Could not retrieve data from " + url,
+							error instanceof CompletionException ? error.getCause() : error));
+				}
+				return buildPage(url, response, deadline);
+			} catch (FetchLimitExceededException e) {
+				log.debug(e.getMessage() + ": " + url);
+				return pageFactory.buildErrorPage(url, e.status());
+			}
+		});
+	}
+
+	private static FetchLimitExceededException limitExceeded(final Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof FetchLimitExceededException) {
+				return (FetchLimitExceededException) cause;
+			}
+		}
+		return null;
+	}
+
+	private BodySubscriber<byte[]> subscriber(final HttpResponse.ResponseInfo info) {
+		String contentType = info.headers().firstValue("Content-Type").orElse(null);
+		if (Status.OK.equals(Status.fromHttpCode(info.statusCode())) && acceptsMimeType(contentType)) {
+			return new LimitedBodySubscriber(limits.maxBodyBytes());
+		}
+		return new DiscardingBodySubscriber(WebDownloader.MAX_DRAINED_BYTES);
+	}
+
+	private Page buildPage(final String url, final HttpResponse<byte[]> response, final long deadline) {
+		Status status = Status.fromHttpCode(response.statusCode());
+		if (Status.NOT_MODIFIED_304.equals(status)) {
+			Validators validators = validatorStore == null ? null : validatorStore.get(url);
+			return pageFactory.buildNotModifiedPage(url,
+					validators == null ? new ArrayList<String>() : validators.links());
+		}
+		String contentType = response.headers().firstValue("Content-Type").orElse(null);
+		if (!acceptsMimeType(contentType)) {
+			return pageFactory.buildRejectedMimeTypePage(url, status, contentType);
+		}
+		if (Status.OK.equals(status)) {
+			long start = metrics != null ? System.nanoTime() : 0;
+			ResponseBody body = decode(url, response, deadline);
+			if (metrics != null) {
+				long now = System.nanoTime();
+				metrics.record(CrawlStage.BODY_READ, now - start);
+				start = now;
+			}
+			statistics.record(response.body().length, body.length());
+			Charset charset = CharsetResolver.resolve(contentType, body.bytes(), body.length());
+			String content = CharsetResolver.decode(body.bytes(), body.length(), charset);
+			if (metrics != null) {
+				metrics.record(CrawlStage.CHARSET, System.nanoTime() - start);
+			}
+			Page page = pageFactory.buildOkPage(url, content, charset.name());
+			recordValidators(url, response, page);
+			return page;
+		}
+		return pageFactory.buildErrorPage(url, status);
+	}
+
+	/**
+	 * Keeps the validators of an ok page with its links, which a later 304
+	 * replays. A page without validators is forgotten.
+	 */
+	private void recordValidators(final String url, final HttpResponse<byte[]> response, final Page page) {
+		if (validatorStore == null) {
+			return;
+		}
+		String etag = response.headers().firstValue("ETag").orElse(null);
+		String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+		if ((etag == null) && (lastModified == null)) {
+			validatorStore.put(url, null);
+			return;
+		}
+		validatorStore.put(url, new Validators(etag, lastModified, page.getLinks()));
+	}
+
+	/**
+	 * Unlike {@link WebDownloader}, which inflates while it reads, a
+	 * compressed body is first received whole, bounded by the fetch limits,
+	 * and inflated once complete. The compressed and the decoded copy are
+	 * both held for a moment.
+	 */
+	private ResponseBody decode(final String url, final HttpResponse<byte[]> response, final long deadline) {
+		byte[] wire = response.body();
+		String encoding = response.headers().firstValue("Content-Encoding").orElse(null);
+		if (ContentDecoding.isIdentity(encoding)) {
+			return new ResponseBody(wire, wire.length);
+		}
+		try {
+			return ResponseBody.read(new LimitedInputStream(ContentDecoding.decode(encoding,
+					new ByteArrayInputStream(wire)), limits.maxBodyBytes(), deadline), -1);
+		} catch (IOException e) {
+			throw new CrawlerException("Could not decode data from " + url, e);
+		}
+	}
+
+	private boolean acceptsMimeType(final String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		for (String mimeType : mimeTypesToInclude) {
+			if (contentType.contains(mimeType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private CookieManager cookieManager(final List<Cookie> cookies) {
+		CookieManager manager = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+		for (Cookie cookie : cookies) {
+			log.debug("Creating cookie [" + cookie.name() + " = " + cookie.value() + "] " + cookie.domain());
+			HttpCookie httpCookie = new HttpCookie(cookie.name(), cookie.value());
+			httpCookie.setDomain(cookie.domain());
+			httpCookie.setPath(cookie.path());
+			httpCookie.setVersion(0);
+			manager.getCookieStore().add(null, httpCookie);
+		}
+		return manager;
+	}
+
+	/**
+	 * Collects the settings of an {@link AsyncWebDownloader}.
+	 *
+	 * WARNING: This class is not thread-safe.
+	 */
+	final public static class Builder {
+
+		private final int maxInFlight;
+		private final int maxInFlightPerHost;
+		private List<String> mimeTypesToInclude = Arrays.asList("text/html");
+		private List<Cookie> cookies = new ArrayList<Cookie>();
+		private PageFactory pageFactory = new DefaultPageFactory();
+		private ValidatorStore validatorStore;
+		private FetchLimits limits = FetchLimits.DEFAULT;
+		private CrawlMetrics metrics;
+		private long hostDelayMilliseconds;
+
+		private Builder(final int maxInFlight, final int maxInFlightPerHost) {
+			this.maxInFlight = maxInFlight;
+			this.maxInFlightPerHost = maxInFlightPerHost;
+		}
+
+		public Builder withMimeTypes(final List<String> mimeTypesToInclude) {
+			if (mimeTypesToInclude == null) {
+				throw new IllegalArgumentException("mimeTypesToInclude cannot be null");
+			}
+			this.mimeTypesToInclude = mimeTypesToInclude;
+			return this;
+		}
+
+		public Builder withCookies(final List<Cookie> cookies) {
+			if (cookies == null) {
+				throw new IllegalArgumentException("cookies cannot be null");
+			}
+			this.cookies = cookies;
+			return this;
+		}
+
+		public Builder withPageFactory(final PageFactory pageFactory) {
+			if (pageFactory == null) {
+				throw new IllegalArgumentException("pageFactory cannot be null");
+			}
+			this.pageFactory = pageFactory;
+			return this;
+		}
+
+		/**
+		 * @param validatorStore where ETag and Last-Modified are kept for
+		 *            conditional GETs, or null to always download whole pages
+		 */
+		public Builder withValidatorStore(final ValidatorStore validatorStore) {
+			this.validatorStore = validatorStore;
+			return this;
+		}
+
+		public Builder withFetchLimits(final FetchLimits limits) {
+			if (limits == null) {
+				throw new IllegalArgumentException("limits cannot be null");
+			}
+			this.limits = limits;
+			return this;
+		}
+
+		/**
+		 * @param metrics where the time of each exchange, body decompression
+		 *            and charset decoding is recorded, or null
+		 */
+		public Builder withMetrics(final CrawlMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * @param hostDelayMilliseconds least time between the starts of two
+		 *            requests to the same host, kept for the requests that wait
+		 *            for an in-flight slot
+		 */
+		public Builder withHostDelay(final long hostDelayMilliseconds) {
+			if (hostDelayMilliseconds < 0) {
+				throw new IllegalArgumentException("hostDelayMilliseconds cannot be negative");
+			}
+			this.hostDelayMilliseconds = hostDelayMilliseconds;
+			return this;
+		}
+
+		public AsyncWebDownloader build() {
+			return new AsyncWebDownloader(this);
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.ibm.icu.text.CharsetDetector;
+import com.ibm.icu.text.CharsetMatch;
+
+/**
+ * Finds out the charset of a response body. In order it trusts a byte order
+ * mark, the charset parameter of the Content-Type header and a
+ * <code>&lt;meta&gt;</code> charset declaration near the top of the document.
+ * Only when none of them is usable it runs ICU detection, and then only over a
+ * bounded prefix of the body.
+ */
+final class CharsetResolver {
+
+	static final int META_SCAN_LIMIT = 4096;
+	static final int DETECTION_LIMIT = 8192;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	private CharsetResolver() {
+	}
+
+	static Charset resolve(final String contentType, final byte[] bytes, final int length) {
+		Charset charset = fromByteOrderMark(bytes, length);
+		if (charset == null) {
+			charset = fromContentType(contentType);
+		}
+		if (charset == null) {
+			charset = fromMeta(bytes, length);
+		}
+		if (charset == null) {
+			charset = detect(bytes, length);
+		}
+		return charset;
+	}
+
+	/**
+	 * Decodes the body in a single pass, skipping a UTF-8 byte order mark.
+	 */
+	static String decode(final byte[] bytes, final int length, final Charset charset) {
+		int offset = 0;
+		if (UTF_8.equals(charset) && hasUtf8ByteOrderMark(bytes, length)) {
+			offset = 3;
+		}
+		return new String(bytes, offset, length - offset, charset);
+	}
+
+	static Charset fromByteOrderMark(final byte[] bytes, final int length) {
+		if (hasUtf8ByteOrderMark(bytes, length)) {
+			return UTF_8;
+		}
+		if ((length >= 2) && (((bytes[0] == (byte) 0xFE) && (bytes[1] == (byte) 0xFF))
+				|| ((bytes[0] == (byte) 0xFF) && (bytes[1] == (byte) 0xFE)))) {
+			return charsetFor("UTF-16");
+		}
+		return null;
+	}
+
+	static Charset fromContentType(final String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		int index = contentType.toLowerCase(Locale.ENGLISH).indexOf("charset");
+		if (index < 0) {
+			return null;
+		}
+		return charsetAfter(contentType, index + "charset".length(), contentType.length());
+	}
+
+	/**
+	 * Looks for <code>&lt;meta charset=...&gt;</code> or
+	 * <code>&lt;meta http-equiv="Content-Type" content="...; charset=..."&gt;</code>
+	 * in the first {@link #META_SCAN_LIMIT} bytes. The bytes are read as ASCII,
+	 * which is what every encoding a document can declare this way agrees on.
+	 */
+	static Charset fromMeta(final byte[] bytes, final int length) {
+		final int limit = Math.min(length, META_SCAN_LIMIT);
+		int i = 0;
+		while ((i = indexOfIgnoreCase(bytes, "<meta", i, limit)) >= 0) {
+			i += "<meta".length();
+			int end = indexOf(bytes, (byte) '>', i, limit);
+			if (end < 0) {
+				end = limit;
+			}
+			int charsetIndex = indexOfIgnoreCase(bytes, "charset", i, end);
+			if (charsetIndex >= 0) {
+				String declaration = new String(bytes, charsetIndex, end - charsetIndex, ISO_8859_1);
+				Charset charset = charsetAfter(declaration, "charset".length(), declaration.length());
+				if (charset != null) {
+					// a document that could be read as ASCII can't really be UTF-16
+					return charset.name().startsWith("UTF-16") ? UTF_8 : charset;
+				}
+			}
+			i = end;
+		}
+		return null;
+	}
+
+	static Charset detect(final byte[] bytes, final int length) {
+		CharsetDetector detector = new CharsetDetector();
+		if ((length == bytes.length) && (length <= DETECTION_LIMIT)) {
+			detector.setText(bytes);
+		} else {
+			detector.setText(Arrays.copyOf(bytes, Math.min(length, DETECTION_LIMIT)));
+		}
+		CharsetMatch match = detector.detect();
+		if (match == null) {
+			return UTF_8;
+		}
+		Charset charset = charsetFor(match.getName());
+		return charset == null ? UTF_8 : charset;
+	}
+
+	// parses "[spaces]=[spaces][quote]name" starting at index
+	private static Charset charsetAfter(final String value, int index, final int end) {
+		while ((index < end) && Character.isWhitespace(value.charAt(index))) {
+			index++;
+		}
+		if ((index >= end) || (value.charAt(index) != '=')) {
+			return null;
+		}
+		index++;
+		while ((index < end)
+				&& (Character.isWhitespace(value.charAt(index)) || (value.charAt(index) == '"') || (value
+						.charAt(index) == '\''))) {
+			index++;
+		}
+		int nameEnd = index;
+		while ((nameEnd < end) && isCharsetNameChar(value.charAt(nameEnd))) {
+			nameEnd++;
+		}
+		return nameEnd > index ? charsetFor(value.substring(index, nameEnd)) : null;
+	}
+
+	private static boolean isCharsetNameChar(final char c) {
+		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '-')
+				|| (c == '_') || (c == '.') || (c == ':');
+	}
+
+	private static Charset charsetFor(final String name) {
+		try {
+			return Charset.isSupported(name) ? Charset.forName(name) : null;
+		} catch (IllegalCharsetNameException e) {
+			return null;
+		}
+	}
+
+	private static boolean hasUtf8ByteOrderMark(final byte[] bytes, final int length) {
+		return (length >= 3) && (bytes[0] == (byte) 0xEF) && (bytes[1] == (byte) 0xBB) && (bytes[2] == (byte) 0xBF);
+	}
+
+	private static int indexOf(final byte[] bytes, final byte b, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// target must be lower case ASCII
+	private static int indexOfIgnoreCase(final byte[] bytes, final String target, final int from, final int to) {
+		final int last = to - target.length();
+		outer: for (int i = from; i <= last; i++) {
+			for (int j = 0; j < target.length(); j++) {
+				int b = bytes[i + j];
+				if ((b >= 'A') && (b <= 'Z')) {
+					b += 'a' - 'A';
+				}
+				if (b != target.charAt(j)) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,112 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import net.vidageek.crawler.exception.CrawlerException;
+
+/**
+ * Content codings the downloaders ask for and undo while the body is read.
+ */
+final class ContentDecoding {
+
+	/**
+	 * Value sent as Accept-Encoding.
+	 */
+	static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private ContentDecoding() {
+	}
+
+	/**
+	 * True when every coding listed is identity, so the body is sent as is.
+	 */
+	static boolean isIdentity(final String contentEncoding) {
+		if (contentEncoding == null) {
+			return true;
+		}
+		for (String coding : contentEncoding.split(",")) {
+			if ((coding.trim().length() != 0) && !"identity".equalsIgnoreCase(coding.trim())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Wraps the body in a stream that decodes it. The codings of a list such
+	 * as "gzip, identity" were applied in order, so they are undone from the
+	 * last to the first. Closing the returned stream closes the body.
+	 */
+	static InputStream decode(final String contentEncoding, final InputStream body) throws IOException {
+		if (isIdentity(contentEncoding)) {
+			return body;
+		}
+		String[] codings = contentEncoding.split(",");
+		for (String coding : codings) {
+			if (!supports(coding)) {
+				throw new CrawlerException("Unsupported Content-Encoding: " + contentEncoding);
+			}
+		}
+		InputStream decoded = body;
+		for (int i = codings.length - 1; i >= 0; i--) {
+			decoded = undo(codings[i].trim().toLowerCase(Locale.ENGLISH), decoded);
+		}
+		return decoded;
+	}
+
+	private static boolean supports(final String coding) {
+		String name = coding.trim().toLowerCase(Locale.ENGLISH);
+		return (name.length() == 0) || "identity".equals(name) || "gzip".equals(name) || "x-gzip".equals(name)
+				|| "deflate".equals(name);
+	}
+
+	private static InputStream undo(final String coding, final InputStream body) throws IOException {
+		if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+			return new GZIPInputStream(body, BUFFER_SIZE);
+		}
+		if ("deflate".equals(coding)) {
+			return inflate(body);
+		}
+		return body;
+	}
+
+	/**
+	 * "deflate" should be zlib wrapped, but many servers send raw deflate
+	 * data. The first two bytes tell them apart.
+	 */
+	private static InputStream inflate(final InputStream body) throws IOException {
+		PushbackInputStream input = new PushbackInputStream(body, 2);
+		byte[] header = new byte[2];
+		int read = 0;
+		while (read < 2) {
+			int n = input.read(header, read, 2 - read);
+			if (n == -1) {
+				break;
+			}
+			read += n;
+		}
+		input.unread(header, 0, read);
+		boolean zlib = (read == 2) && ((header[0] & 0x0f) == 8)
+				&& ((((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0);
+		final Inflater inflater = new Inflater(!zlib);
+		return new InflaterInputStream(input, inflater, BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inflater.end();
+				}
+			}
+		};
+	}
+
+}
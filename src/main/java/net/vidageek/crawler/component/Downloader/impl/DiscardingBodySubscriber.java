@@ -0,0 +1,58 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Reads and drops the body of a response nobody wants, so a short one leaves
+ * its connection open for the next request, like {@link WebDownloader} drains
+ * it. Once the body goes over maxBytes the response is cancelled, which closes
+ * the connection instead of downloading the rest. Either way the body
+ * completes normally, with null.
+ */
+final class DiscardingBodySubscriber implements BodySubscriber<byte[]> {
+
+	private final long maxBytes;
+	private final CompletableFuture<byte[]> body = new CompletableFuture<byte[]>();
+	private Flow.Subscription subscription;
+	private long discarded;
+
+	DiscardingBodySubscriber(final long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public CompletionStage<byte[]> getBody() {
+		return body;
+	}
+
+	public void onSubscribe(final Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	public void onNext(final List<ByteBuffer> buffers) {
+		if (body.isDone()) {
+			return;
+		}
+		for (ByteBuffer buffer : buffers) {
+			discarded += buffer.remaining();
+		}
+		if (discarded > maxBytes) {
+			subscription.cancel();
+			body.complete(null);
+		}
+	}
+
+	public void onError(final Throwable throwable) {
+		body.completeExceptionally(throwable);
+	}
+
+	public void onComplete() {
+		body.complete(null);
+	}
+
+}
@@ -0,0 +1,25 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.Status;
+
+/**
+ * Thrown while reading a body that went over a {@link net.vidageek.crawler.component.Downloader.FetchLimits}
+ * limit. The downloaders turn it into an error page with {@link #status()}.
+ */
+final class FetchLimitExceededException extends CrawlerException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Status status;
+
+	FetchLimitExceededException(final String message, final Status status) {
+		super(message);
+		this.status = status;
+	}
+
+	Status status() {
+		return status;
+	}
+
+}
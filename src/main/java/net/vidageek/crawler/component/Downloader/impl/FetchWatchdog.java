@@ -0,0 +1,46 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aborts fetches that reach their deadline while blocked in the network, so a
+ * server that sends a byte just before every read timeout can't hold a
+ * worker. One daemon thread serves every downloader. The in-flight limiter
+ * also starts the requests it holds back for a host delay on it, and sitemap
+ * bodies time out their reads on it.
+ */
+final public class FetchWatchdog {
+
+	private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+	private FetchWatchdog() {
+	}
+
+	private static ScheduledThreadPoolExecutor createTimer() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+				Thread.ofPlatform().name("crawler-fetch-watchdog").daemon().factory());
+		// most fetches finish in time: don't keep their cancelled tasks around
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+
+	/**
+	 * Runs abort at the deadline unless the returned future is cancelled
+	 * first. Returns null when there is no deadline.
+	 */
+	public static ScheduledFuture<?> schedule(final Runnable abort, final long deadline) {
+		if (deadline == Long.MAX_VALUE) {
+			return null;
+		}
+		return TIMER.schedule(abort, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+
+	public static void cancel(final ScheduledFuture<?> watchdog) {
+		if (watchdog != null) {
+			watchdog.cancel(false);
+		}
+	}
+
+}
@@ -0,0 +1,231 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many asynchronous requests are in flight, in total and per host,
+ * without blocking anyone. Requests over a cap wait in a FIFO of their host
+ * and are started when a slot is released, once the host delay has passed
+ * since the previous start on that host; hosts with waiting requests take
+ * turns for the global slots.
+ *
+ * Submitting never blocks, so whoever takes requests from a queue calls
+ * {@link #awaitCapacity(long, TimeUnit)} first: that keeps the requests that
+ * can't start yet in the queue rather than here.
+ */
+final class InFlightLimiter {
+
+	private final int maxInFlight;
+	private final int maxInFlightPerHost;
+	private final long hostDelayNanoseconds;
+
+	private final Map<String, Host> hosts = new HashMap<String, Host>();
+	// hosts with waiting requests that are under their own cap
+	private final ArrayDeque<Host> ready = new ArrayDeque<Host>();
+	// hosts with nothing in flight or waiting, kept until their delay has passed
+	private final ArrayDeque<Host> idle = new ArrayDeque<Host>();
+	private int inFlight;
+	private int waiting;
+
+	InFlightLimiter(final int maxInFlight, final int maxInFlightPerHost) {
+		this(maxInFlight, maxInFlightPerHost, 0);
+	}
+
+	/**
+	 * @param hostDelayMilliseconds least time between the starts of two
+	 *            requests to the same host
+	 */
+	InFlightLimiter(final int maxInFlight, final int maxInFlightPerHost, final long hostDelayMilliseconds) {
+		if ((maxInFlight <= 0) || (maxInFlightPerHost <= 0)) {
+			throw new IllegalArgumentException("in-flight limits must be positive");
+		}
+		if (hostDelayMilliseconds < 0) {
+			throw new IllegalArgumentException("hostDelayMilliseconds cannot be negative");
+		}
+		this.maxInFlight = maxInFlight;
+		this.maxInFlightPerHost = maxInFlightPerHost;
+		hostDelayNanoseconds = TimeUnit.MILLISECONDS.toNanos(hostDelayMilliseconds);
+	}
+
+	/**
+	 * Waits until fewer than maxInFlight requests are in flight or waiting,
+	 * so a request submitted now does not queue behind the cap. Returns false
+	 * if the timeout elapsed first.
+	 */
+	synchronized boolean awaitCapacity(final long timeout, final TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		final long deadline = System.nanoTime() + remaining;
+		while ((inFlight + waiting) >= maxInFlight) {
+			if (remaining <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			remaining = deadline - System.nanoTime();
+		}
+		return true;
+	}
+
+	/**
+	 * Starts request now or as soon as the caps allow it.
+	 */
+	<T> CompletableFuture<T> submit(final String host, final Supplier<CompletableFuture<T>> request) {
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		final Runnable start = () -> {
+			CompletableFuture<T> future;
+			try {
+				future = request.get();
+			} catch (RuntimeException e) {
+				future = CompletableFuture.failedFuture(e);
+			}
+			future.whenComplete((value, error) -> {
+				release(host);
+				if (error != null) {
+					result.completeExceptionally(error);
+				} else {
+					result.complete(value);
+				}
+			});
+		};
+
+		List<Runnable> toStart;
+		synchronized (this) {
+			sweep(System.nanoTime());
+			Host h = hosts.computeIfAbsent(host, k -> new Host(k, System.nanoTime()));
+			h.waiting.add(start);
+			waiting++;
+			schedule(h);
+			toStart = drain();
+		}
+		startAll(toStart);
+		return result;
+	}
+
+	synchronized int inFlight() {
+		return inFlight;
+	}
+
+	synchronized int waiting() {
+		return waiting;
+	}
+
+	// hosts remembered, idle ones included
+	synchronized int numberOfHosts() {
+		return hosts.size();
+	}
+
+	private void release(final String host) {
+		List<Runnable> toStart;
+		synchronized (this) {
+			inFlight--;
+			Host h = hosts.get(host);
+			h.inFlight--;
+			schedule(h);
+			final long now = System.nanoTime();
+			if (h.isIdle() && !h.inIdle) {
+				if (h.nextStart - now > 0) {
+					// forgetting it now would let its next request skip the delay
+					h.inIdle = true;
+					idle.add(h);
+				} else {
+					hosts.remove(host);
+				}
+			}
+			sweep(now);
+			toStart = drain();
+			notifyAll();
+		}
+		startAll(toStart);
+	}
+
+	// a host whose delay has not passed yet is scheduled again when it has
+	private void delayed(final Host host) {
+		List<Runnable> toStart;
+		synchronized (this) {
+			host.delayed = false;
+			schedule(host);
+			toStart = drain();
+		}
+		startAll(toStart);
+	}
+
+	// must hold the lock; forgets the idle hosts whose delay has passed
+	private void sweep(final long now) {
+		while (!idle.isEmpty()) {
+			final Host host = idle.peek();
+			if (host.isIdle() && (host.nextStart - now > 0)) {
+				return;
+			}
+			idle.poll();
+			host.inIdle = false;
+			if (host.isIdle()) {
+				hosts.remove(host.name);
+			}
+		}
+	}
+
+	// must hold the lock
+	private void schedule(final Host host) {
+		if (!host.queued && !host.delayed && !host.waiting.isEmpty() && (host.inFlight < maxInFlightPerHost)) {
+			host.queued = true;
+			ready.add(host);
+		}
+	}
+
+	// must hold the lock; returns the requests to start once it is released
+	private List<Runnable> drain() {
+		List<Runnable> toStart = new ArrayList<Runnable>();
+		final long now = System.nanoTime();
+		while ((inFlight < maxInFlight) && !ready.isEmpty()) {
+			final Host host = ready.poll();
+			host.queued = false;
+			if ((hostDelayNanoseconds > 0) && (host.nextStart - now > 0)) {
+				host.delayed = true;
+				FetchWatchdog.schedule(() -> delayed(host), host.nextStart);
+				continue;
+			}
+			toStart.add(host.waiting.poll());
+			waiting--;
+			host.inFlight++;
+			inFlight++;
+			host.nextStart = now + hostDelayNanoseconds;
+			schedule(host);
+		}
+		return toStart;
+	}
+
+	private static void startAll(final List<Runnable> toStart) {
+		for (Runnable start : toStart) {
+			start.run();
+		}
+	}
+
+	private static final class Host {
+
+		private final String name;
+		private final ArrayDeque<Runnable> waiting = new ArrayDeque<Runnable>();
+		private int inFlight;
+		private boolean queued;
+		// waiting for nextStart, the System.nanoTime() its next request may start at
+		private boolean delayed;
+		private long nextStart;
+		// in the idle FIFO
+		private boolean inIdle;
+
+		private Host(final String name, final long nextStart) {
+			this.name = name;
+			this.nextStart = nextStart;
+		}
+
+		private boolean isIdle() {
+			return (inFlight == 0) && waiting.isEmpty();
+		}
+	}
+
+}
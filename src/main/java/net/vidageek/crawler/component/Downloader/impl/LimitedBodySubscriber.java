@@ -0,0 +1,71 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import net.vidageek.crawler.http.Status;
+
+/**
+ * Collects a body into a byte array, like
+ * {@link java.net.http.HttpResponse.BodySubscribers#ofByteArray()}, but
+ * cancels the response as soon as it goes over maxBytes. The body then
+ * completes with a {@link FetchLimitExceededException}.
+ */
+final class LimitedBodySubscriber implements BodySubscriber<byte[]> {
+
+	private final long maxBytes;
+	private final CompletableFuture<byte[]> body = new CompletableFuture<byte[]>();
+	private Flow.Subscription subscription;
+	private byte[] bytes = new byte[8192];
+	private int length;
+
+	/**
+	 * @param maxBytes 0 for no limit
+	 */
+	LimitedBodySubscriber(final long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public CompletionStage<byte[]> getBody() {
+		return body;
+	}
+
+	public void onSubscribe(final Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	public void onNext(final List<ByteBuffer> buffers) {
+		if (body.isDone()) {
+			return;
+		}
+		for (ByteBuffer buffer : buffers) {
+			int remaining = buffer.remaining();
+			if ((maxBytes > 0) && ((long) length + remaining > maxBytes)) {
+				subscription.cancel();
+				body.completeExceptionally(new FetchLimitExceededException("Body is bigger than " + maxBytes
+						+ " bytes", Status.TRUNCATED));
+				return;
+			}
+			if (length + remaining > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + remaining));
+			}
+			buffer.get(bytes, length, remaining);
+			length += remaining;
+		}
+	}
+
+	public void onError(final Throwable throwable) {
+		body.completeExceptionally(throwable);
+	}
+
+	public void onComplete() {
+		body.complete(length == bytes.length ? bytes : Arrays.copyOf(bytes, length));
+	}
+
+}
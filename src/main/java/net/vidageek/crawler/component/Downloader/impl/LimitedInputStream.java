@@ -0,0 +1,79 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.vidageek.crawler.http.Status;
+
+/**
+ * Fails the read that goes over a maximum number of bytes, or that starts
+ * after a deadline, with a {@link FetchLimitExceededException}.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+	private final long maxBytes;
+	private final long deadline;
+	private long count;
+
+	/**
+	 * @param maxBytes 0 for no limit
+	 * @param deadline in {@link System#nanoTime()} terms, Long.MAX_VALUE for none
+	 */
+	LimitedInputStream(final InputStream in, final long maxBytes, final long deadline) {
+		super(in);
+		this.maxBytes = maxBytes;
+		this.deadline = deadline;
+	}
+
+	static boolean passed(final long deadline) {
+		return (deadline != Long.MAX_VALUE) && (System.nanoTime() - deadline >= 0);
+	}
+
+	@Override
+	public int read() throws IOException {
+		checkDeadline();
+		int b = in.read();
+		if (b != -1) {
+			count(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		checkDeadline();
+		int read = in.read(b, off, len);
+		if (read > 0) {
+			count(read);
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		checkDeadline();
+		long skipped = in.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void checkDeadline() {
+		if (passed(deadline)) {
+			throw new FetchLimitExceededException("Fetch deadline exceeded", Status.ABORTED);
+		}
+	}
+
+	private void count(final long bytes) {
+		count += bytes;
+		if ((maxBytes > 0) && (count > maxBytes)) {
+			throw new FetchLimitExceededException("Body is bigger than " + maxBytes + " bytes", Status.TRUNCATED);
+		}
+	}
+
+}
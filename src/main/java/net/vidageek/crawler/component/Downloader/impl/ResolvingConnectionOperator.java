@@ -0,0 +1,100 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+import net.vidageek.crawler.component.Dns.DnsResolver;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.scheme.LayeredSocketFactory;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SocketFactory;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Opens connections like {@link DefaultClientConnectionOperator} does, trying
+ * each address of the host in turn, but asks a {@link DnsResolver} for the
+ * addresses instead of the JVM. This version of HttpClient has no other way
+ * to replace the resolver.
+ */
+final class ResolvingConnectionOperator extends DefaultClientConnectionOperator {
+
+	private final DnsResolver resolver;
+
+	ResolvingConnectionOperator(final SchemeRegistry schemes, final DnsResolver resolver) {
+		super(schemes);
+		this.resolver = resolver;
+	}
+
+	@Override
+	public void openConnection(final OperatedClientConnection conn, final HttpHost target, final InetAddress local,
+			final HttpContext context, final HttpParams params) throws IOException {
+		if ((conn == null) || (target == null) || (params == null)) {
+			throw new IllegalArgumentException("connection, target and parameters cannot be null");
+		}
+		if (conn.isOpen()) {
+			throw new IllegalArgumentException("Connection must not be open.");
+		}
+		final Scheme scheme = schemeRegistry.getScheme(target.getSchemeName());
+		SocketFactory socketFactory = scheme.getSocketFactory();
+		final SocketFactory plainFactory;
+		final LayeredSocketFactory layeredFactory;
+		if (socketFactory instanceof LayeredSocketFactory) {
+			plainFactory = PlainSocketFactory.getSocketFactory();
+			layeredFactory = (LayeredSocketFactory) socketFactory;
+		} else {
+			plainFactory = socketFactory;
+			layeredFactory = null;
+		}
+		final int port = scheme.resolvePort(target.getPort());
+
+		final InetAddress[] addresses = resolver.resolve(target.getHostName());
+		if (addresses.length == 0) {
+			throw new UnknownHostException(target.getHostName());
+		}
+		for (int i = 0; i < addresses.length; i++) {
+			final boolean last = i == addresses.length - 1;
+			Socket socket = plainFactory.createSocket();
+			conn.opening(socket, target);
+			try {
+				Socket connected = plainFactory.connectSocket(socket, addresses[i].getHostAddress(), port, local, 0,
+						params);
+				if (socket != connected) {
+					socket = connected;
+					conn.opening(socket, target);
+				}
+				if (layeredFactory != null) {
+					// the layer (TLS) is set up with the name, not the address
+					Socket layered = layeredFactory.createSocket(socket, target.getHostName(), port, true);
+					if (socket != layered) {
+						socket = layered;
+						conn.opening(socket, target);
+					}
+					socketFactory = layeredFactory;
+				}
+				prepareSocket(socket, context, params);
+				conn.openCompleted(socketFactory.isSecure(socket), params);
+				return;
+			} catch (ConnectException e) {
+				if (last) {
+					throw new HttpHostConnectException(target, e);
+				}
+			} catch (ConnectTimeoutException e) {
+				if (last) {
+					throw e;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import net.vidageek.crawler.exception.CrawlerException;
+
+/**
+ * Bytes of a response body. The backing array may be larger than the body,
+ * so only the first {@link #length()} bytes are valid.
+ */
+final class ResponseBody {
+
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	// a Content-Length is only a claim: never allocate more than this before the bytes arrive
+	static final int MAX_INITIAL_BUFFER_SIZE = 1024 * 1024;
+
+	private final byte[] bytes;
+	private final int length;
+
+	ResponseBody(final byte[] bytes, final int length) {
+		this.bytes = bytes;
+		this.length = length;
+	}
+
+	/**
+	 * Reads the whole stream in bulk. When the Content-Length is known
+	 * (non-negative) the buffer is allocated with exactly that size, up to
+	 * {@link #MAX_INITIAL_BUFFER_SIZE}, and grows towards it as bytes arrive,
+	 * so a body that honours its header ends in an exactly sized array while a
+	 * forged header cannot force a huge allocation.
+	 */
+	static ResponseBody read(final InputStream inputStream, final long contentLength) {
+		final boolean sized = (contentLength >= 0) && (contentLength <= MAX_ARRAY_SIZE);
+		byte[] bytes = new byte[sized ? (int) Math.min(contentLength, MAX_INITIAL_BUFFER_SIZE) : DEFAULT_BUFFER_SIZE];
+		int length = 0;
+		try {
+			for (;;) {
+				if (length == bytes.length) {
+					// a full pre-sized buffer is the common case: probe for the
+					// end of the stream before paying for a resize
+					if (sized && (length == contentLength)) {
+						int b = inputStream.read();
+						if (b == -1) {
+							break;
+						}
+						bytes = grow(bytes, -1);
+						bytes[length++] = (byte) b;
+						continue;
+					}
+					bytes = grow(bytes, sized ? contentLength : -1);
+				}
+				int read = inputStream.read(bytes, length, bytes.length - length);
+				if (read == -1) {
+					break;
+				}
+				length += read;
+			}
+		} catch (IOException e) {
+			throw new CrawlerException("There was a problem reading stream.", e);
+		}
+		return new ResponseBody(bytes, length);
+	}
+
+	/**
+	 * Doubles the buffer, but not past the expected length when there is one
+	 * (-1 when there is not).
+	 */
+	private static byte[] grow(final byte[] bytes, final long expectedLength) {
+		if (bytes.length >= MAX_ARRAY_SIZE) {
+			throw new CrawlerException("Response body is too large to be read into memory.");
+		}
+		long newLength = Math.max((long) bytes.length * 2, DEFAULT_BUFFER_SIZE);
+		if (expectedLength > bytes.length) {
+			newLength = Math.min(newLength, expectedLength);
+		}
+		return Arrays.copyOf(bytes, (int) Math.min(newLength, MAX_ARRAY_SIZE));
+	}
+
+	byte[] bytes() {
+		return bytes;
+	}
+
+	int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the body as an exactly sized array, copying only if the backing
+	 * array is larger than the body.
+	 */
+	byte[] toByteArray() {
+		return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+	}
+
+}
@@ -3,33 +3,55 @@
  */
 package net.vidageek.crawler.component.Downloader.impl;
 
-import com.ibm.icu.text.CharsetDetector;
-import com.ibm.icu.text.CharsetMatch;
+import net.vidageek.crawler.component.Dns.DnsResolver;
 import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.FetchLimits;
+import net.vidageek.crawler.component.Downloader.MeteredDownloader;
+import net.vidageek.crawler.component.Downloader.TransferStatistics;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Metrics.CrawlStage;
+import net.vidageek.crawler.component.ValidatorStore.ValidatorStore;
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.http.Status;
 import net.vidageek.crawler.http.Cookie;
+import net.vidageek.crawler.http.Validators;
 import net.vidageek.crawler.exception.CrawlerException;
 import net.vidageek.crawler.http.page.DefaultPageFactory;
 import net.vidageek.crawler.http.page.PageFactory;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.CookieStore;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.SingleClientConnManager;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * @author jonasabreu
@@ -44,7 +66,17 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * 是常量，访问时不做修改，同样支持多线程操作。故WebDownloader这个类完全支持
  * 多线程操作，若干个下载线程同时使用这个WebDownloader来下载网页
  */
-public class WebDownloader implements Downloader {
+public class WebDownloader implements Downloader, MeteredDownloader {
+
+    /**
+     * encode中%XX使用的十六进制数字，和URLEncoder一样使用大写
+     */
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * 被拒绝类型、错误和304的响应最多读取这么多字节来把连接还给连接池，更长的内容直接放弃连接
+     */
+	static final int MAX_DRAINED_BYTES = 64 * 1024;
 
     /**
      * 声明一个记录器Logger用来记录cookie创建，请求url request的操作
@@ -67,6 +99,38 @@ public class WebDownloader implements Downloader {
      */
 	private final PageFactory pageFactory;
 
+    /**
+     * 所有下载线程共享的http客户端，使用线程安全的连接池，可以复用连接（keep-alive），
+     * 为null的时候每次请求都新建一个客户端
+     */
+	private final HttpClient sharedClient;
+
+    /**
+     * 保存每个url上次响应的ETag和Last-Modified，下次请求时作为If-None-Match和
+     * If-Modified-Since发送（条件GET），为null的时候不发送条件请求
+     */
+	private final ValidatorStore validatorStore;
+
+    /**
+     * 记录下载的网页内容在网络上传输的字节数和解压后的字节数
+     */
+	private final TransferStatistics statistics = new TransferStatistics();
+
+    /**
+     * 连接和读取的超时时间，网页内容的最大字节数和每次下载的总时间限制
+     */
+	private final FetchLimits limits;
+
+    /**
+     * 每次请求新建客户端时用来解析域名，为null时使用JVM的解析
+     */
+	private final DnsResolver dnsResolver;
+
+    /**
+     * 记录每次请求、读取内容和确定编码的时间，为null时不记录
+     */
+	private final CrawlMetrics metrics;
+
     /**
      * WebDownloader的最简单的构造函数，需要一个保存有支持网页类型的List类型的列表，
      * 同时新生成一个空的cookie的列表调用有三个参数的构造函数
@@ -85,10 +149,97 @@ public class WebDownloader implements Downloader {
 	public WebDownloader(final List<String> mimeTypesToInclude,
 						 final List<Cookie> cookies,
 						 final PageFactory pageFactory) {
-		
-		this.cookies = new ConcurrentLinkedQueue<Cookie>(cookies);
-		this.mimeTypesToInclude = new ConcurrentLinkedQueue<String>(mimeTypesToInclude);
-		this.pageFactory = pageFactory;
+		this(builder().withMimeTypes(mimeTypesToInclude).withCookies(cookies).withPageFactory(pageFactory));
+	}
+
+    /**
+     * 其他可选的设置（共享客户端、条件GET、超时和限制、域名解析、时间统计）都通过Builder给出
+     */
+	private WebDownloader(final Builder builder) {
+		this.cookies = new ConcurrentLinkedQueue<Cookie>(builder.cookies);
+		this.mimeTypesToInclude = new ConcurrentLinkedQueue<String>(builder.mimeTypesToInclude);
+		this.pageFactory = builder.pageFactory;
+		this.sharedClient = builder.sharedClient;
+		this.validatorStore = builder.validatorStore;
+		this.limits = builder.limits;
+		this.dnsResolver = builder.dnsResolver;
+		this.metrics = builder.metrics;
+	}
+
+    /**
+     * 返回一个Builder，默认只支持“text/html”类型的网页内容，没有cookie，每次请求新建客户端
+     */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+    /**
+     * 使用连接池的WebDownloader，所有下载线程共享同一个http客户端，只支持“text/html”类型的网页内容
+     * @param maxConnections 连接池中的最大连接数
+     * @param maxConnectionsPerRoute 同一个主机（route）的最大连接数
+     */
+	public static WebDownloader pooled(final int maxConnections, final int maxConnectionsPerRoute) {
+		return builder().withSharedClient(createPooledClient(maxConnections, maxConnectionsPerRoute)).build();
+	}
+
+    /**
+     * 创建一个线程安全的、带连接池的http客户端，支持http和https
+     * @param maxConnections 连接池中的最大连接数
+     * @param maxConnectionsPerRoute 同一个主机（route）的最大连接数
+     */
+	public static DefaultHttpClient createPooledClient(final int maxConnections, final int maxConnectionsPerRoute) {
+		return createPooledClient(maxConnections, maxConnectionsPerRoute, null);
+	}
+
+    /**
+     * 创建一个线程安全的、带连接池的http客户端，新建连接时用dnsResolver解析域名
+     * @param maxConnections 连接池中的最大连接数
+     * @param maxConnectionsPerRoute 同一个主机（route）的最大连接数
+     * @param dnsResolver 解析域名，为null时使用JVM的解析
+     */
+	public static DefaultHttpClient createPooledClient(final int maxConnections, final int maxConnectionsPerRoute,
+													   final DnsResolver dnsResolver) {
+		if ((maxConnections <= 0) || (maxConnectionsPerRoute <= 0)) {
+			throw new IllegalArgumentException("connection limits must be positive");
+		}
+		HttpParams params = new BasicHttpParams();
+		ConnManagerParams.setMaxTotalConnections(params, maxConnections);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(maxConnectionsPerRoute));
+		params.setIntParameter("http.socket.timeout", 15000);
+
+		SchemeRegistry schemeRegistry = new SchemeRegistry();
+		schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+		if (dnsResolver == null) {
+			return new DefaultHttpClient(new ThreadSafeClientConnManager(params, schemeRegistry), params);
+		}
+		return new DefaultHttpClient(new ThreadSafeClientConnManager(params, schemeRegistry) {
+			@Override
+			protected ClientConnectionOperator createConnectionOperator(final SchemeRegistry schemes) {
+				return new ResolvingConnectionOperator(schemes, dnsResolver);
+			}
+		}, params);
+	}
+
+    /**
+     * 每次请求新建的客户端，新建连接时用dnsResolver解析域名
+     */
+	private static DefaultHttpClient createClient(final DnsResolver dnsResolver) {
+		return new DefaultHttpClient() {
+			@Override
+			protected ClientConnectionManager createClientConnectionManager() {
+				SchemeRegistry schemeRegistry = new SchemeRegistry();
+				schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+				schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+				return new SingleClientConnManager(getParams(), schemeRegistry) {
+					@Override
+					protected ClientConnectionOperator createConnectionOperator(final SchemeRegistry schemes) {
+						return new ResolvingConnectionOperator(schemes, dnsResolver);
+					}
+				};
+			}
+		};
 	}
 
     /**
@@ -105,15 +256,33 @@ public class WebDownloader implements Downloader {
      * @return 用Page接口指向返回的一种页面对象
      */
 	public Page get(final String url) {
+        /**
+         * 共享客户端模式下直接使用连接池中的连接
+         */
+		if (sharedClient != null) {
+			return get(sharedClient, url);
+		}
         /**
          * 创建一个http客户端
          */
-		DefaultHttpClient client = new DefaultHttpClient();
+		DefaultHttpClient client = dnsResolver == null ? new DefaultHttpClient() : createClient(dnsResolver);
+		addCookies(client.getCookieStore());
         /**
-         * 将cookies列表里面保存的每个cookie都和当前的这个url同时发送给服务器
-         * 这是一种最简单的方法，可以考虑判断cookie是否是当前url路径下的以减少访问服务器
-         * 的次数，但是无法减少循环次数即计算量
+         *调用两个参数的get方法，完成后关闭这个客户端的连接
          */
+		try {
+			return get(client, url);
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+	}
+
+    /**
+     * 将cookies列表里面保存的每个cookie都添加到客户端中，和url同时发送给服务器
+     * 这是一种最简单的方法，可以考虑判断cookie是否是当前url路径下的以减少访问服务器
+     * 的次数，但是无法减少循环次数即计算量
+     */
+	private void addCookies(final CookieStore store) {
 		for (Cookie cookie : cookies) {
             /**
              * 保存当前cookie的name值
@@ -131,16 +300,33 @@ public class WebDownloader implements Downloader {
 			BasicClientCookie clientCookie = new BasicClientCookie(name, value);
 			clientCookie.setPath(cookie.path());
 			clientCookie.setDomain(cookie.domain());
-			client.getCookieStore().addCookie(clientCookie);
+			store.addCookie(clientCookie);
+		}
+	}
+
+    /**
+     * 共享客户端的每次请求使用自己的cookie存储，只包含给定的cookies。服务器设置的cookie
+     * 不会留在共享客户端中带到下一次请求，和每次新建客户端时一样，也不用所有线程共用一个cookie存储
+     */
+	private HttpContext requestContext() {
+		CookieStore store = new BasicCookieStore();
+		addCookies(store);
+		HttpContext context = new BasicHttpContext();
+		context.setAttribute(ClientContext.COOKIE_STORE, store);
+		return context;
+	}
+
+	public TransferStatistics transferStatistics() {
+		return statistics;
+	}
+
+    /**
+     * 关闭共享客户端的连接池，之后这个WebDownloader不能再使用共享客户端下载
+     */
+	public void shutdown() {
+		if (sharedClient != null) {
+			sharedClient.getConnectionManager().shutdown();
 		}
-        /**
-         *设置socket的超时时间15s
-         */
-		client.getParams().setIntParameter("http.socket.timeout", 15000);
-        /**
-         *调用两个参数的get方法
-         */
-		return get(client, url);
 	}
 
 	public Page get(final HttpClient client, final String url) {
@@ -154,55 +340,147 @@ public class WebDownloader implements Downloader {
              *用get方式访问服务器，采用经过utf-8编码后的url
              */
 			HttpGet method = new HttpGet(encodedUrl);
+            /**
+             *上次下载这个url时记录了ETag或者Last-Modified的话，发送条件GET，页面没有变化时
+             * 服务器只返回304，不返回内容
+             */
+			addValidators(method, url);
+            /**
+             *请求服务器压缩传输网页内容，读取时再解压
+             */
+			method.addHeader("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING);
+            /**
+             *这次请求的连接和读取超时，覆盖客户端的默认设置
+             */
+			method.getParams().setIntParameter("http.connection.timeout", limits.connectTimeoutMilliseconds());
+			method.getParams().setIntParameter("http.socket.timeout", limits.readTimeoutMilliseconds());
+            /**
+             *响应的内容被完整读取后连接会自动回到连接池，没有读取的时候在finally中放弃这个连接
+             */
+			boolean released = false;
+            /**
+             *配置了总时间限制的时候，到时间还没有完成就放弃这个连接，正在阻塞的读取会马上失败，
+             * 不会因为服务器每隔一段时间发送一个字节而一直占用这个下载进程
+             */
+			final long deadline = limits.deadline(System.nanoTime());
+			ScheduledFuture<?> watchdog = FetchWatchdog.schedule(method::abort, deadline);
 
 			try {
                 /**
                  *http客户端连接服务器
                  */
-				HttpResponse response = client.execute(method);
+				long start = metrics != null ? System.nanoTime() : 0;
+				HttpResponse response = client == sharedClient ? client.execute(method, requestContext())
+						: client.execute(method);
+				if (metrics != null) {
+					long now = System.nanoTime();
+					metrics.record(CrawlStage.HTTP, now - start);
+					start = now;
+				}
                 /**
                  *返回连接服务器的状态码，马上用来判断连接成功与否，
                  * 决定产生何种类型的网页对象
                  */
 				Status status = Status.fromHttpCode(response.getStatusLine().getStatusCode());
+				HttpEntity entity = response.getEntity();
+
+                /**
+                 *304表示页面自上次下载以来没有变化，没有内容也通常没有Content-Type，
+                 * 在判断网页类型之前直接返回NotModifiedPage
+                 */
+				if (Status.NOT_MODIFIED_304.equals(status)) {
+					released = release(client, entity);
+					return pageFactory.buildNotModifiedPage(url, recordedLinks(url));
+				}
 
                 /**
                  *调用acceptsMimeType函数，判断当前服务器方位的内容类型
                  * 是否在mimeTypesToInclude列表中，如果不在则返回RejectedMimeTypePage，
-                 * 表示被拒绝的网页类型
+                 * 表示被拒绝的网页类型。不长的内容读完，让连接回到连接池，不用放弃连接
                  */
-				if (!acceptsMimeType(response.getLastHeader("Content-Type"))) {
+				final Header contentType = response.getLastHeader("Content-Type");
+				if (!acceptsMimeType(contentType)) {
+					released = release(client, entity);
 					return pageFactory.buildRejectedMimeTypePage(
-							url, status, response.getLastHeader("Content-Type").getValue());
+							url, status, contentType == null ? null : contentType.getValue());
 				}
 
                 /**
                  *如果状态码在200-299之间，则访问服务器成功，服务器返回一个InputStream
-                 * 调用read函数从服务器返回的这个InputStream输入流中读取返回数据
-                 * 并判断返回数据的编码方式并将其转换为utf-8的编码方式，保存到字符串
-                 * utf8Content中，用url和返回内容utf8Content产生一个OkPage
+                 * 按照Content-Encoding（gzip或者deflate）在读取的同时解压，调用ResponseBody.read
+                 * 从解压后的输入流中成块读取返回数据，没有压缩并且有Content-Length时按照它的大小一次
+                 * 分配好数组。读取的同时统计传输的字节数和解压后的字节数。然后由CharsetResolver确定编码：
+                 * 先信任BOM、Content-Type中的charset和网页中的<meta charset>，都没有的时候才用ICU
+                 * 对内容开头的一部分进行探测，最后按照这个编码一次解码成字符串，用url、内容和编码产生一个OkPage
                  */
 				if (Status.OK.equals(status)) {
-					CharsetDetector detector = new CharsetDetector();
-					detector.setText(read(response.getEntity().getContent()));
-					CharsetMatch match = detector.detect();
+					Header contentEncoding = response.getLastHeader("Content-Encoding");
+					String encoding = contentEncoding == null ? null : contentEncoding.getValue();
+					/**
+					 *Content-Length已经超过最大字节数的时候不读取内容，在finally中放弃这个连接
+					 */
+					if (limits.limitsBody() && ContentDecoding.isIdentity(encoding)
+							&& (entity.getContentLength() > limits.maxBodyBytes())) {
+						return pageFactory.buildErrorPage(url, Status.TRUNCATED);
+					}
+					CountingInputStream wire = new CountingInputStream(entity.getContent());
+					InputStream decoded = ContentDecoding.decode(encoding, wire);
+					ResponseBody body = ResponseBody.read(
+							new LimitedInputStream(decoded, limits.maxBodyBytes(), deadline),
+							ContentDecoding.isIdentity(encoding) ? entity.getContentLength() : -1);
+					/**
+					 *解压的流读到压缩数据的结尾时不一定读到了底层流的结尾，关闭它让连接回到连接池
+					 */
+					decoded.close();
+					released = true;
+					if (metrics != null) {
+						long now = System.nanoTime();
+						metrics.record(CrawlStage.BODY_READ, now - start);
+						start = now;
+					}
+					statistics.record(wire.count(), body.length());
 
-					log.debug("Detected charset: " + match.getName());
+					Charset charset = CharsetResolver.resolve(contentType == null ? null : contentType.getValue(),
+							body.bytes(), body.length());
+					log.debug("Resolved charset: " + charset.name());
 
-					String content = match.getString();
-					CharBuffer buffer = CharBuffer.wrap(content.toCharArray());
-					Charset utf8Charset = Charset.forName("UTF-8");
-					String utf8Content = new String(utf8Charset.encode(buffer).array(), "UTF-8");
+					String content = CharsetResolver.decode(body.bytes(), body.length(), charset);
+					if (metrics != null) {
+						metrics.record(CrawlStage.CHARSET, System.nanoTime() - start);
+					}
 
-					return pageFactory.buildOkPage(url, utf8Content);
+					Page page = pageFactory.buildOkPage(url, content, charset.name());
+					recordValidators(response, url, page);
+					return page;
 				}
                 /**
                  *如果返回的状态码不再200-299之间则产生一个错误页面，将url和错误码保存到ErrorPage
-                 * 对象中并返回
+                 * 对象中并返回。错误页面的内容不读取，只有连接池会复用连接时才读完不长的内容
                  */
+				released = release(client, entity);
 				return pageFactory.buildErrorPage(url, status);
+			} catch (FetchLimitExceededException e) {
+                /**
+                 *超过最大字节数或者总时间限制的时候返回TRUNCATED或者ABORTED错误页面，
+                 * 被watchdog放弃的连接读取失败时也是ABORTED
+                 */
+				log.debug(e.getMessage() + ": " + url);
+				return pageFactory.buildErrorPage(url, e.status());
+			} catch (IOException e) {
+				if (LimitedInputStream.passed(deadline)) {
+					return pageFactory.buildErrorPage(url, Status.ABORTED);
+				}
+				throw e;
+			} catch (CrawlerException e) {
+				if (LimitedInputStream.passed(deadline)) {
+					return pageFactory.buildErrorPage(url, Status.ABORTED);
+				}
+				throw e;
 			} finally {
-				method.abort();
+				FetchWatchdog.cancel(watchdog);
+				if (!released) {
+					method.abort();
+				}
 			}
 
 		} catch (IOException e) {
@@ -210,6 +488,84 @@ public class WebDownloader implements Downloader {
 		}
 	}
 
+    /**
+     * 不需要的响应内容：共享客户端的连接池会复用这个连接时调用drain读完不长的内容，返回连接
+     * 是否已经回到连接池。每次新建的客户端在请求后马上关闭，直接放弃连接，不读取内容
+     */
+	private boolean release(final HttpClient client, final HttpEntity entity) throws IOException {
+		return (client == sharedClient) && drain(entity);
+	}
+
+    /**
+     * 读完不超过MAX_DRAINED_BYTES字节的内容并关闭，连接回到连接池时返回true。
+     * 内容更长时返回false，由调用者放弃这个连接，不为不需要的内容下载整个文件
+     */
+	private static boolean drain(final HttpEntity entity) throws IOException {
+		if (entity == null) {
+			return true;
+		}
+		if (entity.getContentLength() > MAX_DRAINED_BYTES) {
+			return false;
+		}
+		InputStream content = entity.getContent();
+		byte[] buffer = new byte[4096];
+		long drained = 0;
+		int read;
+		while ((read = content.read(buffer)) != -1) {
+			drained += read;
+			if (drained > MAX_DRAINED_BYTES) {
+				return false;
+			}
+		}
+		content.close();
+		return true;
+	}
+
+    /**
+     * 把保存的ETag和Last-Modified作为If-None-Match和If-Modified-Since请求头
+     */
+	private void addValidators(final HttpGet method, final String url) {
+		if (validatorStore == null) {
+			return;
+		}
+		Validators validators = validatorStore.get(url);
+		if (validators == null) {
+			return;
+		}
+		if (validators.etag() != null) {
+			method.addHeader("If-None-Match", validators.etag());
+		}
+		if (validators.lastModified() != null) {
+			method.addHeader("If-Modified-Since", validators.lastModified());
+		}
+	}
+
+    /**
+     * 记录成功响应的ETag和Last-Modified以及网页中的链接，304的时候用这些链接继续爬取，
+     * 两个都没有的时候删除这个url的记录
+     */
+	private void recordValidators(final HttpResponse response, final String url, final Page page) {
+		if (validatorStore == null) {
+			return;
+		}
+		Header etag = response.getLastHeader("ETag");
+		Header lastModified = response.getLastHeader("Last-Modified");
+		if ((etag == null) && (lastModified == null)) {
+			validatorStore.put(url, null);
+			return;
+		}
+		validatorStore.put(url, new Validators(etag == null ? null : etag.getValue(),
+				lastModified == null ? null : lastModified.getValue(), page.getLinks()));
+	}
+
+    /**
+     * 上次下载这个url时记录的链接，没有记录时返回空列表
+     */
+	private List<String> recordedLinks(final String url) {
+		Validators validators = validatorStore == null ? null : validatorStore.get(url);
+		return validators == null ? new ArrayList<String>() : validators.links();
+	}
+
     /**
      * acceptsMimeType函数用来判断返回的网页类型是否在网页支持类型列表mimeTypesToInclude
      * 中，如果在返回true，不再或者没有有限的Header则返回false
@@ -217,7 +573,7 @@ public class WebDownloader implements Downloader {
      * @return 判断的返回值是否接受这个从服务器返回的输入流
      */
 	private boolean acceptsMimeType(final Header header) {
-		final String value = header.getValue();
+		final String value = header == null ? null : header.getValue();
         /**
          *Header中没有包含有效值，返回false
          */
@@ -241,70 +597,179 @@ public class WebDownloader implements Downloader {
 	}
 
     /**
-     * read函数从服务器返回的InputStream流中读取返回数据，并将其保存到
-     * 一个byte数组中，以便在探测出其编码方式后将其转化为utf-8方式的字符串
-     * @param inputStream 从服务器范围的输入流
-     * @return 将服务器返回的流保存到一个二进制数组中并返回
+     * 对url中的特殊字符重新用utf-8编码，防止在传输过程中出现乱码。:/.?&#=以及字母、数字和.-*_
+     * 保持不变，空格编码为+，其余字符按utf-8编码为%XX。已经编码过的%XX保持不变，不会再次编码。
+     * 只遍历一次url，不需要编码时直接返回原来的字符串
+     * @param url
+     * @return
      */
-	private byte[] read(final InputStream inputStream) {
-        /**
-         * 预声明一个1000个字符的二进制数组，下面如果使用中不够用的话将会声明一个
-         * 1.5倍的数组，并将原来的内容复制到其中
-         */
-		byte[] bytes = new byte[1000];
-		int i = 0;
-		int b;
-		try {
+	static String encode(final String url) {
+		StringBuilder res = null;
+		for (int i = 0; i < url.length(); i++) {
+			final char c = url.charAt(i);
+			if (isUnreserved(c) || ((c == '%') && isEscape(url, i))) {
+				if (res != null) {
+					res.append(c);
+				}
+				continue;
+			}
             /**
-             *一直读到流结束
+             * 第一个需要编码的字符：之前的字符原样复制，编码后的长度按每个字符最多三个字节估计
              */
-			while ((b = inputStream.read()) != -1) {
-				bytes[i++] = (byte) b;
-				if (bytes.length == i) {
-					byte[] newBytes = new byte[(bytes.length * 3) / 2 + 1];
-					for (int j = 0; j < bytes.length; j++) {
-						newBytes[j] = bytes[j];
-					}
-					bytes = newBytes;
-				}
+			if (res == null) {
+				res = new StringBuilder(url.length() + 16);
+				res.append(url, 0, i);
 			}
-		} catch (IOException e) {
-			throw new CrawlerException("There was a problem reading stream.", e);
+			if (c == ' ') {
+				res.append('+');
+				continue;
+			}
+			int codePoint = c;
+			if (Character.isHighSurrogate(c) && (i + 1 < url.length())
+					&& Character.isLowSurrogate(url.charAt(i + 1))) {
+				codePoint = Character.toCodePoint(c, url.charAt(++i));
+			} else if (Character.isSurrogate(c)) {
+                /**
+                 * 不成对的代理字符没有utf-8编码，和URLEncoder一样用?代替
+                 */
+				codePoint = '?';
+			}
+			appendUtf8(res, codePoint);
 		}
+		return res == null ? url : res.toString();
+	}
 
-        /**
-         *将bytes中的内容复制到一块和其大小一样的内容中
-         */
-		byte[] copy = Arrays.copyOf(bytes, i);
+	private static boolean isUnreserved(final char c) {
+		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9'))
+				|| (c == '-') || (c == '*') || (c == '_') || (":/.?&#=".indexOf(c) >= 0);
+	}
 
-		return copy;
+	private static boolean isEscape(final String url, final int index) {
+		return (index + 2 < url.length()) && (Character.digit(url.charAt(index + 1), 16) >= 0)
+				&& (Character.digit(url.charAt(index + 2), 16) >= 0);
+	}
+
+	private static void appendUtf8(final StringBuilder res, final int codePoint) {
+		if (codePoint < 0x80) {
+			appendByte(res, codePoint);
+		} else if (codePoint < 0x800) {
+			appendByte(res, 0xC0 | (codePoint >> 6));
+			appendByte(res, 0x80 | (codePoint & 0x3F));
+		} else if (codePoint < 0x10000) {
+			appendByte(res, 0xE0 | (codePoint >> 12));
+			appendByte(res, 0x80 | ((codePoint >> 6) & 0x3F));
+			appendByte(res, 0x80 | (codePoint & 0x3F));
+		} else {
+			appendByte(res, 0xF0 | (codePoint >> 18));
+			appendByte(res, 0x80 | ((codePoint >> 12) & 0x3F));
+			appendByte(res, 0x80 | ((codePoint >> 6) & 0x3F));
+			appendByte(res, 0x80 | (codePoint & 0x3F));
+		}
 	}
 
+	private static void appendByte(final StringBuilder res, final int b) {
+		res.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+	}
+
+
     /**
-     * 对url中的特殊字符重新用utf-8编码，防止在传输过程中出现乱码
-     * @param url
-     * @return
+     * 创建WebDownloader的Builder，没有给出的设置使用默认值，为null的设置表示不使用这个功能。
+     * 不是线程安全的
      */
-	private String encode(final String url) {
-		String res = "";
+	final public static class Builder {
+
+		private List<String> mimeTypesToInclude = Arrays.asList("text/html");
+		private List<Cookie> cookies = new ArrayList<Cookie>();
+		private PageFactory pageFactory = new DefaultPageFactory();
+		private HttpClient sharedClient;
+		private ValidatorStore validatorStore;
+		private FetchLimits limits = FetchLimits.DEFAULT;
+		private DnsResolver dnsResolver;
+		private CrawlMetrics metrics;
+
+		private Builder() {
+		}
+
         /**
-         * 对url中的每个字符做判断，如果其含有:/.?&#=中的一种，则用utf-8
-         * 对这个字符重新编码
+         * @param mimeTypesToInclude 支持的网页类型
          */
-		for (char c : url.toCharArray()) {
-			if (!":/.?&#=".contains("" + c)) {
-				try {
-					res += URLEncoder.encode("" + c, "UTF-8");
-				} catch (UnsupportedEncodingException e) {
-					throw new CrawlerException(
-							"There is something really wrong with your JVM. It could not find UTF-8 encoding.", e);
-				}
-			} else {
-				res += c;
+		public Builder withMimeTypes(final List<String> mimeTypesToInclude) {
+			if (mimeTypesToInclude == null) {
+				throw new IllegalArgumentException("mimeTypesToInclude cannot be null");
+			}
+			this.mimeTypesToInclude = mimeTypesToInclude;
+			return this;
+		}
+
+        /**
+         * @param cookies 保存的cookie，每次请求都会带上
+         */
+		public Builder withCookies(final List<Cookie> cookies) {
+			if (cookies == null) {
+				throw new IllegalArgumentException("cookies cannot be null");
 			}
+			this.cookies = cookies;
+			return this;
 		}
 
-		return res;
+        /**
+         * @param pageFactory 页面的工厂函数，根据访问结果产生不同网页
+         */
+		public Builder withPageFactory(final PageFactory pageFactory) {
+			if (pageFactory == null) {
+				throw new IllegalArgumentException("pageFactory cannot be null");
+			}
+			this.pageFactory = pageFactory;
+			return this;
+		}
+
+        /**
+         * @param sharedClient 所有线程共享的线程安全的http客户端，为null时每次请求新建客户端
+         */
+		public Builder withSharedClient(final HttpClient sharedClient) {
+			this.sharedClient = sharedClient;
+			return this;
+		}
+
+        /**
+         * @param validatorStore 保存ETag和Last-Modified用来发送条件GET，为null时总是下载完整页面
+         */
+		public Builder withValidatorStore(final ValidatorStore validatorStore) {
+			this.validatorStore = validatorStore;
+			return this;
+		}
+
+        /**
+         * @param limits 超时时间、网页内容的最大字节数和每次下载的总时间限制
+         */
+		public Builder withFetchLimits(final FetchLimits limits) {
+			if (limits == null) {
+				throw new IllegalArgumentException("limits cannot be null");
+			}
+			this.limits = limits;
+			return this;
+		}
+
+        /**
+         * @param dnsResolver 每次请求新建的客户端用来解析域名，为null时使用JVM的解析。共享客户端
+         *                    的解析在createPooledClient时指定
+         */
+		public Builder withDnsResolver(final DnsResolver dnsResolver) {
+			this.dnsResolver = dnsResolver;
+			return this;
+		}
+
+        /**
+         * @param metrics 记录HTTP请求、读取内容和确定编码各自的时间，为null时不记录
+         */
+		public Builder withMetrics(final CrawlMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		public WebDownloader build() {
+			return new WebDownloader(this);
+		}
 	}
 
 }
\ No newline at end of file
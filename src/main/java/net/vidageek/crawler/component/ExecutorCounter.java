@@ -1,6 +1,8 @@
 package net.vidageek.crawler.component;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author jonasabreu
@@ -9,17 +11,49 @@ import java.util.concurrent.atomic.AtomicInteger;
 final public class ExecutorCounter {
 
     private final AtomicInteger numberOfExecutors = new AtomicInteger(0);
+    private final AtomicLong finishedExecutors = new AtomicLong(0);
 
     public void increase() {
         numberOfExecutors.incrementAndGet();
     }
 
     public void decrease() {
-        numberOfExecutors.decrementAndGet();
+        finishedExecutors.incrementAndGet();
+        if (numberOfExecutors.decrementAndGet() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
     }
 
     public int value() {
         return numberOfExecutors.get();
     }
 
+    /**
+     * Number of executors that finished since the counter was created.
+     */
+    public long finished() {
+        return finishedExecutors.get();
+    }
+
+    /**
+     * Waits until no executor is alive or the timeout elapses, returning
+     * right when the last one finishes.
+     * 
+     * @return true if no executor is alive
+     */
+    public synchronized boolean awaitZero(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + remaining;
+        while (numberOfExecutors.get() != 0) {
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return true;
+    }
+
 }
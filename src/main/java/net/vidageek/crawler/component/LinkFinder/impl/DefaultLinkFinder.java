@@ -9,6 +9,8 @@ import java.util.regex.Pattern;
 
 public class DefaultLinkFinder implements LinksFinder {
 
+	private static final Pattern PATTERN = Pattern.compile("(?i)(?s)<\\s*?a.*?href=\"(.*?)\".*?>");
+
 	private final String content;
 
 	public DefaultLinkFinder(final String content) {
@@ -19,8 +21,7 @@ public class DefaultLinkFinder implements LinksFinder {
 	}
 
 	public List<String> getLinks() {
-		Pattern pattern = Pattern.compile("(?i)(?s)<\\s*?a.*?href=\"(.*?)\".*?>");
-		Matcher matcher = pattern.matcher(content);
+		Matcher matcher = PATTERN.matcher(content);
 
 		List<String> list = new ArrayList<String>();
 		while (matcher.find()) {
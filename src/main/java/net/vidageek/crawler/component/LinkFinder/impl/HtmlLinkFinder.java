@@ -0,0 +1,136 @@
+package net.vidageek.crawler.component.LinkFinder.impl;
+
+import net.vidageek.crawler.component.LinkFinder.LinksFinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds <code>a href</code>, <code>area href</code>, <code>frame src</code>
+ * and <code>iframe src</code> (or <code>href</code>) links in a single scan
+ * of the document, in document order. Attribute values may be double quoted,
+ * single quoted or unquoted. Comments are skipped.
+ */
+public class HtmlLinkFinder implements LinksFinder {
+
+	private final String content;
+
+	public HtmlLinkFinder(final String content) {
+		if (content == null || "".equals(content.trim())) {
+			throw new IllegalArgumentException("content cannot be null");
+		}
+		this.content = content;
+	}
+
+	public List<String> getLinks() {
+		final String html = content;
+		final int length = html.length();
+		List<String> list = new ArrayList<String>();
+
+		int i = 0;
+		while ((i = html.indexOf('<', i)) >= 0) {
+			i++;
+			if (html.startsWith("!--", i)) {
+				int end = html.indexOf("-->", i + 3);
+				if (end < 0) {
+					break;
+				}
+				i = end + 3;
+				continue;
+			}
+			while ((i < length) && Character.isWhitespace(html.charAt(i))) {
+				i++;
+			}
+			int nameStart = i;
+			while ((i < length) && Character.isLetterOrDigit(html.charAt(i))) {
+				i++;
+			}
+			int nameLength = i - nameStart;
+			if (isTag(html, nameStart, nameLength, "a") || isTag(html, nameStart, nameLength, "area")) {
+				i = findAttribute(html, i, "href", null, list);
+			} else if (isTag(html, nameStart, nameLength, "frame")) {
+				i = findAttribute(html, i, "src", null, list);
+			} else if (isTag(html, nameStart, nameLength, "iframe")) {
+				i = findAttribute(html, i, "src", "href", list);
+			}
+		}
+
+		return list;
+	}
+
+	private static boolean isTag(final String html, final int start, final int length, final String name) {
+		return (length == name.length()) && html.regionMatches(true, start, name, 0, length);
+	}
+
+	/*
+	 * Scans the attributes of a tag up to its closing '>' and adds the value of
+	 * the first attribute called name (or alternative) to the list. Returns
+	 * the index where scanning stopped.
+	 */
+	private static int findAttribute(final String html, int i, final String name, final String alternative,
+			final List<String> list) {
+		final int length = html.length();
+		boolean found = false;
+		while (i < length) {
+			char c = html.charAt(i);
+			if (c == '>') {
+				return i + 1;
+			}
+			if (Character.isWhitespace(c) || (c == '/')) {
+				i++;
+				continue;
+			}
+
+			int attributeStart = i;
+			while ((i < length) && !isAttributeNameEnd(html.charAt(i))) {
+				i++;
+			}
+			int attributeLength = i - attributeStart;
+
+			while ((i < length) && Character.isWhitespace(html.charAt(i))) {
+				i++;
+			}
+			if ((i >= length) || (html.charAt(i) != '=')) {
+				continue;
+			}
+			i++;
+			while ((i < length) && Character.isWhitespace(html.charAt(i))) {
+				i++;
+			}
+			if (i >= length) {
+				break;
+			}
+
+			int valueStart;
+			int valueEnd;
+			c = html.charAt(i);
+			if ((c == '"') || (c == '\'')) {
+				valueStart = i + 1;
+				valueEnd = html.indexOf(c, valueStart);
+				if (valueEnd < 0) {
+					break;
+				}
+				i = valueEnd + 1;
+			} else {
+				valueStart = i;
+				while ((i < length) && !Character.isWhitespace(html.charAt(i)) && (html.charAt(i) != '>')) {
+					i++;
+				}
+				valueEnd = i;
+			}
+
+			if (!found
+					&& (isTag(html, attributeStart, attributeLength, name) || ((alternative != null) && isTag(html,
+							attributeStart, attributeLength, alternative)))) {
+				list.add(html.substring(valueStart, valueEnd).trim());
+				found = true;
+			}
+		}
+		return i;
+	}
+
+	private static boolean isAttributeNameEnd(final char c) {
+		return Character.isWhitespace(c) || (c == '=') || (c == '>') || (c == '/');
+	}
+
+}
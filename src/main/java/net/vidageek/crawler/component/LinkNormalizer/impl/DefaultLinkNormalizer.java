@@ -1,20 +1,20 @@
 package net.vidageek.crawler.component.LinkNormalizer.impl;
 
 import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
-import net.vidageek.crawler.utils.UrlUtils;
+import net.vidageek.crawler.utils.UrlResolver;
 
 /**
  * @author jonasabreu
  */
 public class DefaultLinkNormalizer implements LinkNormalizer {
 
-	private final String beginUrl;
+	private final UrlResolver resolver;
 
 	public DefaultLinkNormalizer(final String beginUrl) {
 		if ((beginUrl == null) || (beginUrl.trim().length() == 0)) {
 			throw new IllegalArgumentException("beginUrl cannot be null or empty");
 		}
-		this.beginUrl = beginUrl;
+		resolver = new UrlResolver(beginUrl);
 	}
 
     /**
@@ -28,15 +28,17 @@ public class DefaultLinkNormalizer implements LinkNormalizer {
 	public String normalize(String url) {
 
         /**
-         * 将转移字符&amp;转换为&
+         * 将转移字符&amp;转换为&，用不需要正则表达式的replace，没有&amp;时不创建新的字符串
          */
-		url = url.replaceAll("&amp;", "&");
+		if (url.indexOf("&amp;") >= 0) {
+			url = url.replace("&amp;", "&");
+		}
 
         /**
-         * UrlUtils.resolveUrl(beginUrl, url)用来将域名beginUrl和相对路径url
-         * 合成一个完整的url路径提供给下面的操作访问
+         * resolver在构造时已经解析好域名beginUrl，这里只需要把相对路径url和它
+         * 合成一个完整的url路径提供给下面的操作访问，结果和UrlUtils.resolveUrl相同
          */
-		return UrlUtils.resolveUrl(beginUrl, url);
+		return resolver.resolve(url);
 	}
 
 }
@@ -0,0 +1,133 @@
+package net.vidageek.crawler.component.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import net.vidageek.crawler.exception.CrawlerException;
+
+/**
+ * Counts and latencies of each {@link CrawlStage} of a crawl, comparing how
+ * long pages wait in the queue, on the network and on the CPU. Read them
+ * through {@link #stage(CrawlStage)}, or over JMX once
+ * {@link #registerMBeans(String)} is called. Safe to update from many threads.
+ */
+final public class CrawlMetrics {
+
+    private static final String DOMAIN = "net.vidageek.crawler";
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[CrawlStage.values().length];
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    public CrawlMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(final CrawlStage stage, final long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram stage(final CrawlStage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Registers one MBean per stage on the platform MBean server, named
+     * net.vidageek.crawler:type=CrawlMetrics,name=&lt;name&gt;,stage=&lt;stage&gt;.
+     */
+    public synchronized void registerMBeans(final String name) {
+        if ((name == null) || (name.trim().length() == 0)) {
+            throw new IllegalArgumentException("name cannot be empty");
+        }
+        if (!registered.isEmpty()) {
+            throw new IllegalStateException("metrics are already registered");
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (CrawlStage stage : CrawlStage.values()) {
+                ObjectName objectName = new ObjectName(DOMAIN + ":type=CrawlMetrics,name=" + ObjectName.quote(name)
+                        + ",stage=" + stage.name());
+                server.registerMBean(new StandardMBean(new StageMetrics(stage(stage)), StageMetricsMBean.class),
+                        objectName);
+                registered.add(objectName);
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new CrawlerException("Could not register crawl metrics " + name, e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * One line per stage, with its count and latencies in milliseconds.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (CrawlStage stage : CrawlStage.values()) {
+            LatencyHistogram histogram = stage(stage);
+            sb.append(String.format("%-15s count=%d total=%.1fms mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n",
+                    stage, histogram.count(), histogram.totalNanos() / 1e6, histogram.meanNanos() / 1e6,
+                    histogram.percentileNanos(0.5) / 1e6, histogram.percentileNanos(0.99) / 1e6,
+                    histogram.maxNanos() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    private static final class StageMetrics implements StageMetricsMBean {
+
+        private final LatencyHistogram histogram;
+
+        private StageMetrics(final LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        public long getCount() {
+            return histogram.count();
+        }
+
+        public long getTotalMilliseconds() {
+            return histogram.totalNanos() / 1000000;
+        }
+
+        public double getMeanMicroseconds() {
+            return histogram.meanNanos() / 1000;
+        }
+
+        public long getP50Microseconds() {
+            return histogram.percentileNanos(0.5) / 1000;
+        }
+
+        public long getP90Microseconds() {
+            return histogram.percentileNanos(0.9) / 1000;
+        }
+
+        public long getP99Microseconds() {
+            return histogram.percentileNanos(0.99) / 1000;
+        }
+
+        public long getMaxMicroseconds() {
+            return histogram.maxNanos() / 1000;
+        }
+
+    }
+
+}
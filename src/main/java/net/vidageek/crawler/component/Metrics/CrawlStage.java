@@ -0,0 +1,53 @@
+package net.vidageek.crawler.component.Metrics;
+
+/**
+ * The steps each url goes through, in order. {@link CrawlMetrics} keeps a
+ * {@link LatencyHistogram} for each.
+ */
+public enum CrawlStage {
+
+    /**
+     * From the url being scheduled to a worker starting on it: the wait for a
+     * free worker plus the request delay of the queue. Urls spilled to disk
+     * count from when they were read back.
+     */
+    QUEUE_WAIT,
+
+    /**
+     * The request until the response headers arrive. For the async downloader
+     * it is the whole exchange, body included.
+     */
+    HTTP,
+
+    /**
+     * Reading and decompressing the body of an OK response. The async
+     * downloader has the body by then, so only decompression is counted.
+     */
+    BODY_READ,
+
+    /**
+     * Finding the charset of a body and decoding it.
+     */
+    CHARSET,
+
+    /**
+     * Finding the links of a page.
+     */
+    LINK_EXTRACTION,
+
+    /**
+     * Normalizing one link.
+     */
+    NORMALIZATION,
+
+    /**
+     * Checking and adding one link to the visited set.
+     */
+    VISITED_CHECK,
+
+    /**
+     * Handing a page, or its error, to the visitor.
+     */
+    VISIT
+
+}
@@ -0,0 +1,112 @@
+package net.vidageek.crawler.component.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies in nanoseconds, counted in buckets: one per value below 16, then
+ * 8 per power of two, so a percentile is at most 12.5% above the real one.
+ * Recording takes no lock and allocates nothing. Safe to update from many
+ * threads; what is read while others record may be slightly behind.
+ */
+final public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below this one have a bucket each
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int LINEAR_BITS = 4;
+    private static final int BUCKETS = LINEAR + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Negative latencies, which a clock going backwards could give, count as 0.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while ((value > max) && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 0 when nothing was recorded.
+     */
+    public double meanNanos() {
+        final long count = count();
+        return count == 0 ? 0 : (double) totalNanos() / count;
+    }
+
+    /**
+     * The latency under which the given fraction of the recorded ones fall,
+     * rounded up to the top of its bucket and never above the maximum. 0 when
+     * nothing was recorded.
+     */
+    public long percentileNanos(final double fraction) {
+        if ((fraction <= 0) || (fraction > 1)) {
+            throw new IllegalArgumentException("fraction must be in (0, 1]");
+        }
+        long total = 0;
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    static int bucket(final long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * The highest value that falls in the bucket.
+     */
+    static long upperBound(final int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        final int exponent = (bucket - LINEAR) / SUB_BUCKETS + LINEAR_BITS;
+        final int subBucket = (bucket - LINEAR) % SUB_BUCKETS;
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + subBucket * width + width - 1;
+    }
+
+}
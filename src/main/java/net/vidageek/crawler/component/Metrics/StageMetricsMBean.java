@@ -0,0 +1,23 @@
+package net.vidageek.crawler.component.Metrics;
+
+/**
+ * What {@link CrawlMetrics#registerMBeans(String)} exports over JMX for each
+ * {@link CrawlStage}.
+ */
+public interface StageMetricsMBean {
+
+    long getCount();
+
+    long getTotalMilliseconds();
+
+    double getMeanMicroseconds();
+
+    long getP50Microseconds();
+
+    long getP90Microseconds();
+
+    long getP99Microseconds();
+
+    long getMaxMicroseconds();
+
+}
@@ -1,9 +1,14 @@
 package net.vidageek.crawler.component;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
 import net.vidageek.crawler.component.Downloader.Downloader;
 import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Metrics.CrawlStage;
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.component.visitor.PageVisitor;
 import net.vidageek.crawler.http.Status;
@@ -17,54 +22,137 @@ import org.apache.log4j.Logger;
  */
 final public class PageCrawlerExecutor implements Runnable {
 
-    private final Downloader downloader;
-    private final LinkNormalizer normalizer;
-    private final PageVisitor visitor;
-    private final ExecutorCounter counter;
+    private static final Logger log = Logger.getLogger(PageCrawlerExecutor.class);
 
-    private final Logger log = Logger.getLogger(PageCrawlerExecutor.class);
     private final Url urlToCrawl;
-    private final ThreadPoolExecutor executor;
+    private final CrawlContext context;
+    // when the url was scheduled, to meter its queue wait; 0 when the crawl is not metered
+    private final long scheduledNanos;
 
     public PageCrawlerExecutor(final Url urlToCrawl,
-                               final ThreadPoolExecutor executor,
+                               final Executor executor,
                                final ExecutorCounter counter,
                                final Downloader downloader,
                                final LinkNormalizer normalizer,
                                final PageVisitor visitor) {
+        this(urlToCrawl, CrawlContext.builder(executor, counter, downloader, normalizer, visitor).build());
+    }
+
+    public PageCrawlerExecutor(final Url urlToCrawl, final CrawlContext context) {
+        this(urlToCrawl, context, true);
+    }
+
+    PageCrawlerExecutor(final Url urlToCrawl, final CrawlContext context, final boolean count) {
         this.urlToCrawl = urlToCrawl;
-        this.executor = executor;
-        this.counter = counter;
-        this.downloader = downloader;
-        this.normalizer = normalizer;
-        this.visitor = visitor;
+        this.context = context;
+        scheduledNanos = context.metrics() != null ? System.nanoTime() : 0;
+
+        if (count) {
+            context.counter().increase();
+        }
+    }
 
-        counter.increase();
+    public Url url() {
+        return urlToCrawl;
     }
 
+    public CrawlContext context() {
+        return context;
+    }
+
+    /**
+     * With an {@link AsyncDownloader} the request is only started here, and the
+     * page is processed by the thread that completes it. This thread is then
+     * free to take the next url as soon as the downloader has room for it.
+     */
     public void run() {
-        try {
+        if (context.metrics() != null) {
+            context.metrics().record(CrawlStage.QUEUE_WAIT, System.nanoTime() - scheduledNanos);
+        }
+        log.info("crawling url: " + urlToCrawl.link());
+        context.prefetchNext();
 
-            log.info("crawling url: " + urlToCrawl.link());
+        final boolean allowed;
+        try {
+            allowed = context.allowedByRobots(urlToCrawl);
+        } catch (RuntimeException e) {
+            context.counter().decrease();
+            throw e;
+        }
+        if (!allowed) {
+            try {
+                log.debug("robots.txt disallows " + urlToCrawl.link());
+                context.visitor().onError(urlToCrawl, Status.DISALLOWED);
+                context.completed(urlToCrawl);
+            } finally {
+                context.counter().decrease();
+            }
+            return;
+        }
 
-            Page page = downloader.get(urlToCrawl.link());
-            if (page.getStatusCode() != Status.OK) {
-                visitor.onError(urlToCrawl, page.getStatusCode());
-            } else {
-                visitor.visit(page);
+        final AsyncDownloader asyncDownloader = context.asyncDownloader();
+        if (asyncDownloader == null) {
+            try {
+                process(context.downloader().get(urlToCrawl.link()));
+            } finally {
+                context.counter().decrease();
             }
+            return;
+        }
 
-            for (String l : page.getLinks()) {
-                String link = normalizer.normalize(l);
-                final Url url = new Url(link, urlToCrawl.depth() + 1);
-                if (visitor.followUrl(url)) {
-                    executor.execute(new PageCrawlerExecutor(url, executor, counter, downloader, normalizer, visitor));
+        final CompletableFuture<Page> page;
+        try {
+            page = asyncDownloader.getAsync(urlToCrawl.link());
+        } catch (RuntimeException e) {
+            context.counter().decrease();
+            throw e;
+        }
+        page.whenComplete((result, error) -> {
+            try {
+                if (error != null) {
+                    log.error("Could not crawl " + urlToCrawl.link(), error);
+                } else {
+                    process(result);
                 }
+            } catch (RuntimeException e) {
+                log.error("Could not crawl " + urlToCrawl.link(), e);
+            } finally {
+                context.counter().decrease();
             }
+        });
+    }
 
-        } finally {
-            counter.decrease();
+    private void process(final Page page) {
+        final PageVisitor visitor = context.visitor();
+        final CrawlMetrics metrics = context.metrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        if ((page.getStatusCode() != Status.OK) && (page.getStatusCode() != Status.NOT_MODIFIED_304)) {
+            visitor.onError(urlToCrawl, page.getStatusCode());
+        } else {
+            visitor.visit(page);
+        }
+        if (metrics != null) {
+            long now = System.nanoTime();
+            metrics.record(CrawlStage.VISIT, now - start);
+            start = now;
+        }
+
+        final List<String> links = page.getLinks();
+        if (metrics != null) {
+            metrics.record(CrawlStage.LINK_EXTRACTION, System.nanoTime() - start);
+        }
+        for (String l : links) {
+            start = metrics != null ? System.nanoTime() : 0;
+            String link = context.normalizer().normalize(l);
+            if (metrics != null) {
+                metrics.record(CrawlStage.NORMALIZATION, System.nanoTime() - start);
+            }
+            final Url url = new Url(link, urlToCrawl.depth() + 1);
+            if (visitor.followUrl(url)) {
+                context.schedule(url);
+            }
         }
+        context.completed(urlToCrawl);
     }
 
 }
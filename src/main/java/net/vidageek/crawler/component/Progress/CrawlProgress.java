@@ -0,0 +1,66 @@
+package net.vidageek.crawler.component.Progress;
+
+/**
+ * State of a running crawl at some instant.
+ */
+final public class CrawlProgress {
+
+    private final long finishedExecutors;
+    private final int aliveExecutors;
+    private final long elapsedMilliseconds;
+    private final long wireBytes;
+    private final long decodedBytes;
+
+    public CrawlProgress(final long finishedExecutors, final int aliveExecutors, final long elapsedMilliseconds) {
+        this(finishedExecutors, aliveExecutors, elapsedMilliseconds, 0, 0);
+    }
+
+    public CrawlProgress(final long finishedExecutors, final int aliveExecutors, final long elapsedMilliseconds,
+            final long wireBytes, final long decodedBytes) {
+        this.finishedExecutors = finishedExecutors;
+        this.aliveExecutors = aliveExecutors;
+        this.elapsedMilliseconds = elapsedMilliseconds;
+        this.wireBytes = wireBytes;
+        this.decodedBytes = decodedBytes;
+    }
+
+    /**
+     * Pages already crawled, approximately.
+     */
+    public long finishedExecutors() {
+        return finishedExecutors;
+    }
+
+    /**
+     * Urls being crawled or waiting in the queue.
+     */
+    public int aliveExecutors() {
+        return aliveExecutors;
+    }
+
+    public long elapsedMilliseconds() {
+        return elapsedMilliseconds;
+    }
+
+    /**
+     * Body bytes received so far, before content decoding. Zero if the
+     * downloader doesn't keep transfer statistics.
+     */
+    public long wireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Body bytes received so far, after content decoding.
+     */
+    public long decodedBytes() {
+        return decodedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "finished: " + finishedExecutors + ", alive: " + aliveExecutors + ", elapsed: " + elapsedMilliseconds
+                + "ms, wire bytes: " + wireBytes + ", decoded bytes: " + decodedBytes;
+    }
+
+}
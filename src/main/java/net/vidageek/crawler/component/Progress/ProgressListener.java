@@ -0,0 +1,12 @@
+package net.vidageek.crawler.component.Progress;
+
+/**
+ * Receives a snapshot of the crawl at a fixed interval, from the thread that
+ * called {@link net.vidageek.crawler.PageCrawler#crawl}. It is not called once
+ * the crawl is over.
+ */
+public interface ProgressListener {
+
+    void onProgress(CrawlProgress progress);
+
+}
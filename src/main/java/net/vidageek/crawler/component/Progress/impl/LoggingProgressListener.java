@@ -0,0 +1,22 @@
+package net.vidageek.crawler.component.Progress.impl;
+
+import net.vidageek.crawler.component.Progress.CrawlProgress;
+import net.vidageek.crawler.component.Progress.ProgressListener;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Logs the progress at debug level. This is what the crawler uses when no
+ * listener is configured.
+ */
+final public class LoggingProgressListener implements ProgressListener {
+
+    private final Logger log = Logger.getLogger(LoggingProgressListener.class);
+
+    public void onProgress(final CrawlProgress progress) {
+        log.debug("executors that finished: " + progress.finishedExecutors());
+        log.debug("Number of Executors alive: " + progress.aliveExecutors());
+        log.debug("bytes on the wire: " + progress.wireBytes() + ", decoded: " + progress.decodedBytes());
+    }
+
+}
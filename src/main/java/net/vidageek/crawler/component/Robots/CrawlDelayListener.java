@@ -0,0 +1,16 @@
+package net.vidageek.crawler.component.Robots;
+
+/**
+ * Told the Crawl-delay a host asks for each time its robots.txt is read.
+ */
+public interface CrawlDelayListener {
+
+    /**
+     * @param host host and optional port, as returned by
+     *            {@link net.vidageek.crawler.utils.UrlUtils#host(String)}
+     * @param delayInMilliseconds the delay the host asks for, 0 if it asks for
+     *            none
+     */
+    void onCrawlDelay(String host, long delayInMilliseconds);
+
+}
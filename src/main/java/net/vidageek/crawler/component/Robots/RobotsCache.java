@@ -0,0 +1,238 @@
+package net.vidageek.crawler.component.Robots;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.page.OkPage;
+import net.vidageek.crawler.utils.UrlUtils;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Fetches the robots.txt of each site once and keeps its compiled rules for
+ * expiryMilliseconds. Threads that need the rules of a site being fetched
+ * wait for that fetch instead of starting their own.
+ *
+ * As in RFC 9309, a robots.txt that does not exist, or any other client
+ * error, allows everything, and one that cannot be read because of a server
+ * error, a failed connection or a fetch limit disallows everything until it
+ * is fetched again, at most ten minutes later.
+ */
+final public class RobotsCache {
+
+    public static final long DEFAULT_EXPIRY_MILLISECONDS = TimeUnit.DAYS.toMillis(1);
+
+    private static final long UNREACHABLE_EXPIRY_MILLISECONDS = TimeUnit.MINUTES.toMillis(10);
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
+    private static final Set<Status> UNREACHABLE = EnumSet.of(Status.INTERNAL_SERVER_ERROR, Status.NOT_IMPLEMENTED,
+            Status.BAD_GATEWAY, Status.SERVICE_UNAVAILABLE, Status.GATEWAY_TIMEOUT, Status.HTTP_VERSION_NOT_SUPPORTED,
+            Status.SERVER_ERROR, Status.UNSPECIFIED_ERROR, Status.TRUNCATED, Status.ABORTED);
+
+    private final Logger log = Logger.getLogger(RobotsCache.class);
+
+    private final Downloader downloader;
+    private final String userAgent;
+    private final long expiryNanos;
+    private final long unreachableExpiryNanos;
+    private final long maxCrawlDelayMilliseconds;
+    private final CrawlDelayListener listener;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+    private final LongAdder fetches = new LongAdder();
+    private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+    public RobotsCache(final Downloader downloader, final String userAgent) {
+        this(downloader, userAgent, DEFAULT_EXPIRY_MILLISECONDS, 0, null);
+    }
+
+    /**
+     * @param downloader fetches the robots.txt files; it must accept text/plain
+     * @param maxCrawlDelayMilliseconds longest Crawl-delay passed to the
+     *            listener; longer ones are cut down to it
+     * @param listener told the Crawl-delay of each site read, or null
+     */
+    public RobotsCache(final Downloader downloader, final String userAgent, final long expiryMilliseconds,
+            final long maxCrawlDelayMilliseconds, final CrawlDelayListener listener) {
+        if (downloader == null) {
+            throw new IllegalArgumentException("downloader cannot be null");
+        }
+        if ((userAgent == null) || (userAgent.trim().length() == 0)) {
+            throw new IllegalArgumentException("userAgent cannot be null or empty");
+        }
+        if ((expiryMilliseconds < 0) || (maxCrawlDelayMilliseconds < 0)) {
+            throw new IllegalArgumentException("expiryMilliseconds and maxCrawlDelayMilliseconds cannot be negative");
+        }
+        this.downloader = downloader;
+        this.userAgent = userAgent;
+        this.maxCrawlDelayMilliseconds = maxCrawlDelayMilliseconds;
+        this.listener = listener;
+        expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMilliseconds);
+        unreachableExpiryNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(expiryMilliseconds,
+                UNREACHABLE_EXPIRY_MILLISECONDS));
+    }
+
+    /**
+     * Whether the site's robots.txt lets the crawler fetch url. Urls without a
+     * network location are always allowed.
+     */
+    public boolean allows(final String url) {
+        return rules(url).allows(path(url));
+    }
+
+    /**
+     * The rules of the site of url, fetching its robots.txt if they are not
+     * cached or have expired.
+     */
+    public RobotsRules rules(final String url) {
+        final String origin = origin(url);
+        if (origin == null) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        final long now = System.nanoTime();
+        Entry entry = cache.get(origin);
+        if ((entry == null) || entry.expired(now)) {
+            entry = fetch(origin, now);
+        }
+        try {
+            return entry.rules.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Number of robots.txt files requested so far.
+     */
+    public long fetches() {
+        return fetches.sum();
+    }
+
+    /**
+     * Sites cached, expired ones included until they are swept.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private Entry fetch(final String origin, final long now) {
+        final Entry created = new Entry();
+        Entry entry = cache.compute(origin, (k, old) -> ((old != null) && !old.expired(now)) ? old : created);
+        if (entry == created) {
+            created.fetch(origin);
+            if (cache.size() >= sweepThreshold) {
+                sweep();
+            }
+        }
+        return entry;
+    }
+
+    private synchronized void sweep() {
+        if (cache.size() < sweepThreshold) {
+            return;
+        }
+        final long now = System.nanoTime();
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expired(now)) {
+                iterator.remove();
+            }
+        }
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, cache.size() * 2);
+    }
+
+    private RobotsRules download(final String origin) {
+        fetches.increment();
+        final Page page;
+        try {
+            page = downloader.get(origin + "/robots.txt");
+        } catch (CrawlerException e) {
+            log.debug("Could not fetch robots.txt of " + origin, e);
+            return null;
+        }
+        if (page instanceof OkPage) {
+            return RobotsTxtParser.parse(page.getContent(), userAgent);
+        }
+        if (UNREACHABLE.contains(page.getStatusCode())) {
+            log.debug("robots.txt of " + origin + " is unreachable: " + page.getStatusCode());
+            return null;
+        }
+        return RobotsRules.ALLOW_ALL;
+    }
+
+    // scheme and network location, lower-cased; null for urls without them
+    static String origin(final String url) {
+        int schemeEnd = url.indexOf("://");
+        String host = UrlUtils.host(url);
+        if ((schemeEnd <= 0) || (host.length() == 0)) {
+            return null;
+        }
+        return url.substring(0, schemeEnd).toLowerCase(Locale.ENGLISH) + "://" + host;
+    }
+
+    // path and query, without the fragment
+    static String path(final String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.length();
+        int pathStart = -1;
+        for (int i = start; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '#') {
+                end = i;
+                break;
+            }
+            if ((pathStart < 0) && ((c == '/') || (c == '?'))) {
+                pathStart = i;
+            }
+        }
+        if ((pathStart < 0) || (pathStart >= end)) {
+            return "/";
+        }
+        String path = url.substring(pathStart, end);
+        return path.charAt(0) == '/' ? path : "/" + path;
+    }
+
+    private final class Entry {
+
+        private final CompletableFuture<RobotsRules> rules = new CompletableFuture<RobotsRules>();
+        // only read once rules is done
+        private volatile long expiresAt;
+
+        private void fetch(final String origin) {
+            try {
+                RobotsRules fetched = download(origin);
+                if (fetched == null) {
+                    expiresAt = System.nanoTime() + unreachableExpiryNanos;
+                    rules.complete(RobotsRules.DISALLOW_ALL);
+                } else {
+                    expiresAt = System.nanoTime() + expiryNanos;
+                    rules.complete(fetched);
+                    if (listener != null) {
+                        long delay = Math.max(0, fetched.crawlDelayMilliseconds());
+                        listener.onCrawlDelay(UrlUtils.host(origin), Math.min(delay, maxCrawlDelayMilliseconds));
+                    }
+                }
+            } catch (RuntimeException e) {
+                // not an answer about the site: don't keep it
+                expiresAt = System.nanoTime();
+                rules.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        private boolean expired(final long now) {
+            return rules.isDone() && (now - expiresAt >= 0);
+        }
+    }
+
+}
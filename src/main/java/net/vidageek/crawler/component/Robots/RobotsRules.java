@@ -0,0 +1,162 @@
+package net.vidageek.crawler.component.Robots;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The allow and disallow rules of one robots.txt group, compiled for
+ * matching. As in RFC 9309, the longest matching rule decides, and allow wins
+ * a tie. Plain path prefixes, by far the most common rules, live in a trie,
+ * so checking a path costs one step per character whatever the number of
+ * rules. Only rules with wildcards are matched one by one, longest first.
+ */
+final public class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new Builder().build();
+    public static final RobotsRules DISALLOW_ALL = new Builder().disallow("/").build();
+
+    private final Node root;
+    private final List<WildcardRule> wildcardRules;
+    private final long crawlDelayMilliseconds;
+
+    private RobotsRules(final Node root, final List<WildcardRule> wildcardRules, final long crawlDelayMilliseconds) {
+        this.root = root;
+        this.wildcardRules = wildcardRules;
+        this.crawlDelayMilliseconds = crawlDelayMilliseconds;
+    }
+
+    /**
+     * @param path path and query of the url, starting with '/'
+     */
+    public boolean allows(final String path) {
+        if ("/robots.txt".equals(path)) {
+            return true;
+        }
+        int bestLength = -1;
+        boolean allowed = true;
+        Node node = root;
+        for (int i = 0;; i++) {
+            if (node.verdict != Node.NONE) {
+                // deeper nodes are longer matches: they always win
+                bestLength = i;
+                allowed = node.verdict == Node.ALLOW;
+            }
+            if ((i == path.length()) || (node.children == null)) {
+                break;
+            }
+            node = node.children.get(path.charAt(i));
+            if (node == null) {
+                break;
+            }
+        }
+        for (WildcardRule rule : wildcardRules) {
+            if ((rule.length < bestLength) || ((rule.length == bestLength) && allowed)) {
+                break;
+            }
+            if (rule.pattern.matcher(path).lookingAt()) {
+                return rule.allow;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * The group's Crawl-delay, or -1 if it has none.
+     */
+    public long crawlDelayMilliseconds() {
+        return crawlDelayMilliseconds;
+    }
+
+    private static final class Node {
+
+        private static final byte NONE = 0;
+        private static final byte ALLOW = 1;
+        private static final byte DISALLOW = 2;
+
+        private Map<Character, Node> children;
+        private byte verdict = NONE;
+    }
+
+    private static final class WildcardRule {
+
+        private final int length;
+        private final boolean allow;
+        private final Pattern pattern;
+
+        private WildcardRule(final String rule, final boolean allow) {
+            this.length = rule.length();
+            this.allow = allow;
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < rule.length(); i++) {
+                char c = rule.charAt(i);
+                if (c == '*') {
+                    regex.append(".*");
+                } else if ((c == '$') && (i == rule.length() - 1)) {
+                    regex.append('$');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+
+    /**
+     * Collects the rules of a group. Not thread-safe; the built rules are.
+     */
+    final public static class Builder {
+
+        private final Node root = new Node();
+        private final List<WildcardRule> wildcardRules = new ArrayList<WildcardRule>();
+        private long crawlDelayMilliseconds = -1;
+
+        public Builder allow(final String rule) {
+            return add(rule, true);
+        }
+
+        public Builder disallow(final String rule) {
+            return add(rule, false);
+        }
+
+        public Builder crawlDelayMilliseconds(final long crawlDelayMilliseconds) {
+            this.crawlDelayMilliseconds = crawlDelayMilliseconds;
+            return this;
+        }
+
+        public RobotsRules build() {
+            List<WildcardRule> sorted = new ArrayList<WildcardRule>(wildcardRules);
+            // longest first, allow before disallow
+            Collections.sort(sorted, (a, b) -> (a.length != b.length) ? b.length - a.length
+                    : Boolean.compare(b.allow, a.allow));
+            return new RobotsRules(root, sorted, crawlDelayMilliseconds);
+        }
+
+        private Builder add(final String rule, final boolean allow) {
+            if ((rule.indexOf('*') >= 0) || rule.endsWith("$")) {
+                wildcardRules.add(new WildcardRule(rule, allow));
+                return this;
+            }
+            Node node = root;
+            for (int i = 0; i < rule.length(); i++) {
+                if (node.children == null) {
+                    node.children = new HashMap<Character, Node>(4);
+                }
+                Node child = node.children.get(rule.charAt(i));
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(rule.charAt(i), child);
+                }
+                node = child;
+            }
+            if (allow || (node.verdict == Node.NONE)) {
+                node.verdict = allow ? Node.ALLOW : Node.DISALLOW;
+            }
+            return this;
+        }
+    }
+
+}
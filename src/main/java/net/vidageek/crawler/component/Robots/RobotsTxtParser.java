@@ -0,0 +1,115 @@
+package net.vidageek.crawler.component.Robots;
+
+import java.util.Locale;
+
+/**
+ * Parses robots.txt as described by RFC 9309. Only the groups for the
+ * crawler's product token are kept, merged if there are several, or, when
+ * none names it, the groups for '*'. Lines the parser does not understand are
+ * skipped.
+ */
+final class RobotsTxtParser {
+
+    private RobotsTxtParser() {
+    }
+
+    /**
+     * @param userAgent the crawler's user agent; only its product token, up to
+     *            the first '/' or space, is matched
+     */
+    static RobotsRules parse(final String content, final String userAgent) {
+        final String productToken = productToken(userAgent);
+        RobotsRules.Builder specific = null;
+        RobotsRules.Builder any = null;
+        boolean groupIsSpecific = false;
+        boolean groupIsAny = false;
+        boolean inRules = false;
+
+        int start = 0;
+        while (start < content.length()) {
+            int end = start;
+            while ((end < content.length()) && (content.charAt(end) != '\n') && (content.charAt(end) != '\r')) {
+                end++;
+            }
+            String line = content.substring(start, end);
+            start = end + 1;
+
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+            String value = line.substring(colon + 1).trim();
+
+            if ("user-agent".equals(key)) {
+                if (inRules) {
+                    groupIsSpecific = false;
+                    groupIsAny = false;
+                    inRules = false;
+                }
+                String token = productToken(value);
+                if ("*".equals(token)) {
+                    groupIsAny = true;
+                    if (any == null) {
+                        any = new RobotsRules.Builder();
+                    }
+                } else if ((token.length() > 0) && token.equals(productToken)) {
+                    groupIsSpecific = true;
+                    if (specific == null) {
+                        specific = new RobotsRules.Builder();
+                    }
+                }
+            } else if ("allow".equals(key) || "disallow".equals(key) || "crawl-delay".equals(key)) {
+                inRules = true;
+                if (groupIsSpecific) {
+                    add(specific, key, value);
+                }
+                if (groupIsAny) {
+                    add(any, key, value);
+                }
+            }
+        }
+        if (specific != null) {
+            return specific.build();
+        }
+        return any != null ? any.build() : RobotsRules.ALLOW_ALL;
+    }
+
+    private static void add(final RobotsRules.Builder rules, final String key, final String value) {
+        if ("crawl-delay".equals(key)) {
+            try {
+                double seconds = Double.parseDouble(value);
+                if ((seconds >= 0) && !Double.isInfinite(seconds)) {
+                    rules.crawlDelayMilliseconds((long) (seconds * 1000));
+                }
+            } catch (NumberFormatException e) {
+                // not a delay: ignored like any other unknown line
+            }
+            return;
+        }
+        // an empty rule matches nothing
+        if (value.length() == 0) {
+            return;
+        }
+        String path = (value.charAt(0) == '/') || (value.charAt(0) == '*') ? value : "/" + value;
+        if ("allow".equals(key)) {
+            rules.allow(path);
+        } else {
+            rules.disallow(path);
+        }
+    }
+
+    private static String productToken(final String userAgent) {
+        int end = 0;
+        while ((end < userAgent.length()) && (userAgent.charAt(end) != '/')
+                && !Character.isWhitespace(userAgent.charAt(end))) {
+            end++;
+        }
+        return userAgent.substring(0, end).toLowerCase(Locale.ENGLISH);
+    }
+
+}
@@ -0,0 +1,14 @@
+package net.vidageek.crawler.component.Sitemap;
+
+/**
+ * Receives the urls listed by sitemaps, in document order.
+ */
+public interface SitemapListener {
+
+    /**
+     * @param lastModified the url's lastmod in milliseconds since the epoch,
+     *            or 0 if the sitemap gives none or an unreadable one
+     */
+    void onUrl(String url, long lastModified);
+
+}
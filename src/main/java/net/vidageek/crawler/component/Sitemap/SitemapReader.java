@@ -0,0 +1,210 @@
+package net.vidageek.crawler.component.Sitemap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Streams the urls of sitemaps and sitemap indexes to a
+ * {@link SitemapListener}. Documents are parsed as they arrive, gzipped or
+ * not, so memory use does not depend on their size. The sitemaps an index
+ * lists are read one after the other, each at most once, up to maxSitemaps
+ * documents per {@link #read(String, SitemapListener)}.
+ *
+ * A sitemap that cannot be retrieved or parsed is logged and skipped; the
+ * urls it delivered before failing are kept.
+ */
+final public class SitemapReader {
+
+    public static final int DEFAULT_MAX_SITEMAPS = 1000;
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final Logger log = Logger.getLogger(SitemapReader.class);
+
+    private final SitemapSource source;
+    private final int maxSitemaps;
+
+    public SitemapReader(final SitemapSource source) {
+        this(source, DEFAULT_MAX_SITEMAPS);
+    }
+
+    public SitemapReader(final SitemapSource source, final int maxSitemaps) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        if (maxSitemaps <= 0) {
+            throw new IllegalArgumentException("maxSitemaps must be positive");
+        }
+        this.source = source;
+        this.maxSitemaps = maxSitemaps;
+    }
+
+    /**
+     * Reads sitemapUrl, and every sitemap it lists if it is an index.
+     *
+     * @return the number of urls given to listener
+     */
+    public long read(final String sitemapUrl, final SitemapListener listener) {
+        final ArrayDeque<String> pending = new ArrayDeque<String>();
+        final Set<String> seen = new HashSet<String>();
+        pending.add(sitemapUrl);
+        seen.add(sitemapUrl);
+        long urls = 0;
+        int sitemaps = 0;
+        while (!pending.isEmpty()) {
+            if (sitemaps == maxSitemaps) {
+                log.warn("Stopped after " + maxSitemaps + " sitemaps; " + pending.size() + " were not read");
+                break;
+            }
+            String url = pending.poll();
+            sitemaps++;
+            Counter counter = new Counter(listener);
+            try {
+                InputStream input = source.open(url);
+                try {
+                    parse(input, counter, child -> {
+                        if ((seen.size() < maxSitemaps) && seen.add(child)) {
+                            pending.add(child);
+                        }
+                    });
+                } finally {
+                    input.close();
+                }
+            } catch (IOException e) {
+                log.warn("Could not read sitemap " + url, e);
+            } catch (XMLStreamException e) {
+                log.warn("Could not parse sitemap " + url, e);
+            }
+            log.debug("Sitemap " + url + " listed " + counter.urls + " urls");
+            urls += counter.urls;
+        }
+        return urls;
+    }
+
+    /**
+     * Parses a single document, giving page urls to listener and the
+     * sitemaps of an index to sitemaps. Only http and https urls are kept.
+     */
+    static void parse(final InputStream input, final SitemapListener listener, final SitemapIndexListener sitemaps)
+            throws IOException, XMLStreamException {
+        XMLStreamReader xml = FACTORY.createXMLStreamReader(decompress(input));
+        try {
+            String loc = null;
+            long lastModified = 0;
+            boolean inEntry = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("url".equals(name) || "sitemap".equals(name)) {
+                        inEntry = true;
+                        loc = null;
+                        lastModified = 0;
+                    } else if (inEntry && "loc".equals(name)) {
+                        loc = xml.getElementText().trim();
+                    } else if (inEntry && "lastmod".equals(name)) {
+                        lastModified = parseLastModified(xml.getElementText().trim());
+                    }
+                } else if ((event == XMLStreamConstants.END_ELEMENT) && inEntry) {
+                    String name = xml.getLocalName();
+                    if ("url".equals(name) || "sitemap".equals(name)) {
+                        inEntry = false;
+                        if ((loc != null) && isHttp(loc)) {
+                            if ("url".equals(name)) {
+                                listener.onUrl(loc, lastModified);
+                            } else {
+                                sitemaps.onSitemap(loc);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * W3C datetime, from a bare date to a full timestamp with offset.
+     */
+    static long parseLastModified(final String lastmod) {
+        try {
+            if (lastmod.length() == 10) {
+                return LocalDate.parse(lastmod).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            }
+            return OffsetDateTime.parse(lastmod).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    interface SitemapIndexListener {
+        void onSitemap(String url);
+    }
+
+    private static InputStream decompress(final InputStream input) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(input, 2);
+        byte[] magic = new byte[2];
+        int read = 0;
+        while (read < 2) {
+            int n = pushback.read(magic, read, 2 - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        pushback.unread(magic, 0, read);
+        if ((read == 2) && (magic[0] == (byte) 0x1f) && (magic[1] == (byte) 0x8b)) {
+            return new GZIPInputStream(pushback, 8192);
+        }
+        return pushback;
+    }
+
+    private static boolean isHttp(final String url) {
+        String lower = url.toLowerCase(Locale.ENGLISH);
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // sitemaps have no use for DTDs, and external entities would let a
+        // sitemap read local files
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static final class Counter implements SitemapListener {
+
+        private final SitemapListener listener;
+        private long urls;
+
+        private Counter(final SitemapListener listener) {
+            this.listener = listener;
+        }
+
+        public void onUrl(final String url, final long lastModified) {
+            listener.onUrl(url, lastModified);
+            urls++;
+        }
+    }
+
+}
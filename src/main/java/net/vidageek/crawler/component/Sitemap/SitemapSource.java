@@ -0,0 +1,19 @@
+package net.vidageek.crawler.component.Sitemap;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens sitemap documents for {@link SitemapReader}.
+ */
+public interface SitemapSource {
+
+    /**
+     * Returns the body of url as it is served, possibly gzipped. The caller
+     * closes it.
+     *
+     * @throws IOException if the document cannot be retrieved
+     */
+    InputStream open(String url) throws IOException;
+
+}
@@ -0,0 +1,72 @@
+package net.vidageek.crawler.component.Sitemap.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import net.vidageek.crawler.component.Downloader.FetchLimits;
+import net.vidageek.crawler.component.Sitemap.SitemapSource;
+
+/**
+ * {@link SitemapSource} on top of the JDK's http client. The body is handed
+ * over as it arrives instead of being buffered, and redirects are followed.
+ * The read timeout bounds the wait for the headers and then every read of the
+ * body. Responses other than 200 are reported as {@link IOException}s.
+ */
+final public class HttpSitemapSource implements SitemapSource {
+
+    private final FetchLimits limits;
+    private final HttpClient client;
+
+    public HttpSitemapSource() {
+        this(FetchLimits.DEFAULT);
+    }
+
+    /**
+     * Only the timeouts of limits are used.
+     */
+    public HttpSitemapSource(final FetchLimits limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("limits cannot be null");
+        }
+        this.limits = limits;
+        HttpClient.Builder builder = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL);
+        if (limits.connectTimeoutMilliseconds() > 0) {
+            builder.connectTimeout(Duration.ofMillis(limits.connectTimeoutMilliseconds()));
+        }
+        client = builder.build();
+    }
+
+    public InputStream open(final String url) throws IOException {
+        final HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url)).GET();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid sitemap url " + url, e);
+        }
+        if (limits.readTimeoutMilliseconds() > 0) {
+            request.timeout(Duration.ofMillis(limits.readTimeoutMilliseconds()));
+        }
+        final HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while retrieving " + url);
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Sitemap " + url + " answered " + response.statusCode());
+        }
+        if (limits.readTimeoutMilliseconds() > 0) {
+            return new ReadTimeoutInputStream(response.body(), limits.readTimeoutMilliseconds());
+        }
+        return response.body();
+    }
+
+}
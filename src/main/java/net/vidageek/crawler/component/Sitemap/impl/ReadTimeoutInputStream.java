@@ -0,0 +1,97 @@
+package net.vidageek.crawler.component.Sitemap.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.Downloader.impl.FetchWatchdog;
+
+/**
+ * Closes the wrapped stream when a single read blocks for longer than the
+ * timeout, and fails that read with a {@link SocketTimeoutException}. The JDK's
+ * http client only times out until the headers arrive, so this keeps a server
+ * that stalls in the middle of a body from blocking its reader forever. The
+ * timeouts run on the {@link FetchWatchdog}.
+ */
+final class ReadTimeoutInputStream extends FilterInputStream {
+
+	private final long timeoutNanoseconds;
+	private volatile boolean timedOut;
+
+	ReadTimeoutInputStream(final InputStream in, final long timeoutMilliseconds) {
+		super(in);
+		if (timeoutMilliseconds <= 0) {
+			throw new IllegalArgumentException("timeoutMilliseconds must be positive");
+		}
+		timeoutNanoseconds = TimeUnit.MILLISECONDS.toNanos(timeoutMilliseconds);
+	}
+
+	@Override
+	public int read() throws IOException {
+		ScheduledFuture<?> timeout = schedule();
+		try {
+			return checked(in.read());
+		} catch (IOException e) {
+			throw timedOut ? timeout() : e;
+		} finally {
+			FetchWatchdog.cancel(timeout);
+		}
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		ScheduledFuture<?> timeout = schedule();
+		try {
+			return checked(in.read(b, off, len));
+		} catch (IOException e) {
+			throw timedOut ? timeout() : e;
+		} finally {
+			FetchWatchdog.cancel(timeout);
+		}
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		ScheduledFuture<?> timeout = schedule();
+		try {
+			return checked(in.skip(n));
+		} catch (IOException e) {
+			throw timedOut ? timeout() : e;
+		} finally {
+			FetchWatchdog.cancel(timeout);
+		}
+	}
+
+	private ScheduledFuture<?> schedule() throws IOException {
+		if (timedOut) {
+			throw timeout();
+		}
+		return FetchWatchdog.schedule(this::expire, System.nanoTime() + timeoutNanoseconds);
+	}
+
+	// a closed stream may end the blocked read as if the body were complete
+	private <T> T checked(final T result) throws IOException {
+		if (timedOut) {
+			throw timeout();
+		}
+		return result;
+	}
+
+	private void expire() {
+		timedOut = true;
+		try {
+			in.close();
+		} catch (IOException e) {
+			// the read fails with a timeout anyway
+		}
+	}
+
+	private SocketTimeoutException timeout() {
+		return new SocketTimeoutException("Read timed out after "
+				+ TimeUnit.NANOSECONDS.toMillis(timeoutNanoseconds) + " ms");
+	}
+
+}
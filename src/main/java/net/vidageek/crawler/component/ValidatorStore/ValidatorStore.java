@@ -0,0 +1,26 @@
+package net.vidageek.crawler.component.ValidatorStore;
+
+import net.vidageek.crawler.http.Validators;
+
+/**
+ * Remembers the validators of each downloaded url so the next download can be
+ * a conditional GET. Implementations must be thread-safe.
+ */
+public interface ValidatorStore {
+
+    /**
+     * Returns the validators recorded for url, or null.
+     */
+    Validators get(String url);
+
+    /**
+     * Records the validators of url, forgetting them if they are null or empty.
+     */
+    void put(String url, Validators validators);
+
+    /**
+     * Makes the recorded validators durable.
+     */
+    void flush();
+
+}
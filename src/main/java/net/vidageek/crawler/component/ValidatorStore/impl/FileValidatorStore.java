@@ -0,0 +1,408 @@
+package net.vidageek.crawler.component.ValidatorStore.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.vidageek.crawler.component.ValidatorStore.ValidatorStore;
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.Validators;
+import net.vidageek.crawler.utils.AppendLog;
+
+/**
+ * {@link ValidatorStore} backed by an append-only file. Only the etag and
+ * Last-Modified of each url stay in memory; the links of its page are kept in
+ * the file and read back when the url is asked for.
+ *
+ * Validators put since the last write are held in memory and appended in
+ * batches, by the thread that fills a batch or by {@link #flush()}, which
+ * also syncs the file. Nothing already written is rewritten, except when the
+ * file has grown to more than twice its live records: flush then copies
+ * those to a temporary file that replaces it, see {@link AppendLog}. A record
+ * torn by a crash is dropped when the store is opened again.
+ */
+final public class FileValidatorStore implements ValidatorStore {
+
+	private static final byte PUT = 'P';
+	private static final byte REMOVE = 'R';
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	// stands for a url removed since the last write
+	private static final Validators REMOVED = new Validators(null, null);
+
+	private final File file;
+	private final File tmpFile;
+
+	// put since the last write, links included
+	private final Map<String, Validators> pending = new ConcurrentHashMap<String, Validators>();
+	private final AtomicLong pendingSize = new AtomicLong();
+	// written to the file, links left there
+	private final Map<String, Saved> saved = new ConcurrentHashMap<String, Saved>();
+
+	// read to fetch links, write to append or swap the file
+	private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+	private RandomAccessFile reader;
+	private FileOutputStream output;
+	private DataOutputStream data;
+	private long written;
+	private long liveSize;
+
+	public FileValidatorStore(final File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("file cannot be null");
+		}
+		this.file = file;
+		tmpFile = new File(file.getPath() + ".tmp");
+		load();
+	}
+
+	public Validators get(final String url) {
+		Validators validators = pending.get(url);
+		if (validators != null) {
+			return validators == REMOVED ? null : validators;
+		}
+		Saved entry = saved.get(url);
+		if (entry == null) {
+			return null;
+		}
+		fileLock.readLock().lock();
+		try {
+			// the file may have been compacted since entry was read
+			entry = saved.get(url);
+			if (entry == null) {
+				return null;
+			}
+			return new Validators(entry.etag, entry.lastModified, readLinks(entry));
+		} catch (IOException e) {
+			throw new CrawlerException("Could not read validator store " + file, e);
+		} finally {
+			fileLock.readLock().unlock();
+		}
+	}
+
+	public void put(final String url, final Validators validators) {
+		Validators value = (validators == null) || validators.isEmpty() ? REMOVED : validators;
+		Validators previous = pending.put(url, value);
+		long size = estimatedSize(url, value) - (previous == null ? 0 : estimatedSize(url, previous));
+		if ((pendingSize.addAndGet(size) >= AppendLog.BATCH_SIZE) && fileLock.writeLock().tryLock()) {
+			try {
+				writePending();
+			} catch (IOException e) {
+				throw new CrawlerException("Could not write validator store " + file, e);
+			} finally {
+				fileLock.writeLock().unlock();
+			}
+		}
+	}
+
+	public int size() {
+		int size = saved.size();
+		for (Map.Entry<String, Validators> entry : pending.entrySet()) {
+			boolean written = saved.containsKey(entry.getKey());
+			if ((entry.getValue() == REMOVED) && written) {
+				size--;
+			} else if ((entry.getValue() != REMOVED) && !written) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	public void flush() {
+		fileLock.writeLock().lock();
+		try {
+			writePending();
+			if (data != null) {
+				data.flush();
+				output.getFD().sync();
+			}
+			if (AppendLog.needsCompaction(written, liveSize)) {
+				compact();
+			}
+		} catch (IOException e) {
+			throw new CrawlerException("Could not write validator store " + file, e);
+		} finally {
+			fileLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Flushes the store and releases its file. A later call to any method
+	 * opens it again.
+	 */
+	public void close() {
+		fileLock.writeLock().lock();
+		try {
+			flush();
+			closeFile();
+		} catch (IOException e) {
+			throw new CrawlerException("Could not close validator store " + file, e);
+		} finally {
+			fileLock.writeLock().unlock();
+		}
+	}
+
+	// must hold the write lock
+	private void writePending() throws IOException {
+		if (pending.isEmpty()) {
+			return;
+		}
+		openForAppend();
+		List<Map.Entry<String, Validators>> batch = new ArrayList<Map.Entry<String, Validators>>(pending.entrySet());
+		List<Saved> entries = new ArrayList<Saved>(batch.size());
+		for (Map.Entry<String, Validators> entry : batch) {
+			entries.add(write(entry.getKey(), entry.getValue()));
+		}
+		// records reach the file before anyone is sent there for their links
+		data.flush();
+		for (int i = 0; i < batch.size(); i++) {
+			String url = batch.get(i).getKey();
+			Saved entry = entries.get(i);
+			Saved previous = entry == null ? saved.remove(url) : saved.put(url, entry);
+			if (previous != null) {
+				liveSize -= previous.size;
+			}
+			if (entry != null) {
+				liveSize += entry.size;
+			}
+			// a newer put of the same url stays pending
+			if (pending.remove(url, batch.get(i).getValue())) {
+				pendingSize.addAndGet(-estimatedSize(url, batch.get(i).getValue()));
+			}
+		}
+	}
+
+	// must hold the write lock; returns where the links went, or null for a removal
+	private Saved write(final String url, final Validators validators) throws IOException {
+		long start = written;
+		if (validators == REMOVED) {
+			data.writeByte(REMOVE);
+			written += 1 + writeString(data, url);
+			return null;
+		}
+		data.writeByte(PUT);
+		written += 1 + writeString(data, url) + writeString(data, validators.etag())
+				+ writeString(data, validators.lastModified());
+		long position = written;
+		byte[] links = encodeLinks(validators.links());
+		data.writeInt(links.length);
+		data.write(links);
+		written += 4 + links.length;
+		return new Saved(validators.etag(), validators.lastModified(), position, links.length, written - start);
+	}
+
+	/**
+	 * Copies the live records to a temporary file that replaces the store.
+	 * Must hold the write lock, with nothing pending.
+	 */
+	private void compact() throws IOException {
+		closeFile();
+		Map<String, Saved> compacted = new ConcurrentHashMap<String, Saved>();
+		RandomAccessFile source = new RandomAccessFile(file, "r");
+		try {
+			output = new FileOutputStream(tmpFile);
+			data = new DataOutputStream(new BufferedOutputStream(output));
+			written = 0;
+			for (Map.Entry<String, Saved> entry : saved.entrySet()) {
+				Saved old = entry.getValue();
+				long start = written;
+				data.writeByte(PUT);
+				written += 1 + writeString(data, entry.getKey()) + writeString(data, old.etag)
+						+ writeString(data, old.lastModified);
+				long position = written;
+				byte[] links = new byte[old.linksLength];
+				source.seek(old.position + 4);
+				source.readFully(links);
+				data.writeInt(links.length);
+				data.write(links);
+				written += 4 + links.length;
+				compacted.put(entry.getKey(), new Saved(old.etag, old.lastModified, position, links.length,
+						written - start));
+			}
+			data.flush();
+			output.getFD().sync();
+		} finally {
+			source.close();
+			closeFile();
+		}
+		AppendLog.replace(tmpFile, file);
+		saved.putAll(compacted);
+		liveSize = written;
+	}
+
+	// must hold the write lock
+	private void openForAppend() throws IOException {
+		if (data == null) {
+			output = new FileOutputStream(file, true);
+			data = new DataOutputStream(new BufferedOutputStream(output));
+			written = file.length();
+		}
+	}
+
+	// must hold the write lock
+	private void closeFile() throws IOException {
+		try {
+			if (data != null) {
+				data.flush();
+				output.close();
+			}
+			if (reader != null) {
+				reader.close();
+			}
+		} finally {
+			output = null;
+			data = null;
+			reader = null;
+		}
+	}
+
+	// must hold the read lock
+	private List<String> readLinks(final Saved entry) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(entry.linksLength);
+		FileChannel channel = reader().getChannel();
+		long position = entry.position + 4;
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new EOFException("Validator store " + file + " is shorter than what was written to it");
+			}
+		}
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+		int count = input.readInt();
+		List<String> links = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			links.add(readString(input));
+		}
+		return links;
+	}
+
+	// opened once under the read lock; the write lock closes it
+	private synchronized RandomAccessFile reader() throws IOException {
+		if (reader == null) {
+			reader = new RandomAccessFile(file, "r");
+		}
+		return reader;
+	}
+
+	private void load() {
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			long valid = AppendLog.replay(file, Long.MAX_VALUE, (type, input, start) -> {
+				if (type == REMOVE) {
+					String url = readString(input);
+					Saved previous = saved.remove(url);
+					if (previous != null) {
+						liveSize -= previous.size;
+					}
+					return 1 + sizeOf(url);
+				} else if (type == PUT) {
+					String url = readString(input);
+					String etag = readString(input);
+					String lastModified = readString(input);
+					long position = start + 1 + sizeOf(url) + sizeOf(etag) + sizeOf(lastModified);
+					int length = input.readInt();
+					input.readFully(new byte[length]);
+					Saved entry = new Saved(etag, lastModified, position, length, position + 4 + length - start);
+					Saved previous = saved.put(url, entry);
+					if (previous != null) {
+						liveSize -= previous.size;
+					}
+					liveSize += entry.size;
+					return entry.size;
+				}
+				throw new CrawlerException("Validator store " + file + " is corrupted.");
+			});
+			AppendLog.dropTornTail(file, valid);
+		} catch (IOException e) {
+			throw new CrawlerException("Could not read validator store " + file, e);
+		}
+	}
+
+	private static byte[] encodeLinks(final List<String> links) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream linksData = new DataOutputStream(bytes);
+		linksData.writeInt(links.size());
+		for (String link : links) {
+			writeString(linksData, link);
+		}
+		return bytes.toByteArray();
+	}
+
+	// rough size of a pending entry, counting chars as bytes
+	private static long estimatedSize(final String url, final Validators validators) {
+		long size = url.length();
+		if (validators != REMOVED) {
+			for (String link : validators.links()) {
+				size += link.length();
+			}
+		}
+		return size;
+	}
+
+	// length -1 stands for null; returns the bytes written
+	private static int writeString(final DataOutputStream data, final String value) throws IOException {
+		if (value == null) {
+			data.writeInt(-1);
+			return 4;
+		}
+		byte[] bytes = value.getBytes(UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+		return 4 + bytes.length;
+	}
+
+	private static int sizeOf(final String value) {
+		return value == null ? 4 : 4 + value.getBytes(UTF_8).length;
+	}
+
+	private static String readString(final DataInputStream data) throws IOException {
+		int length = data.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Validators of a written url: where its links are in the file and how
+	 * many bytes its whole record takes.
+	 */
+	private static final class Saved {
+
+		private final String etag;
+		private final String lastModified;
+		private final long position;
+		private final int linksLength;
+		private final long size;
+
+		private Saved(final String etag, final String lastModified, final long position, final int linksLength,
+				final long size) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.position = position;
+			this.linksLength = linksLength;
+			this.size = size;
+		}
+	}
+
+}
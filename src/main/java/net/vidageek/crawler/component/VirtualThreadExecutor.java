@@ -0,0 +1,113 @@
+package net.vidageek.crawler.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs every task on its own virtual thread. Tasks go through the given queue
+ * first, and a single dispatcher thread takes them out of it as the queue
+ * allows, so the queue's delays still decide when each request starts. At
+ * most maxRunning tasks run at once: the dispatcher waits for one to finish
+ * before it takes the next, so the others stay in the queue.
+ */
+final public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private final Logger log = Logger.getLogger(VirtualThreadExecutor.class);
+
+    private final BlockingQueue<Runnable> queue;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore running;
+    private final Thread dispatcher;
+    private volatile boolean shutdown;
+
+    public VirtualThreadExecutor(final BlockingQueue<Runnable> queue, final int maxRunning) {
+        if (queue == null) {
+            throw new IllegalArgumentException("queue cannot be null");
+        }
+        if (maxRunning <= 0) {
+            throw new IllegalArgumentException("maxRunning must be positive");
+        }
+        this.queue = queue;
+        running = new Semaphore(maxRunning);
+        dispatcher = Thread.ofPlatform().name("crawler-dispatcher").daemon().start(this::dispatch);
+    }
+
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("executor was shut down");
+        }
+        queue.offer(command);
+    }
+
+    private void dispatch() {
+        try {
+            while (!shutdown) {
+                running.acquire();
+                final Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    running.release();
+                    throw e;
+                }
+                workers.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            // shut down
+        } catch (RejectedExecutionException e) {
+            log.debug("dispatcher stopped: workers were shut down");
+        }
+    }
+
+    /**
+     * Stops taking tasks from the queue. Tasks already running are allowed to
+     * finish; the ones still queued are not run.
+     */
+    public void shutdown() {
+        shutdown = true;
+        dispatcher.interrupt();
+        workers.shutdown();
+    }
+
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        dispatcher.interrupt();
+        List<Runnable> pending = new ArrayList<Runnable>();
+        queue.drainTo(pending);
+        workers.shutdownNow();
+        return pending;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isTerminated() {
+        return shutdown && !dispatcher.isAlive() && workers.isTerminated();
+    }
+
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        dispatcher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        return workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) && !dispatcher.isAlive();
+    }
+
+}
@@ -0,0 +1,23 @@
+package net.vidageek.crawler.component.VisitedSet;
+
+/**
+ * Set of urls already scheduled by a crawl. Implementations must be thread
+ * safe and {@link #add(String)} must check and insert atomically, so that a
+ * url is accepted only once even when many threads find it at the same time.
+ */
+public interface VisitedSet {
+
+	/**
+	 * @return true if the link was not in the set before this call
+	 */
+	boolean add(String link);
+
+	/**
+	 * Same as {@link #add(String)}, for a fingerprint computed with
+	 * {@link net.vidageek.crawler.utils.UrlFingerprint#of(String)}.
+	 */
+	boolean add(long fingerprint);
+
+	long size();
+
+}
@@ -0,0 +1,132 @@
+package net.vidageek.crawler.component.VisitedSet.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.vidageek.crawler.component.VisitedSet.VisitedSet;
+import net.vidageek.crawler.utils.UrlFingerprint;
+
+/**
+ * Probabilistic {@link VisitedSet} backed by a Bloom filter sized up front
+ * for an expected number of urls and a false positive rate, so its memory
+ * never grows. A false positive makes the crawler skip a url it has never
+ * seen; urls are never followed twice.
+ *
+ * Inserting more urls than expected keeps working but raises the error rate
+ * above the configured one; {@link #estimatedFalsePositiveRate()} reports the
+ * current value.
+ */
+final public class BloomFilterVisitedSet implements VisitedSet {
+
+	private static final int LOCK_STRIPES = 256;
+
+	private final AtomicLongArray bits;
+	private final long numberOfBits;
+	private final int numberOfHashes;
+	private final long expectedUrls;
+	private final double falsePositiveRate;
+
+	private final AtomicLong bitsSet = new AtomicLong();
+	private final AtomicLong insertions = new AtomicLong();
+	// adds of the same url serialize on the same stripe, which keeps check
+	// and insert atomic
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	public BloomFilterVisitedSet(final long expectedUrls, final double falsePositiveRate) {
+		if (expectedUrls <= 0) {
+			throw new IllegalArgumentException("expectedUrls must be positive");
+		}
+		if ((falsePositiveRate <= 0) || (falsePositiveRate >= 1)) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+		this.expectedUrls = expectedUrls;
+		this.falsePositiveRate = falsePositiveRate;
+
+		long optimalBits = (long) Math.ceil(-expectedUrls * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		long words = (Math.max(optimalBits, 64) + 63) / 64;
+		if (words > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Bloom filter for " + expectedUrls + " urls at " + falsePositiveRate
+					+ " would not fit in an array");
+		}
+		bits = new AtomicLongArray((int) words);
+		numberOfBits = words * 64;
+		numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / expectedUrls * Math.log(2)));
+
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	public boolean add(final String link) {
+		return add(UrlFingerprint.of(link));
+	}
+
+	public boolean add(final long fingerprint) {
+		// Kirsch-Mitzenmacher: k indexes out of two independent hashes
+		final long hash1 = fingerprint;
+		final long hash2 = UrlFingerprint.mix(fingerprint ^ 0x9e3779b97f4a7c15L) | 1;
+		boolean added = false;
+		synchronized (locks[(int) (fingerprint & (LOCK_STRIPES - 1))]) {
+			long combined = hash1;
+			for (int i = 0; i < numberOfHashes; i++) {
+				if (set((combined & Long.MAX_VALUE) % numberOfBits)) {
+					added = true;
+				}
+				combined += hash2;
+			}
+		}
+		if (added) {
+			insertions.incrementAndGet();
+		}
+		return added;
+	}
+
+	/**
+	 * Number of urls accepted so far.
+	 */
+	public long size() {
+		return insertions.get();
+	}
+
+	/**
+	 * Fraction of the filter's bits that are set, between 0 and 1.
+	 */
+	public double fill() {
+		return (double) bitsSet.get() / numberOfBits;
+	}
+
+	/**
+	 * Chance that a url never seen before is taken as visited, given the
+	 * current fill.
+	 */
+	public double estimatedFalsePositiveRate() {
+		return Math.pow(fill(), numberOfHashes);
+	}
+
+	public long expectedUrls() {
+		return expectedUrls;
+	}
+
+	public double falsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	public long sizeInBytes() {
+		return numberOfBits / 8;
+	}
+
+	private boolean set(final long index) {
+		final int word = (int) (index >>> 6);
+		final long mask = 1L << index;
+		long current;
+		do {
+			current = bits.get(word);
+			if ((current & mask) != 0) {
+				return false;
+			}
+		} while (!bits.compareAndSet(word, current, current | mask));
+		bitsSet.incrementAndGet();
+		return true;
+	}
+
+}
@@ -0,0 +1,117 @@
+package net.vidageek.crawler.component.VisitedSet.impl;
+
+import net.vidageek.crawler.component.VisitedSet.VisitedSet;
+import net.vidageek.crawler.utils.UrlFingerprint;
+
+/**
+ * Exact {@link VisitedSet} that keeps only the 64 bit fingerprint of each url
+ * in primitive open addressing tables (linear probing, at most 75% full), so
+ * a visited url costs between 11 and 21 bytes of heap. The fingerprint space
+ * is split into 64 segments, each guarded by its own lock, which makes check
+ * and insert a single atomic step while threads adding different urls rarely
+ * meet on the same lock.
+ */
+final public class FingerprintVisitedSet implements VisitedSet {
+
+	private static final int SEGMENT_BITS = 6;
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+	public FingerprintVisitedSet() {
+		this(1 << 14);
+	}
+
+	/**
+	 * @param expectedUrls number of urls the set should hold before growing
+	 */
+	public FingerprintVisitedSet(final int expectedUrls) {
+		if (expectedUrls < 0) {
+			throw new IllegalArgumentException("expectedUrls cannot be negative");
+		}
+		int perSegment = (int) Math.min((expectedUrls / segments.length) * 4L / 3 + 1, 1 << 29);
+		int capacity = MIN_SEGMENT_CAPACITY;
+		while (capacity < perSegment) {
+			capacity <<= 1;
+		}
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment(capacity);
+		}
+	}
+
+	public boolean add(final String link) {
+		return add(UrlFingerprint.of(link));
+	}
+
+	public boolean add(long fingerprint) {
+		// 0 marks empty slots
+		if (fingerprint == 0) {
+			fingerprint = 1;
+		}
+		return segments[(int) (fingerprint >>> (64 - SEGMENT_BITS))].add(fingerprint);
+	}
+
+	public long size() {
+		long size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	private static final class Segment {
+
+		private long[] table;
+		private int count;
+		private int threshold;
+
+		private Segment(final int capacity) {
+			table = new long[capacity];
+			threshold = thresholdFor(capacity);
+		}
+
+		synchronized boolean add(final long fingerprint) {
+			if (!insert(table, fingerprint)) {
+				return false;
+			}
+			if (++count > threshold) {
+				resize();
+			}
+			return true;
+		}
+
+		synchronized int size() {
+			return count;
+		}
+
+		private void resize() {
+			long[] newTable = new long[table.length * 2];
+			for (long fingerprint : table) {
+				if (fingerprint != 0) {
+					insert(newTable, fingerprint);
+				}
+			}
+			table = newTable;
+			threshold = thresholdFor(newTable.length);
+		}
+
+		private static boolean insert(final long[] table, final long fingerprint) {
+			final int mask = table.length - 1;
+			int i = (int) fingerprint & mask;
+			long current;
+			while ((current = table[i]) != 0) {
+				if (current == fingerprint) {
+					return false;
+				}
+				i = (i + 1) & mask;
+			}
+			table[i] = fingerprint;
+			return true;
+		}
+
+		private static int thresholdFor(final int capacity) {
+			return (capacity / 4) * 3;
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package net.vidageek.crawler.component.visitor.impl;
+
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.VisitedSet.impl.BloomFilterVisitedSet;
+import net.vidageek.crawler.component.visitor.PageVisitor;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.Url;
+
+/**
+ * Works like {@link DoesNotFollowVisitedUrlVisitor}, but remembers visited urls
+ * in a {@link BloomFilterVisitedSet} of fixed size. No url is followed twice,
+ * but about {@link #estimatedFalsePositiveRate()} of the new urls are skipped
+ * as if they had already been visited.
+ */
+final public class DoesNotFollowProbablyVisitedUrlVisitor implements PageVisitor {
+
+    private final BloomFilterVisitedSet visitedUrls;
+    private final DoesNotFollowVisitedUrlVisitor visitor;
+
+    public DoesNotFollowProbablyVisitedUrlVisitor(final String beginUrl, final PageVisitor visitor,
+                                                  final long expectedUrls, final double falsePositiveRate) {
+        this(beginUrl, visitor, new BloomFilterVisitedSet(expectedUrls, falsePositiveRate));
+    }
+
+    public DoesNotFollowProbablyVisitedUrlVisitor(final String beginUrl, final PageVisitor visitor,
+                                                  final BloomFilterVisitedSet visitedUrls) {
+        this(beginUrl, visitor, visitedUrls, null);
+    }
+
+    /**
+     * @param metrics where the time of each visited set check is recorded, or
+     *            null
+     */
+    public DoesNotFollowProbablyVisitedUrlVisitor(final String beginUrl, final PageVisitor visitor,
+                                                  final BloomFilterVisitedSet visitedUrls,
+                                                  final CrawlMetrics metrics) {
+        this.visitedUrls = visitedUrls;
+        this.visitor = new DoesNotFollowVisitedUrlVisitor(beginUrl, visitor, visitedUrls, metrics);
+    }
+
+    public boolean followUrl(final Url url) {
+        return visitor.followUrl(url);
+    }
+
+    public void onError(final Url url, final Status statusError) {
+        visitor.onError(url, statusError);
+    }
+
+    public void visit(final Page page) {
+        visitor.visit(page);
+    }
+
+    public long visitedUrls() {
+        return visitedUrls.size();
+    }
+
+    /**
+     * Fraction of the filter already in use, between 0 and 1.
+     */
+    public double fill() {
+        return visitedUrls.fill();
+    }
+
+    public double estimatedFalsePositiveRate() {
+        return visitedUrls.estimatedFalsePositiveRate();
+    }
+
+}
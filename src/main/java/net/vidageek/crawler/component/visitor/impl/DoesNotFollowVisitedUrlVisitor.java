@@ -1,8 +1,9 @@
 package net.vidageek.crawler.component.visitor.impl;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Metrics.CrawlStage;
+import net.vidageek.crawler.component.VisitedSet.VisitedSet;
+import net.vidageek.crawler.component.VisitedSet.impl.FingerprintVisitedSet;
 import net.vidageek.crawler.component.visitor.PageVisitor;
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.http.Status;
@@ -19,20 +20,37 @@ final public class DoesNotFollowVisitedUrlVisitor implements PageVisitor {
     // 和onError（Url，Status）两个方法，实现对于获取到的web页面的操作，在这两个方法中对
     //页面进行具体的处理
     private final PageVisitor visitor;
-    // Using map since jdk 1.5 does not provide a good concurrent set
-    // implementation
-    private final Map<Url, String> visitedUrls = new ConcurrentHashMap<Url, String>();
+    //已经访问过的url集合，判断和加入是一个原子操作，两个线程同时找到同一个url时只有一个能够访问它
+    private final VisitedSet visitedUrls;
+    //记录每次判断和加入已访问集合的时间，为null时不记录
+    private final CrawlMetrics metrics;
 
     public DoesNotFollowVisitedUrlVisitor(final String beginUrl, final PageVisitor visitor) {
+        this(beginUrl, visitor, new FingerprintVisitedSet());
+    }
+
+    public DoesNotFollowVisitedUrlVisitor(final String beginUrl, final PageVisitor visitor,
+                                          final VisitedSet visitedUrls) {
+        this(beginUrl, visitor, visitedUrls, null);
+    }
+
+    public DoesNotFollowVisitedUrlVisitor(final String beginUrl, final PageVisitor visitor,
+                                          final VisitedSet visitedUrls, final CrawlMetrics metrics) {
         this.visitor = visitor;
-        visitedUrls.put(new Url(beginUrl, 0), "");
+        this.visitedUrls = visitedUrls;
+        this.metrics = metrics;
+        visitedUrls.add(beginUrl);
     }
 
     public boolean followUrl(final Url url) {
-        if (visitedUrls.get(url) != null) {
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final boolean added = visitedUrls.add(url.link());
+        if (metrics != null) {
+            metrics.record(CrawlStage.VISITED_CHECK, System.nanoTime() - start);
+        }
+        if (!added) {
             return false;
         }
-        visitedUrls.put(url, "");
 
         //在经过不重复访问Visitor DoesNotFollowVisitedUrlVisitor的不重复访问判断后，
         // 由用户自定义的PageVisitor作进一步判断，是否对这个页面进行访问。
@@ -1,10 +1,25 @@
 package net.vidageek.crawler.config;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import net.vidageek.crawler.component.LinkNormalizer.impl.DefaultLinkNormalizer;
+import net.vidageek.crawler.component.Dns.impl.CachingDnsResolver;
 import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.FetchLimits;
 import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Progress.ProgressListener;
+import net.vidageek.crawler.component.Progress.impl.LoggingProgressListener;
+import net.vidageek.crawler.component.Robots.RobotsCache;
+import net.vidageek.crawler.component.Sitemap.SitemapSource;
+import net.vidageek.crawler.component.Sitemap.impl.HttpSitemapSource;
+import net.vidageek.crawler.component.ValidatorStore.ValidatorStore;
+import net.vidageek.crawler.component.Downloader.impl.AsyncWebDownloader;
 import net.vidageek.crawler.component.Downloader.impl.WebDownloader;
 
 /**
@@ -19,11 +34,41 @@ final public class CrawlerConfiguration {
 
 	private final String beginUrl;
 	private Downloader downloader;
+	// downloaders built here rather than given, shut down by shutdownDownloaders()
+	private Downloader builtDownloader;
+	private Downloader builtRobotsDownloader;
 	private LinkNormalizer normalizer;
 	private int minPoolSize;
 	private int maxPoolSize;
 	private long keepAliveMilliseconds;
 	private int requestDelayMilliseconds;
+	private boolean requestDelayPerHost;
+	private int maxConnections;
+	private int maxConnectionsPerRoute;
+	private long expectedUrls;
+	private double falsePositiveRate;
+	private int frontierHotWindowSize;
+	private File frontierSpillDirectory;
+	private File checkpointDirectory;
+	private long checkpointIntervalMilliseconds;
+	private ProgressListener progressListener;
+	private long progressIntervalMilliseconds;
+	private int maxVirtualThreads;
+	private int maxInFlight;
+	private int maxInFlightPerHost;
+	private ValidatorStore validatorStore;
+	private int connectTimeoutMilliseconds;
+	private int readTimeoutMilliseconds;
+	private long maxBodyBytes;
+	private long fetchDeadlineMilliseconds;
+	private CachingDnsResolver dnsCache;
+	private String robotsUserAgent;
+	private long robotsExpiryMilliseconds;
+	private long maxCrawlDelayMilliseconds;
+	private Downloader robotsDownloader;
+	private final List<String> sitemaps;
+	private SitemapSource sitemapSource;
+	private CrawlMetrics metrics;
 
 	public CrawlerConfiguration(final String beginUrl) {
 		if ((beginUrl == null) || (beginUrl.trim().length() == 0)) {
@@ -33,19 +78,64 @@ final public class CrawlerConfiguration {
 			throw new IllegalArgumentException("beginUrl must start with http:// or https://");
 		}
 		this.beginUrl = beginUrl;
-		downloader = new WebDownloader();
 		normalizer = new DefaultLinkNormalizer(beginUrl);
 		minPoolSize = 30;
 		maxPoolSize = 30;
 		keepAliveMilliseconds = 30000;
 		requestDelayMilliseconds = 1000;
+		requestDelayPerHost = false;
+		maxConnections = 0;
+		maxConnectionsPerRoute = 0;
+		expectedUrls = 0;
+		falsePositiveRate = 0;
+		frontierHotWindowSize = 0;
+		frontierSpillDirectory = null;
+		checkpointDirectory = null;
+		checkpointIntervalMilliseconds = 0;
+		progressListener = new LoggingProgressListener();
+		progressIntervalMilliseconds = 1000;
+		maxVirtualThreads = 0;
+		maxInFlight = 0;
+		maxInFlightPerHost = 0;
+		validatorStore = null;
+		connectTimeoutMilliseconds = 15000;
+		readTimeoutMilliseconds = 15000;
+		maxBodyBytes = 0;
+		fetchDeadlineMilliseconds = 0;
+		dnsCache = null;
+		robotsUserAgent = null;
+		robotsExpiryMilliseconds = RobotsCache.DEFAULT_EXPIRY_MILLISECONDS;
+		maxCrawlDelayMilliseconds = 30000;
+		robotsDownloader = null;
+		sitemaps = new ArrayList<String>();
+		sitemapSource = null;
+		metrics = null;
 	}
 
 	public String beginUrl() {
 		return beginUrl;
 	}
 
-	public Downloader downloader() {
+	/**
+	 * Returns the configured downloader or, if none was given, a
+	 * {@link WebDownloader} or {@link AsyncWebDownloader} built once from this
+	 * configuration.
+	 */
+	public synchronized Downloader downloader() {
+		if (downloader == null) {
+			if (usesAsyncDownloads()) {
+				downloader = AsyncWebDownloader.builder(maxInFlight, maxInFlightPerHost)
+						.withValidatorStore(validatorStore).withFetchLimits(fetchLimits()).withMetrics(metrics)
+						.withHostDelay(requestDelayMilliseconds).build();
+			} else {
+				downloader = WebDownloader.builder()
+						.withSharedClient(usesConnectionPool() ? WebDownloader.createPooledClient(
+								maxConnections, maxConnectionsPerRoute, dnsCache) : null)
+						.withValidatorStore(validatorStore).withFetchLimits(fetchLimits()).withDnsResolver(dnsCache)
+						.withMetrics(metrics).build();
+			}
+			builtDownloader = downloader;
+		}
 		return downloader;
 	}
 
@@ -69,11 +159,238 @@ final public class CrawlerConfiguration {
 		return requestDelayMilliseconds;
 	}
 
+	public boolean requestDelayPerHost() {
+		return requestDelayPerHost;
+	}
+
+	public int maxConnections() {
+		return maxConnections;
+	}
+
+	public int maxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public boolean usesConnectionPool() {
+		return maxConnections > 0;
+	}
+
+	public long expectedUrls() {
+		return expectedUrls;
+	}
+
+	public double falsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	/**
+	 * Whether visited urls are kept in a fixed size Bloom filter instead of an
+	 * exact set.
+	 */
+	public boolean usesProbabilisticVisitedSet() {
+		return expectedUrls > 0;
+	}
+
+	public int frontierHotWindowSize() {
+		return frontierHotWindowSize;
+	}
+
+	public File frontierSpillDirectory() {
+		return frontierSpillDirectory;
+	}
+
+	/**
+	 * Whether pending urls past the hot window are spilled to disk.
+	 */
+	public boolean spillsFrontier() {
+		return frontierHotWindowSize > 0;
+	}
+
+	public File checkpointDirectory() {
+		return checkpointDirectory;
+	}
+
+	public long checkpointIntervalMilliseconds() {
+		return checkpointIntervalMilliseconds;
+	}
+
+	/**
+	 * Whether the crawl is journaled so it can be resumed.
+	 */
+	public boolean checkpoints() {
+		return checkpointDirectory != null;
+	}
+
+	public ProgressListener progressListener() {
+		return progressListener;
+	}
+
+	public long progressIntervalMilliseconds() {
+		return progressIntervalMilliseconds;
+	}
+
+	/**
+	 * Whether each executor runs on its own virtual thread instead of on the
+	 * fixed pool sized by minPoolSize and maxPoolSize.
+	 */
+	public boolean virtualThreads() {
+		return maxVirtualThreads > 0;
+	}
+
+	/**
+	 * How many executors may run on virtual threads at once. Unlike
+	 * maxPoolSize it does not stand for OS threads, so it can be much higher.
+	 */
+	public int maxVirtualThreads() {
+		return maxVirtualThreads;
+	}
+
+	public int maxInFlight() {
+		return maxInFlight;
+	}
+
+	public int maxInFlightPerHost() {
+		return maxInFlightPerHost;
+	}
+
+	public boolean usesAsyncDownloads() {
+		return maxInFlight > 0;
+	}
+
+	/**
+	 * Where the built-in downloaders keep ETag and Last-Modified for
+	 * conditional GETs, or null when every page is downloaded in full.
+	 */
+	public ValidatorStore validatorStore() {
+		return validatorStore;
+	}
+
+	public int connectTimeoutMilliseconds() {
+		return connectTimeoutMilliseconds;
+	}
+
+	public int readTimeoutMilliseconds() {
+		return readTimeoutMilliseconds;
+	}
+
+	public long maxBodyBytes() {
+		return maxBodyBytes;
+	}
+
+	public long fetchDeadlineMilliseconds() {
+		return fetchDeadlineMilliseconds;
+	}
+
+	/**
+	 * Resolver the built-in {@link WebDownloader} connects through, which the
+	 * crawler also uses to prefetch the hosts of the urls about to be
+	 * dequeued; null when neither is done.
+	 */
+	public CachingDnsResolver dnsCache() {
+		return dnsCache;
+	}
+
+	/**
+	 * Product token matched against the User-agent lines of robots.txt, or
+	 * null when robots.txt is not read.
+	 */
+	public String robotsUserAgent() {
+		return robotsUserAgent;
+	}
+
+	public long robotsExpiryMilliseconds() {
+		return robotsExpiryMilliseconds;
+	}
+
+	public long maxCrawlDelayMilliseconds() {
+		return maxCrawlDelayMilliseconds;
+	}
+
+	public boolean followsRobots() {
+		return robotsUserAgent != null;
+	}
+
+	/**
+	 * Returns the downloader robots.txt files are fetched with or, if none was
+	 * given, a {@link WebDownloader} for text files of up to 512 KiB built once
+	 * from this configuration.
+	 */
+	public synchronized Downloader robotsDownloader() {
+		if (robotsDownloader == null) {
+			robotsDownloader = WebDownloader.builder().withMimeTypes(Arrays.asList("text/"))
+					.withFetchLimits(new FetchLimits(connectTimeoutMilliseconds, readTimeoutMilliseconds, 512 * 1024,
+							fetchDeadlineMilliseconds)).withDnsResolver(dnsCache).build();
+			builtRobotsDownloader = robotsDownloader;
+		}
+		return robotsDownloader;
+	}
+
+	/**
+	 * Sitemaps, or sitemap indexes, whose urls are scheduled when a new crawl
+	 * starts.
+	 */
+	public List<String> sitemaps() {
+		return Collections.unmodifiableList(sitemaps);
+	}
+
+	/**
+	 * Returns where sitemaps are read from or, if none was given, an
+	 * {@link HttpSitemapSource} built once with this configuration's timeouts.
+	 */
+	public synchronized SitemapSource sitemapSource() {
+		if (sitemapSource == null) {
+			sitemapSource = new HttpSitemapSource(fetchLimits());
+		}
+		return sitemapSource;
+	}
+
+	/**
+	 * Where the time spent on each stage of the crawl is recorded, or null.
+	 */
+	public CrawlMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Limits given to the built-in downloaders.
+	 */
+	public FetchLimits fetchLimits() {
+		return new FetchLimits(connectTimeoutMilliseconds, readTimeoutMilliseconds, maxBodyBytes,
+				fetchDeadlineMilliseconds);
+	}
+
+	/**
+	 * Releases the connections and threads of the downloaders this
+	 * configuration built. Downloaders given to it are left to their owner.
+	 * The next call to {@link #downloader()} or {@link #robotsDownloader()}
+	 * builds new ones.
+	 */
+	public synchronized void shutdownDownloaders() {
+		shutdown(builtDownloader);
+		if (downloader == builtDownloader) {
+			downloader = null;
+		}
+		builtDownloader = null;
+		shutdown(builtRobotsDownloader);
+		if (robotsDownloader == builtRobotsDownloader) {
+			robotsDownloader = null;
+		}
+		builtRobotsDownloader = null;
+	}
+
+	private static void shutdown(final Downloader downloader) {
+		if (downloader instanceof WebDownloader) {
+			((WebDownloader) downloader).shutdown();
+		} else if (downloader instanceof AsyncWebDownloader) {
+			((AsyncWebDownloader) downloader).shutdown();
+		}
+	}
+
 	public static CrawlerConfigurationBuilder forStartPoint(final String beginUrl) {
 		return new CrawlerConfigurationBuilder(beginUrl);
 	}
 
-	public void downloader(final Downloader downloader) {
+	public synchronized void downloader(final Downloader downloader) {
 		this.downloader = downloader;
 	}
 
@@ -99,4 +416,112 @@ final public class CrawlerConfiguration {
 		this.requestDelayMilliseconds = requestDelayMilliseconds;
 	}
 
+	public void requestDelayPerHost(final boolean requestDelayPerHost) {
+		this.requestDelayPerHost = requestDelayPerHost;
+	}
+
+	public void maxConnections(final int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public void maxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public void expectedUrls(final long expectedUrls) {
+		this.expectedUrls = expectedUrls;
+	}
+
+	public void falsePositiveRate(final double falsePositiveRate) {
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	public void frontierHotWindowSize(final int frontierHotWindowSize) {
+		this.frontierHotWindowSize = frontierHotWindowSize;
+	}
+
+	public void frontierSpillDirectory(final File frontierSpillDirectory) {
+		this.frontierSpillDirectory = frontierSpillDirectory;
+	}
+
+	public void checkpointDirectory(final File checkpointDirectory) {
+		this.checkpointDirectory = checkpointDirectory;
+	}
+
+	public void checkpointIntervalMilliseconds(final long checkpointIntervalMilliseconds) {
+		this.checkpointIntervalMilliseconds = checkpointIntervalMilliseconds;
+	}
+
+	public void progressListener(final ProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	public void progressIntervalMilliseconds(final long progressIntervalMilliseconds) {
+		this.progressIntervalMilliseconds = progressIntervalMilliseconds;
+	}
+
+	public void maxVirtualThreads(final int maxVirtualThreads) {
+		this.maxVirtualThreads = maxVirtualThreads;
+	}
+
+	public void maxInFlight(final int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public void maxInFlightPerHost(final int maxInFlightPerHost) {
+		this.maxInFlightPerHost = maxInFlightPerHost;
+	}
+
+	public void validatorStore(final ValidatorStore validatorStore) {
+		this.validatorStore = validatorStore;
+	}
+
+	public void connectTimeoutMilliseconds(final int connectTimeoutMilliseconds) {
+		this.connectTimeoutMilliseconds = connectTimeoutMilliseconds;
+	}
+
+	public void readTimeoutMilliseconds(final int readTimeoutMilliseconds) {
+		this.readTimeoutMilliseconds = readTimeoutMilliseconds;
+	}
+
+	public void maxBodyBytes(final long maxBodyBytes) {
+		this.maxBodyBytes = maxBodyBytes;
+	}
+
+	public void fetchDeadlineMilliseconds(final long fetchDeadlineMilliseconds) {
+		this.fetchDeadlineMilliseconds = fetchDeadlineMilliseconds;
+	}
+
+	public void dnsCache(final CachingDnsResolver dnsCache) {
+		this.dnsCache = dnsCache;
+	}
+
+	public void robotsUserAgent(final String robotsUserAgent) {
+		this.robotsUserAgent = robotsUserAgent;
+	}
+
+	public void robotsExpiryMilliseconds(final long robotsExpiryMilliseconds) {
+		this.robotsExpiryMilliseconds = robotsExpiryMilliseconds;
+	}
+
+	public void maxCrawlDelayMilliseconds(final long maxCrawlDelayMilliseconds) {
+		this.maxCrawlDelayMilliseconds = maxCrawlDelayMilliseconds;
+	}
+
+	public synchronized void robotsDownloader(final Downloader robotsDownloader) {
+		this.robotsDownloader = robotsDownloader;
+	}
+
+	public void addSitemap(final String sitemap) {
+		sitemaps.add(sitemap);
+	}
+
+	public synchronized void sitemapSource(final SitemapSource sitemapSource) {
+		this.sitemapSource = sitemapSource;
+	}
+
+	public void metrics(final CrawlMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 }
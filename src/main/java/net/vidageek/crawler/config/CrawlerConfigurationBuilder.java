@@ -1,7 +1,16 @@
 package net.vidageek.crawler.config;
 
+import java.io.File;
+
+import net.vidageek.crawler.component.Dns.DnsResolver;
+import net.vidageek.crawler.component.Dns.impl.CachingDnsResolver;
+import net.vidageek.crawler.component.Dns.impl.SystemDnsResolver;
 import net.vidageek.crawler.component.Downloader.Downloader;
 import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Progress.ProgressListener;
+import net.vidageek.crawler.component.Robots.RobotsCache;
+import net.vidageek.crawler.component.ValidatorStore.ValidatorStore;
 
 /**
  * WARNING: This class is not thread-safe.
@@ -11,6 +20,8 @@ import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
  */
 final public class CrawlerConfigurationBuilder {
 
+	public static final int DEFAULT_MAX_VIRTUAL_THREADS = 10000;
+
 	private final CrawlerConfiguration configuration;
 
 	public CrawlerConfigurationBuilder(final String beginUrl) {
@@ -43,6 +54,310 @@ final public class CrawlerConfigurationBuilder {
 		return this;
 	}
 
+	/**
+	 * Applies the delay to each host separately, so requests to different hosts
+	 * don't wait for each other.
+	 */
+	public CrawlerConfigurationBuilder withRequestDelayPerHost(final int requestDelayMilliseconds) {
+		if (requestDelayMilliseconds < 0) {
+			throw new IllegalArgumentException("request delay cannot be negative");
+		}
+		configuration.requestDelayMilliseconds(requestDelayMilliseconds);
+		configuration.requestDelayPerHost(true);
+		return this;
+	}
+
+	/**
+	 * Makes the default downloader share one pooled, thread-safe http client
+	 * between all workers, reusing connections. Ignored if a downloader is
+	 * given through {@link #withDownloader(Downloader)}.
+	 */
+	public CrawlerConfigurationBuilder withConnectionPool(final int maxConnections, final int maxConnectionsPerRoute) {
+		if ((maxConnections <= 0) || (maxConnectionsPerRoute <= 0)) {
+			throw new IllegalArgumentException("connection limits must be positive");
+		}
+		if (maxConnectionsPerRoute > maxConnections) {
+			throw new IllegalArgumentException("maxConnectionsPerRoute cannot be greater than maxConnections");
+		}
+		configuration.maxConnections(maxConnections);
+		configuration.maxConnectionsPerRoute(maxConnectionsPerRoute);
+		return this;
+	}
+
+	/**
+	 * Remembers visited urls in a Bloom filter sized for expectedUrls, so the
+	 * memory used doesn't grow with the crawl. About falsePositiveRate of the
+	 * new urls will be skipped as already visited, more if the crawl finds more
+	 * than expectedUrls urls.
+	 */
+	public CrawlerConfigurationBuilder withProbabilisticVisitedSet(final long expectedUrls,
+			final double falsePositiveRate) {
+		if (expectedUrls <= 0) {
+			throw new IllegalArgumentException("expectedUrls must be positive");
+		}
+		if ((falsePositiveRate <= 0) || (falsePositiveRate >= 1)) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+		configuration.expectedUrls(expectedUrls);
+		configuration.falsePositiveRate(falsePositiveRate);
+		return this;
+	}
+
+	/**
+	 * Keeps at most hotWindowSize pending urls in memory and spills the rest
+	 * to segment files in directory, so the frontier is not bounded by the
+	 * heap.
+	 */
+	public CrawlerConfigurationBuilder withSpillingFrontier(final int hotWindowSize, final File directory) {
+		if (hotWindowSize <= 0) {
+			throw new IllegalArgumentException("hotWindowSize must be positive");
+		}
+		if ((directory == null) || !directory.isDirectory()) {
+			throw new IllegalArgumentException("directory must be an existing directory");
+		}
+		configuration.frontierHotWindowSize(hotWindowSize);
+		configuration.frontierSpillDirectory(directory);
+		return this;
+	}
+
+	/**
+	 * Same as {@link #withSpillingFrontier(int, File)}, spilling to the
+	 * temporary directory.
+	 */
+	public CrawlerConfigurationBuilder withSpillingFrontier(final int hotWindowSize) {
+		return withSpillingFrontier(hotWindowSize, new File(System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * Journals the crawl in directory and syncs it to disk every
+	 * intervalMilliseconds, so that {@link net.vidageek.crawler.PageCrawler#resume}
+	 * can continue it after a crash or restart.
+	 */
+	public CrawlerConfigurationBuilder withCheckpoints(final File directory, final int intervalMilliseconds) {
+		if ((directory == null) || !directory.isDirectory()) {
+			throw new IllegalArgumentException("directory must be an existing directory");
+		}
+		if (intervalMilliseconds <= 0) {
+			throw new IllegalArgumentException("intervalMilliseconds must be positive");
+		}
+		configuration.checkpointDirectory(directory);
+		configuration.checkpointIntervalMilliseconds(intervalMilliseconds);
+		return this;
+	}
+
+	/**
+	 * Calls listener every intervalMilliseconds while the crawl runs. By
+	 * default the progress is logged every second.
+	 */
+	public CrawlerConfigurationBuilder withProgressListener(final ProgressListener listener,
+			final int intervalMilliseconds) {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener cannot be null");
+		}
+		if (intervalMilliseconds <= 0) {
+			throw new IllegalArgumentException("intervalMilliseconds must be positive");
+		}
+		configuration.progressListener(listener);
+		configuration.progressIntervalMilliseconds(intervalMilliseconds);
+		return this;
+	}
+
+	/**
+	 * Runs each page on its own virtual thread instead of a pool of platform
+	 * threads, with up to {@value #DEFAULT_MAX_VIRTUAL_THREADS} pages crawled
+	 * at once. A blocked request no longer holds an OS thread, so
+	 * {@link #withMaxParallelRequests(int)} no longer applies. The request
+	 * delays still decide when each page starts.
+	 */
+	public CrawlerConfigurationBuilder withVirtualThreads() {
+		return withVirtualThreads(DEFAULT_MAX_VIRTUAL_THREADS);
+	}
+
+	/**
+	 * Runs each page on its own virtual thread, with up to maxRunning pages
+	 * crawled at once.
+	 */
+	public CrawlerConfigurationBuilder withVirtualThreads(final int maxRunning) {
+		if (maxRunning <= 0) {
+			throw new IllegalArgumentException("maxRunning must be positive");
+		}
+		configuration.maxVirtualThreads(maxRunning);
+		return this;
+	}
+
+	/**
+	 * Makes the default downloader an {@link net.vidageek.crawler.component.Downloader.impl.AsyncWebDownloader}:
+	 * workers only start requests, so up to maxInFlight pages (and
+	 * maxInFlightPerHost per host) are fetched at once no matter how many
+	 * threads there are. Ignored if a downloader is given through
+	 * {@link #withDownloader(Downloader)}; any downloader that implements
+	 * {@link net.vidageek.crawler.component.Downloader.AsyncDownloader} is used
+	 * asynchronously.
+	 */
+	public CrawlerConfigurationBuilder withAsyncDownloads(final int maxInFlight, final int maxInFlightPerHost) {
+		if ((maxInFlight <= 0) || (maxInFlightPerHost <= 0)) {
+			throw new IllegalArgumentException("in-flight limits must be positive");
+		}
+		if (maxInFlightPerHost > maxInFlight) {
+			throw new IllegalArgumentException("maxInFlightPerHost cannot be greater than maxInFlight");
+		}
+		configuration.maxInFlight(maxInFlight);
+		configuration.maxInFlightPerHost(maxInFlightPerHost);
+		return this;
+	}
+
+	/**
+	 * Makes the default downloaders send the ETag and Last-Modified recorded
+	 * for a url on its next fetch. Pages the server reports as unchanged are
+	 * visited as {@link net.vidageek.crawler.http.page.NotModifiedPage}s that
+	 * carry the links recorded with their validators, so the crawl still goes
+	 * past them. The store is flushed at every
+	 * checkpoint and when the crawl ends.
+	 */
+	public CrawlerConfigurationBuilder withValidatorStore(final ValidatorStore validatorStore) {
+		if (validatorStore == null) {
+			throw new IllegalArgumentException("validatorStore cannot be null");
+		}
+		configuration.validatorStore(validatorStore);
+		return this;
+	}
+
+	/**
+	 * Connect timeout and the longest wait for a single read of the built-in
+	 * downloaders. Both default to 15 seconds.
+	 */
+	public CrawlerConfigurationBuilder withTimeouts(final int connectTimeoutMilliseconds,
+			final int readTimeoutMilliseconds) {
+		if ((connectTimeoutMilliseconds <= 0) || (readTimeoutMilliseconds <= 0)) {
+			throw new IllegalArgumentException("timeouts must be positive");
+		}
+		configuration.connectTimeoutMilliseconds(connectTimeoutMilliseconds);
+		configuration.readTimeoutMilliseconds(readTimeoutMilliseconds);
+		return this;
+	}
+
+	/**
+	 * Caps the body of each page at maxBodyBytes (after decompression) and the
+	 * whole fetch at fetchDeadlineMilliseconds, enforced while the body is
+	 * read. Fetches over a limit are reported to
+	 * {@link net.vidageek.crawler.component.visitor.ContentVisitor#onError} as
+	 * {@link net.vidageek.crawler.http.Status#TRUNCATED} or
+	 * {@link net.vidageek.crawler.http.Status#ABORTED}. A zero leaves that
+	 * limit off, which is the default.
+	 */
+	public CrawlerConfigurationBuilder withFetchLimits(final long maxBodyBytes, final int fetchDeadlineMilliseconds) {
+		if ((maxBodyBytes < 0) || (fetchDeadlineMilliseconds < 0)) {
+			throw new IllegalArgumentException("fetch limits cannot be negative");
+		}
+		configuration.maxBodyBytes(maxBodyBytes);
+		configuration.fetchDeadlineMilliseconds(fetchDeadlineMilliseconds);
+		return this;
+	}
+
+	/**
+	 * Caches host resolutions for ttlMilliseconds, and unknown hosts for
+	 * negativeTtlMilliseconds, and prefetches the host of the next url in the
+	 * frontier while the current one is fetched. The built-in
+	 * {@link net.vidageek.crawler.component.Downloader.impl.WebDownloader}
+	 * connects through the cache; other downloaders still benefit from the
+	 * prefetch warming the JVM's own cache.
+	 */
+	public CrawlerConfigurationBuilder withDnsCache(final int ttlMilliseconds, final int negativeTtlMilliseconds) {
+		return withDnsCache(new SystemDnsResolver(), ttlMilliseconds, negativeTtlMilliseconds);
+	}
+
+	/**
+	 * Same as {@link #withDnsCache(int, int)}, caching the answers of the given
+	 * resolver.
+	 */
+	public CrawlerConfigurationBuilder withDnsCache(final DnsResolver resolver, final int ttlMilliseconds,
+			final int negativeTtlMilliseconds) {
+		if (resolver == null) {
+			throw new IllegalArgumentException("resolver cannot be null");
+		}
+		if (ttlMilliseconds <= 0) {
+			throw new IllegalArgumentException("ttlMilliseconds must be positive");
+		}
+		if (negativeTtlMilliseconds < 0) {
+			throw new IllegalArgumentException("negativeTtlMilliseconds cannot be negative");
+		}
+		configuration.dnsCache(new CachingDnsResolver(resolver, ttlMilliseconds, negativeTtlMilliseconds));
+		return this;
+	}
+
+	/**
+	 * Reads the robots.txt of each site before fetching anything from it, and
+	 * reports the urls it disallows to
+	 * {@link net.vidageek.crawler.component.visitor.ContentVisitor#onError} as
+	 * {@link net.vidageek.crawler.http.Status#DISALLOWED} without fetching
+	 * them. Rules are kept for a day, and the Crawl-delay of a site, up to 30
+	 * seconds, becomes its request delay when longer than the configured one.
+	 * Request delays are applied per host, as with
+	 * {@link #withRequestDelayPerHost(int)}.
+	 *
+	 * @param userAgent the crawler's product token, matched against the
+	 *            User-agent lines of robots.txt
+	 */
+	public CrawlerConfigurationBuilder withRobots(final String userAgent) {
+		return withRobots(userAgent, (int) RobotsCache.DEFAULT_EXPIRY_MILLISECONDS, 30000);
+	}
+
+	/**
+	 * Same as {@link #withRobots(String)}, keeping rules for
+	 * expiryMilliseconds and honouring Crawl-delays up to
+	 * maxCrawlDelayMilliseconds.
+	 */
+	public CrawlerConfigurationBuilder withRobots(final String userAgent, final int expiryMilliseconds,
+			final int maxCrawlDelayMilliseconds) {
+		if ((userAgent == null) || (userAgent.trim().length() == 0)) {
+			throw new IllegalArgumentException("userAgent cannot be null or empty");
+		}
+		if ((expiryMilliseconds < 0) || (maxCrawlDelayMilliseconds < 0)) {
+			throw new IllegalArgumentException("expiryMilliseconds and maxCrawlDelayMilliseconds cannot be negative");
+		}
+		configuration.robotsUserAgent(userAgent);
+		configuration.robotsExpiryMilliseconds(expiryMilliseconds);
+		configuration.maxCrawlDelayMilliseconds(maxCrawlDelayMilliseconds);
+		return this;
+	}
+
+	/**
+	 * Schedules every url listed by the given sitemaps, or by the sitemaps of
+	 * the given sitemap indexes, when a new crawl starts, right after the
+	 * begin url. Gzipped sitemaps are read too. The urls are streamed into the
+	 * frontier at depth 0, each through the visitor's followUrl like any
+	 * link, with the sitemap's lastmod in {@link net.vidageek.crawler.http.Url#lastModified()}.
+	 */
+	public CrawlerConfigurationBuilder withSitemaps(final String... sitemapUrls) {
+		if ((sitemapUrls == null) || (sitemapUrls.length == 0)) {
+			throw new IllegalArgumentException("sitemapUrls cannot be null or empty");
+		}
+		for (String sitemapUrl : sitemapUrls) {
+			if ((sitemapUrl == null) || !sitemapUrl.matches("(?s)^http[s]?://.*$")) {
+				throw new IllegalArgumentException("sitemap urls must start with http:// or https://");
+			}
+		}
+		for (String sitemapUrl : sitemapUrls) {
+			configuration.addSitemap(sitemapUrl);
+		}
+		return this;
+	}
+
+	/**
+	 * Records the count and latency of each
+	 * {@link net.vidageek.crawler.component.Metrics.CrawlStage} into metrics.
+	 * The http, body read and charset stages are only recorded by the default
+	 * downloaders, not by one given through {@link #withDownloader(Downloader)}.
+	 * Call {@link CrawlMetrics#registerMBeans(String)} to export them over JMX.
+	 */
+	public CrawlerConfigurationBuilder withMetrics(final CrawlMetrics metrics) {
+		if (metrics == null) {
+			throw new IllegalArgumentException("metrics cannot be null");
+		}
+		configuration.metrics(metrics);
+		return this;
+	}
+
 	public CrawlerConfiguration build() {
 		return configuration;
 	}
@@ -52,7 +52,37 @@ public enum Status {
 	HTTP_VERSION_NOT_SUPPORTED(505, 505),
 	SERVER_ERROR(500, 599),
 
-	UNSPECIFIED_ERROR(1, 999);
+	UNSPECIFIED_ERROR(1, 999),
+
+	/**
+	 * The body was bigger than the configured maximum and was not read to
+	 * the end.
+	 */
+	TRUNCATED,
+	/**
+	 * The fetch took longer than the configured deadline and was aborted.
+	 */
+	ABORTED,
+	/**
+	 * The site's robots.txt does not let the crawler fetch the url, so it was
+	 * not requested.
+	 */
+	DISALLOWED;
+
+	// fromHttpCode of every code up to 999; codes past it map to UNSPECIFIED_ERROR
+	private static final Status[] BY_CODE = new Status[1000];
+
+	static {
+		for (int code = 0; code < BY_CODE.length; code++) {
+			BY_CODE[code] = UNSPECIFIED_ERROR;
+			for (Status status : values()) {
+				if ((status.begin <= code) && (status.end >= code)) {
+					BY_CODE[code] = status;
+					break;
+				}
+			}
+		}
+	}
 
 	private final int begin;
 	private final int end;
@@ -62,13 +92,23 @@ public enum Status {
 		this.end = end;
 	}
 
+	/**
+	 * Status set by the crawler itself. Its range is empty, so no http code
+	 * maps to it.
+	 */
+	private Status() {
+		this(1, 0);
+	}
+
+	/**
+	 * The status of the specific code if there is one, else of its class, else
+	 * {@link #UNSPECIFIED_ERROR}. Looked up in a table built once.
+	 */
 	public static Status fromHttpCode(final int code) {
-		for (Status status : values()) {
-			if ((status.begin <= code) && (status.end >= code)) {
-				return status;
-			}
+		if ((code < 0) || (code >= BY_CODE.length)) {
+			return UNSPECIFIED_ERROR;
 		}
-		return UNSPECIFIED_ERROR;
+		return BY_CODE[code];
 	}
 
 }
@@ -8,16 +8,34 @@ final public class Url {
 
     private final String link;
     private final int depth;
+    private final long lastModified;
 
     public Url(final String link, final int depth) {
+        this(link, depth, 0);
+    }
+
+    /**
+     * @param lastModified when the page last changed, in milliseconds since
+     *            the epoch, as announced by a sitemap; 0 if unknown
+     */
+    public Url(final String link, final int depth, final long lastModified) {
         this.link = link;
         this.depth = depth;
+        this.lastModified = lastModified;
     }
 
     public int depth() {
         return depth;
     }
 
+    /**
+     * When the page last changed according to its sitemap, or 0 if unknown.
+     * Not part of equality.
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
     public String link() {
         return link;
     }
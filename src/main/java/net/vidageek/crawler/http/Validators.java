@@ -0,0 +1,50 @@
+package net.vidageek.crawler.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cache validators of a response: its ETag and Last-Modified headers. Either
+ * may be null. They carry the links of the page they were received with, so a
+ * 304 Not Modified can still lead to the pages it links to.
+ */
+final public class Validators {
+
+	private final String etag;
+	private final String lastModified;
+	private final List<String> links;
+
+	public Validators(final String etag, final String lastModified) {
+		this(etag, lastModified, new ArrayList<String>());
+	}
+
+	public Validators(final String etag, final String lastModified, final List<String> links) {
+		if (links == null) {
+			throw new IllegalArgumentException("links cannot be null");
+		}
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.links = Collections.unmodifiableList(new ArrayList<String>(links));
+	}
+
+	public String etag() {
+		return etag;
+	}
+
+	public String lastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Links of the page as it was last downloaded.
+	 */
+	public List<String> links() {
+		return links;
+	}
+
+	public boolean isEmpty() {
+		return (etag == null) && (lastModified == null);
+	}
+
+}
@@ -1,5 +1,7 @@
 package net.vidageek.crawler.http.page;
 
+import java.util.List;
+
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.http.Status;
 
@@ -13,6 +15,11 @@ public class DefaultPageFactory implements PageFactory {
 		return new OkPage(url, content);
 	}
 
+	@Override
+	public Page buildOkPage(String url, String content, String charset) {
+		return new OkPage(url, content, charset);
+	}
+
 	@Override
 	public Page buildErrorPage(String url, Status status) {
 		return new ErrorPage(url, status);
@@ -22,4 +29,9 @@ public class DefaultPageFactory implements PageFactory {
 	public Page buildRejectedMimeTypePage(String url, Status status, String mimeType) {
 		return new RejectedMimeTypePage(url, status, mimeType);
 	}
+
+	@Override
+	public Page buildNotModifiedPage(String url, List<String> links) {
+		return new NotModifiedPage(url, links);
+	}
 }
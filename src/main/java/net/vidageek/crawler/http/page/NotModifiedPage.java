@@ -0,0 +1,52 @@
+package net.vidageek.crawler.http.page;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+
+/**
+ * Page that the server reported as unchanged since the last time it was
+ * downloaded (304 Not Modified). It has no content; its links are the ones
+ * recorded the last time the page was downloaded, so the pages it leads to are
+ * still crawled.
+ */
+final public class NotModifiedPage implements Page {
+
+    private final String url;
+    private final List<String> links;
+
+    public NotModifiedPage(final String url) {
+        this(url, new ArrayList<String>());
+    }
+
+    public NotModifiedPage(final String url, final List<String> links) {
+        if (links == null) {
+            throw new IllegalArgumentException("links cannot be null");
+        }
+        this.url = url;
+        this.links = links;
+    }
+
+    public String getContent() {
+        return "";
+    }
+
+    public List<String> getLinks() {
+        return new ArrayList<String>(links);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Status getStatusCode() {
+        return Status.NOT_MODIFIED_304;
+    }
+
+    public String getCharset() {
+        return "";
+    }
+
+}
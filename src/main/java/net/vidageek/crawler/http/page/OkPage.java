@@ -8,9 +8,7 @@ import java.util.List;
 
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.http.Status;
-import net.vidageek.crawler.component.LinkFinder.impl.DefaultLinkFinder;
-import net.vidageek.crawler.component.LinkFinder.impl.FrameLinkFinder;
-import net.vidageek.crawler.component.LinkFinder.impl.IframeLinkFinder;
+import net.vidageek.crawler.component.LinkFinder.impl.HtmlLinkFinder;
 
 /**
  * @author jonasabreu
@@ -20,23 +18,36 @@ public class OkPage implements Page {
 
 	private final String url;
 	private final String content;
+	private final String charset;
+	// found on the first call: both the crawler and the validator store ask for them
+	private volatile List<String> links;
 
 	public OkPage(final String url, final String content) {
+		this(url, content, "UTF-8");
+	}
+
+	/**
+	 * @param charset charset the content was decoded from
+	 */
+	public OkPage(final String url, final String content, final String charset) {
 		if ((url == null) || (url.trim().length() == 0)) {
 			throw new IllegalArgumentException("url cannot be null");
 		}
 		this.url = url;
 		this.content = content;
+		this.charset = charset;
 	}
 
 	public List<String> getLinks() {
-
-		List<String> list = new ArrayList<String>();
-		list.addAll(new DefaultLinkFinder(content).getLinks());
-		list.addAll(new IframeLinkFinder(content).getLinks());
-		list.addAll(new FrameLinkFinder(content).getLinks());
-
-		return list;
+		if ((content == null) || content.isBlank()) {
+			return new ArrayList<String>();
+		}
+		List<String> found = links;
+		if (found == null) {
+			found = new HtmlLinkFinder(content).getLinks();
+			links = found;
+		}
+		return new ArrayList<String>(found);
 	}
 
 	public String getUrl() {
@@ -52,6 +63,6 @@ public class OkPage implements Page {
 	}
 
 	public String getCharset() {
-		return "UTF-8";
+		return charset;
 	}
 }
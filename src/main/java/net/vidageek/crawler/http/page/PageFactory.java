@@ -1,5 +1,7 @@
 package net.vidageek.crawler.http.page;
 
+import java.util.List;
+
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.http.Status;
 
@@ -10,7 +12,24 @@ public interface PageFactory {
 	
 	Page buildOkPage(String url, String content);
 
+	/**
+	 * Builds an ok page that knows the charset its content was decoded with.
+	 * Factories that do not care about the charset get
+	 * {@link #buildOkPage(String, String)}.
+	 */
+	default Page buildOkPage(String url, String content, String charset) {
+		return buildOkPage(url, content);
+	}
+
 	Page buildErrorPage(String url, Status status);
 
 	Page buildRejectedMimeTypePage(String url, Status status, String mimeType);
+
+	/**
+	 * Builds the page of a 304 Not Modified response.
+	 * @param links links recorded the last time the page was downloaded
+	 */
+	default Page buildNotModifiedPage(String url, List<String> links) {
+		return new NotModifiedPage(url, links);
+	}
 }
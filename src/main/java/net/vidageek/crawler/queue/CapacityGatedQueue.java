@@ -0,0 +1,106 @@
+package net.vidageek.crawler.queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
+
+/**
+ * Frontier that hands out executors only while the {@link AsyncDownloader}
+ * can start their requests. Workers of an asynchronous crawl only start a
+ * request and return, so without this they would empty the frontier into the
+ * downloader's in-flight limiter. Taking waits for capacity first, so the
+ * urls that can't be fetched yet stay in the wrapped queue, with its delays
+ * and its spilling.
+ */
+final public class CapacityGatedQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private final BlockingQueue<Runnable> queue;
+	private final AsyncDownloader downloader;
+
+	public CapacityGatedQueue(final BlockingQueue<Runnable> queue, final AsyncDownloader downloader) {
+		if (queue == null) {
+			throw new IllegalArgumentException("queue cannot be null");
+		}
+		if (downloader == null) {
+			throw new IllegalArgumentException("downloader cannot be null");
+		}
+		this.queue = queue;
+		this.downloader = downloader;
+	}
+
+	public boolean offer(final Runnable e) {
+		return queue.offer(e);
+	}
+
+	public boolean offer(final Runnable e, final long timeout, final TimeUnit unit) throws InterruptedException {
+		return queue.offer(e, timeout, unit);
+	}
+
+	public void put(final Runnable e) throws InterruptedException {
+		queue.put(e);
+	}
+
+	public Runnable poll() {
+		try {
+			if (!downloader.awaitCapacity(0, TimeUnit.NANOSECONDS)) {
+				return null;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		return queue.poll();
+	}
+
+	public Runnable take() throws InterruptedException {
+		downloader.awaitCapacity(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		return queue.take();
+	}
+
+	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (!downloader.awaitCapacity(timeout, unit)) {
+			return null;
+		}
+		return queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	public Runnable peek() {
+		return queue.peek();
+	}
+
+	public int size() {
+		return queue.size();
+	}
+
+	public int remainingCapacity() {
+		return queue.remainingCapacity();
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		return queue.remove(o);
+	}
+
+	/**
+	 * Drains the wrapped queue without waiting for capacity. Used by the
+	 * executor when it is shut down.
+	 */
+	public int drainTo(final Collection<? super Runnable> c) {
+		return queue.drainTo(c);
+	}
+
+	public int drainTo(final Collection<? super Runnable> c, final int maxElements) {
+		return queue.drainTo(c, maxElements);
+	}
+
+	@Override
+	public Iterator<Runnable> iterator() {
+		return queue.iterator();
+	}
+
+}
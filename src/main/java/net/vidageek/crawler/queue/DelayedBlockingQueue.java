@@ -5,6 +5,7 @@ import java.util.Iterator;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author jonasabreu
@@ -14,83 +15,123 @@ final public class DelayedBlockingQueue implements BlockingQueue<Runnable> {
 
     //声明一个BlockQueue用来保存PageCrawlerExecutor，由于PageCrawlerExecutor
     //实现了Runnable接口采用接口反调的方法用Runnable接口指向PageCrawlerExecutor
-    //BlockingQueue是线程安全的
+    //BlockingQueue是线程安全的，生产者（offer/put）只使用它自己的锁，不会和消费者竞争
 	private final BlockingQueue<Runnable> queue;
-    //延时时间，当延时了delayInMilliseconds时间后
-    //消费者获取下一个对象
-	private final int delayInMilliseconds;
-    //记录队列上一次消费者取得Runnable进程的时间，和delayInMilliseconds一起控制队列的延时
-    //两者起到每隔delayInMilliseconds的实现，访问一次网页
-	private volatile long lastSuccesfullPop;
+    //延时时间，当延时了delayInNanoseconds时间后消费者获取下一个对象。换算成纳秒和System.nanoTime()
+    //一起使用，不受系统时钟调整的影响。和以前一样要求严格超过构造时给出的毫秒数，所以多加1毫秒
+	private final long delayInNanoseconds;
+    //消费者之间互斥的锁，同一时间只有一个消费者在等待下一次取出的时间，其他消费者挂起在这个锁上，
+    //不会像以前一样在持有锁的同时轮询sleep
+	private final ReentrantLock takeLock = new ReentrantLock();
+    //记录队列上一次消费者取得Runnable进程的System.nanoTime()，和delayInNanoseconds一起控制队列的延时
+    //两者起到每隔delayInNanoseconds的实现，访问一次网页。只在持有takeLock时读写
+	private long lastSuccesfullPop;
 
 	public DelayedBlockingQueue(final int delayInMilliseconds) {
-		this.delayInMilliseconds = delayInMilliseconds;
+		delayInNanoseconds = TimeUnit.MILLISECONDS.toNanos(delayInMilliseconds + 1L);
         //将BlockingQueue声明为LinkedBlockQueue，队列的类型为Runnable即进程对象
 		queue = new LinkedBlockingQueue<Runnable>();
         //队列对象初始化时用系统的当前时间减去一个延时时间作为队列初始化时上一次成功取得对象时间
         //可以保证队列初始化完成后能够立即获取到第一个进程对象
-		lastSuccesfullPop = System.currentTimeMillis() - delayInMilliseconds;
+		lastSuccesfullPop = System.nanoTime() - delayInNanoseconds;
 	}
 
 
-    //poll(time):取走BlockingQueue里排在首位的对象,若不能立即取出,则可以等time参数规定的时间,取不
-    // 到时返回null,此处为立即返回一个进程，如果不存在则返回失败
+    //poll():立即取走BlockingQueue里排在首位的对象，如果队列为空则返回null；
+    //如果队列不为空，则等到延时时间到了之后再取出
 	public Runnable poll() {
-        //当取得进程队列queue上的锁时（也就是当前对也queue对象没有其他操作，其他的函数没有正在访问queue对象），
-        // 判断延时时间有没有到，如果没到延时时间或者当前队列为空的时候
-        // 调用sleep 方法使得获取进程对象的操作延时100毫秒
-		synchronized (queue) {
-			while ((System.currentTimeMillis() - lastSuccesfullPop <= delayInMilliseconds) && !queue.isEmpty()) {
-				sleep();
+		takeLock.lock();
+		try {
+			if (queue.isEmpty()) {
+				return null;
 			}
-            //记录成功获取进程对象的时间
-			lastSuccesfullPop = System.currentTimeMillis();
-            //调用queue接口的poll方法，获取队列中的一个进程对象
-			return queue.poll();
+			awaitDispatchTimeUninterruptibly();
+			return popped(queue.poll());
+		} finally {
+			takeLock.unlock();
 		}
 	}
 
+    //poll(time):如果队列不为空，先等到延时时间到，然后最多等待time参数规定的时间，取不到时返回null。
+    //队列为空时不先等延时，最多只等待time参数规定的时间，等到的对象仍然要到延时时间才返回
 	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
-		synchronized (queue) {
-			while ((System.currentTimeMillis() - lastSuccesfullPop <= delayInMilliseconds) && !queue.isEmpty()) {
-				sleep();
+		takeLock.lockInterruptibly();
+		try {
+			if (queue.isEmpty()) {
+				Runnable runnable = queue.poll(timeout, unit);
+				if (runnable != null) {
+					awaitDispatchTimeUninterruptibly();
+				}
+				return popped(runnable);
 			}
-			lastSuccesfullPop = System.currentTimeMillis();
-			return queue.poll(timeout, unit);
+			awaitDispatchTime();
+			return popped(queue.poll(timeout, unit));
+		} finally {
+			takeLock.unlock();
 		}
 	}
 
-    //take()取走BlockingQueue里排在首位的对象,若BlockingQueue为空,阻断进入等待状态直到BlockingQueue
-    // 有新的数据被加入;
+    //take()等到延时时间到后取走BlockingQueue里排在首位的对象,若BlockingQueue为空,阻断进入等待状态直到
+    //BlockingQueue有新的数据被加入，由生产者的offer唤醒
     public Runnable take() throws InterruptedException {
-		synchronized (queue) {
-			while ((System.currentTimeMillis() - lastSuccesfullPop <= delayInMilliseconds) && !queue.isEmpty()) {
-				sleep();
-			}
-			lastSuccesfullPop = System.currentTimeMillis();
-			return queue.take();
+		takeLock.lockInterruptibly();
+		try {
+			awaitDispatchTime();
+			return popped(queue.take());
+		} finally {
+			takeLock.unlock();
 		}
 	}
 
     //同poll()方法的唯一不同在于当队列为空的时候抛出NoSuchElementException的异常
 	public Runnable remove() {
-		synchronized (queue) {
-			while ((System.currentTimeMillis() - lastSuccesfullPop <= delayInMilliseconds) && !queue.isEmpty()) {
-				sleep();
+		takeLock.lock();
+		try {
+			if (!queue.isEmpty()) {
+				awaitDispatchTimeUninterruptibly();
 			}
-			lastSuccesfullPop = System.currentTimeMillis();
-			return queue.remove();
+			return popped(queue.remove());
+		} finally {
+			takeLock.unlock();
 		}
 	}
 
-    //内部方法，当从队列中获取一个进程对象的时间距离上一次获取进程对象的时间小于延时时间时，调用sleep（）
-    //方法延时100毫秒
-	private void sleep() {
-		try {
-			Thread.sleep(100);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+    //内部方法，挂起当前消费者直到距离上一次成功取出对象已经过了延时时间，醒来的时间就是下一次可以取出的时间，
+    //不再每100毫秒醒来检查一次。没有任何事件能让这个时间提前，所以直接sleep，不需要Condition
+	private void awaitDispatchTime() throws InterruptedException {
+		long remaining;
+		while ((remaining = remainingDelay()) > 0) {
+			TimeUnit.NANOSECONDS.sleep(remaining);
+		}
+	}
+
+    //同awaitDispatchTime()，用于不能抛出InterruptedException的方法，等待结束后恢复线程的中断状态
+	private void awaitDispatchTimeUninterruptibly() {
+		boolean interrupted = false;
+		long remaining;
+		while ((remaining = remainingDelay()) > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+    //距离下一次可以取出对象还需要等待的纳秒数，用差值比较，nanoTime溢出时也正确
+	private long remainingDelay() {
+		return lastSuccesfullPop + delayInNanoseconds - System.nanoTime();
+	}
+
+    //记录成功获取进程对象的时间，取不到对象的时候不影响下一次的延时
+	private Runnable popped(final Runnable runnable) {
+		if (runnable != null) {
+			lastSuccesfullPop = System.nanoTime();
 		}
+		return runnable;
 	}
 
 	// Delegate Methods. Java is just soooo fun sometimes...
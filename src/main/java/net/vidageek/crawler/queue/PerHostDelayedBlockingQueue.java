@@ -0,0 +1,430 @@
+package net.vidageek.crawler.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.vidageek.crawler.component.PageCrawlerExecutor;
+import net.vidageek.crawler.utils.UrlUtils;
+
+/**
+ * Frontier that keeps one delay clock per host instead of a single global
+ * one. Each host holds its own FIFO of pending executors and the time at which
+ * it may be requested again; any host whose time has come is dispatched
+ * immediately, so the delay limits the request rate to each site and not the
+ * whole crawl.
+ *
+ * A host can be given a longer delay than the others, like the Crawl-delay
+ * of its robots.txt, through {@link #hostDelay(String, long)}.
+ *
+ * Runnables that are not {@link PageCrawlerExecutor}s share a single anonymous
+ * host.
+ */
+final public class PerHostDelayedBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private static final int MIN_SWEEP_THRESHOLD = 1024;
+
+	private final long delayInNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+
+	// every host seen recently, including idle ones still inside their delay
+	private final Map<String, HostQueue> hosts = new HashMap<String, HostQueue>();
+	// hosts whose delay is longer than delayInNanos; kept when they are swept
+	private final Map<String, Long> hostDelays = new HashMap<String, Long>();
+	// hosts that have pending executors, ordered by the time they get ready
+	private final PriorityQueue<HostQueue> ready = new PriorityQueue<HostQueue>();
+
+	// thread waiting for the head of ready; the others wait indefinitely
+	private Thread leader;
+	private int count;
+	private int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+	public PerHostDelayedBlockingQueue(final int delayInMilliseconds) {
+		if (delayInMilliseconds < 0) {
+			throw new IllegalArgumentException("delayInMilliseconds cannot be negative");
+		}
+		delayInNanos = TimeUnit.MILLISECONDS.toNanos(delayInMilliseconds);
+	}
+
+	public boolean offer(final Runnable e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		final String host = hostOf(e);
+		lock.lock();
+		try {
+			HostQueue hostQueue = hosts.get(host);
+			if (hostQueue == null) {
+				if (hosts.size() >= sweepThreshold) {
+					sweep();
+				}
+				Long hostDelay = hostDelays.get(host);
+				hostQueue = new HostQueue(host, System.nanoTime(), hostDelay == null ? delayInNanos : hostDelay);
+				hosts.put(host, hostQueue);
+			}
+			hostQueue.tasks.add(e);
+			count++;
+			if (!hostQueue.scheduled) {
+				hostQueue.scheduled = true;
+				ready.add(hostQueue);
+				if (ready.peek() == hostQueue) {
+					leader = null;
+					available.signal();
+				}
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean offer(final Runnable e, final long timeout, final TimeUnit unit) {
+		return offer(e);
+	}
+
+	public void put(final Runnable e) {
+		offer(e);
+	}
+
+	public Runnable poll() {
+		lock.lock();
+		try {
+			HostQueue first = ready.peek();
+			if ((first == null) || (first.readyAt - System.nanoTime() > 0)) {
+				return null;
+			}
+			return dispatch(first);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			for (;;) {
+				HostQueue first = ready.peek();
+				if (first == null) {
+					available.await();
+				} else {
+					long delay = first.readyAt - System.nanoTime();
+					if (delay <= 0) {
+						return dispatch(first);
+					}
+					if (leader != null) {
+						available.await();
+					} else {
+						Thread thisThread = Thread.currentThread();
+						leader = thisThread;
+						try {
+							available.awaitNanos(delay);
+						} finally {
+							if (leader == thisThread) {
+								leader = null;
+							}
+						}
+					}
+				}
+			}
+		} finally {
+			if ((leader == null) && (ready.peek() != null)) {
+				available.signal();
+			}
+			lock.unlock();
+		}
+	}
+
+	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			for (;;) {
+				HostQueue first = ready.peek();
+				if (first == null) {
+					if (nanos <= 0) {
+						return null;
+					}
+					nanos = available.awaitNanos(nanos);
+				} else {
+					long delay = first.readyAt - System.nanoTime();
+					if (delay <= 0) {
+						return dispatch(first);
+					}
+					if (nanos <= 0) {
+						return null;
+					}
+					if ((nanos < delay) || (leader != null)) {
+						nanos = available.awaitNanos(nanos);
+					} else {
+						Thread thisThread = Thread.currentThread();
+						leader = thisThread;
+						try {
+							long timeLeft = available.awaitNanos(delay);
+							nanos -= delay - timeLeft;
+						} finally {
+							if (leader == thisThread) {
+								leader = null;
+							}
+						}
+					}
+				}
+			}
+		} finally {
+			if ((leader == null) && (ready.peek() != null)) {
+				available.signal();
+			}
+			lock.unlock();
+		}
+	}
+
+	public Runnable peek() {
+		lock.lock();
+		try {
+			HostQueue first = ready.peek();
+			return first == null ? null : first.tasks.peek();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (!(o instanceof Runnable)) {
+			return false;
+		}
+		lock.lock();
+		try {
+			HostQueue hostQueue = hosts.get(hostOf((Runnable) o));
+			if ((hostQueue == null) || !hostQueue.tasks.remove(o)) {
+				return false;
+			}
+			count--;
+			if (hostQueue.tasks.isEmpty() && hostQueue.scheduled) {
+				hostQueue.scheduled = false;
+				ready.remove(hostQueue);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for (HostQueue hostQueue : ready) {
+				hostQueue.tasks.clear();
+				hostQueue.scheduled = false;
+			}
+			ready.clear();
+			count = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drains every pending executor, ignoring host delays. Used by the
+	 * executor when it is shut down.
+	 */
+	public int drainTo(final Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	public int drainTo(final Collection<? super Runnable> c, final int maxElements) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+		lock.lock();
+		try {
+			int n = 0;
+			while ((n < maxElements) && !ready.isEmpty()) {
+				HostQueue hostQueue = ready.peek();
+				c.add(hostQueue.tasks.poll());
+				count--;
+				n++;
+				if (hostQueue.tasks.isEmpty()) {
+					hostQueue.scheduled = false;
+					ready.poll();
+				}
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns an iterator over a snapshot of the pending executors.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		final List<Runnable> snapshot = new ArrayList<Runnable>();
+		lock.lock();
+		try {
+			for (HostQueue hostQueue : ready) {
+				snapshot.addAll(hostQueue.tasks);
+			}
+		} finally {
+			lock.unlock();
+		}
+		final Iterator<Runnable> iterator = snapshot.iterator();
+		return new Iterator<Runnable>() {
+			private Runnable last;
+
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			public Runnable next() {
+				last = iterator.next();
+				return last;
+			}
+
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				PerHostDelayedBlockingQueue.this.remove(last);
+				last = null;
+			}
+		};
+	}
+
+	/**
+	 * Number of hosts the queue is currently tracking.
+	 */
+	public int numberOfHosts() {
+		lock.lock();
+		try {
+			return hosts.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Makes host wait delayInMilliseconds between requests, starting with the
+	 * request after the last one dispatched. Delays shorter than the queue's own
+	 * are raised to it, so a host can slow the crawl down but never speed it up.
+	 *
+	 * @param host host and optional port, as returned by
+	 *            {@link UrlUtils#host(String)}
+	 */
+	public void hostDelay(final String host, final long delayInMilliseconds) {
+		final long nanos = Math.max(delayInNanos, TimeUnit.MILLISECONDS.toNanos(delayInMilliseconds));
+		lock.lock();
+		try {
+			if (nanos == delayInNanos) {
+				hostDelays.remove(host);
+			} else {
+				hostDelays.put(host, nanos);
+			}
+			HostQueue hostQueue = hosts.get(host);
+			if (hostQueue != null) {
+				// robots.txt arrives after the first request went out with the old delay
+				if (nanos > hostQueue.delayInNanos) {
+					if (hostQueue.scheduled) {
+						ready.remove(hostQueue);
+					}
+					hostQueue.readyAt += nanos - hostQueue.delayInNanos;
+					if (hostQueue.scheduled) {
+						ready.add(hostQueue);
+					}
+				}
+				hostQueue.delayInNanos = nanos;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Runnable dispatch(final HostQueue hostQueue) {
+		ready.poll();
+		Runnable task = hostQueue.tasks.poll();
+		count--;
+		hostQueue.readyAt = System.nanoTime() + hostQueue.delayInNanos;
+		if (hostQueue.tasks.isEmpty()) {
+			hostQueue.scheduled = false;
+		} else {
+			ready.add(hostQueue);
+		}
+		return task;
+	}
+
+	// Idle hosts whose delay is over behave exactly like unknown hosts, so
+	// they can be forgotten.
+	private void sweep() {
+		final long now = System.nanoTime();
+		Iterator<HostQueue> iterator = hosts.values().iterator();
+		while (iterator.hasNext()) {
+			HostQueue hostQueue = iterator.next();
+			if (!hostQueue.scheduled && (hostQueue.readyAt - now <= 0)) {
+				iterator.remove();
+			}
+		}
+		sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, hosts.size() * 2);
+	}
+
+	private static String hostOf(final Runnable runnable) {
+		if (runnable instanceof PageCrawlerExecutor) {
+			return UrlUtils.host(((PageCrawlerExecutor) runnable).url().link());
+		}
+		return "";
+	}
+
+	private static final class HostQueue implements Comparable<HostQueue> {
+
+		private final String host;
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+		private long readyAt;
+		private long delayInNanos;
+		private boolean scheduled;
+
+		private HostQueue(final String host, final long readyAt, final long delayInNanos) {
+			this.host = host;
+			this.readyAt = readyAt;
+			this.delayInNanos = delayInNanos;
+		}
+
+		public int compareTo(final HostQueue other) {
+			long diff = readyAt - other.readyAt;
+			return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+		}
+
+		@Override
+		public String toString() {
+			return host;
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package net.vidageek.crawler.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.Url;
+
+/**
+ * Url records of many FIFOs kept in shared memory-mapped segment files. A
+ * record is the depth, the last modification time, the length of the link,
+ * where the next record of its {@link Chain} is and the link in UTF-8.
+ * Records of every chain are appended to the last segment, so the number of
+ * mapped files follows the number of spilled urls, not the number of chains.
+ *
+ * A segment is deleted once every record in it was read, and its mapping is
+ * left to be released by the garbage collector. A chain that is read much
+ * slower than the others keeps the segments holding its records alive. The
+ * first segment is small and each new one doubles, up to segmentSize, so a
+ * short FIFO does not map a whole segment.
+ *
+ * Not thread-safe.
+ */
+final class SpillSegments {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int HEADER_SIZE = 24;
+	private static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+	private static final long NONE = -1;
+
+	private final File directory;
+	private final int segmentSize;
+	private final Map<Integer, Segment> segments = new HashMap<Integer, Segment>();
+	// the segment records are appended to
+	private Segment tail;
+	private int nextSegmentId;
+	private long size;
+	private int nextSegmentSize;
+
+	SpillSegments(final File directory, final int segmentSize) {
+		if (segmentSize < HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize is too small");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		nextSegmentSize = Math.min(segmentSize, INITIAL_SEGMENT_SIZE);
+	}
+
+	void add(final Chain chain, final Url url) {
+		final byte[] link = url.link().getBytes(UTF_8);
+		final int recordSize = HEADER_SIZE + link.length;
+
+		if ((tail == null) || (tail.capacity() - tail.writePosition < recordSize)) {
+			if ((tail != null) && (tail.live == 0)) {
+				segments.remove(tail.id).delete();
+			}
+			tail = new Segment(nextSegmentId++, directory, Math.max(nextSegmentSize, recordSize));
+			nextSegmentSize = (int) Math.min(segmentSize, 2L * nextSegmentSize);
+			segments.put(tail.id, tail);
+		}
+		final long pointer = pointer(tail.id, tail.writePosition);
+		final MappedByteBuffer buffer = tail.buffer;
+		buffer.position(tail.writePosition);
+		buffer.putInt(url.depth());
+		buffer.putLong(url.lastModified());
+		buffer.putInt(link.length);
+		buffer.putLong(NONE);
+		buffer.put(link);
+		tail.writePosition += recordSize;
+		tail.live++;
+
+		if (chain.tail == NONE) {
+			chain.head = pointer;
+		} else {
+			// the previous record is still unread, so its segment is still mapped
+			segment(chain.tail).buffer.putLong(offset(chain.tail) + 16, pointer);
+		}
+		chain.tail = pointer;
+		chain.size++;
+		size++;
+	}
+
+	/**
+	 * Removes and returns the oldest record of chain, or null if it is empty.
+	 */
+	Url poll(final Chain chain) {
+		if (chain.head == NONE) {
+			return null;
+		}
+		final Segment segment = segment(chain.head);
+		final MappedByteBuffer buffer = segment.buffer;
+		buffer.position(offset(chain.head));
+		final int depth = buffer.getInt();
+		final long lastModified = buffer.getLong();
+		final byte[] link = new byte[buffer.getInt()];
+		final long next = buffer.getLong();
+		buffer.get(link);
+
+		chain.head = next;
+		if (next == NONE) {
+			chain.tail = NONE;
+		}
+		chain.size--;
+		size--;
+		segment.live--;
+		if (size == 0) {
+			clear();
+		} else if ((segment.live == 0) && (segment != tail)) {
+			segments.remove(segment.id).delete();
+		}
+		return new Url(new String(link, UTF_8), depth, lastModified);
+	}
+
+	long size() {
+		return size;
+	}
+
+	int numberOfSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * Deletes every segment file, dropping the records left in them. Chains
+	 * must not be used afterwards.
+	 */
+	void clear() {
+		for (Segment segment : segments.values()) {
+			segment.delete();
+		}
+		segments.clear();
+		tail = null;
+		size = 0;
+		nextSegmentSize = Math.min(segmentSize, INITIAL_SEGMENT_SIZE);
+	}
+
+	private Segment segment(final long pointer) {
+		return segments.get((int) (pointer >>> 32));
+	}
+
+	private static int offset(final long pointer) {
+		return (int) pointer;
+	}
+
+	private static long pointer(final int segmentId, final int offset) {
+		return ((long) segmentId << 32) | offset;
+	}
+
+	/**
+	 * One FIFO of records: where its first and last records are.
+	 */
+	static final class Chain {
+
+		private long head = NONE;
+		private long tail = NONE;
+		private long size;
+
+		long size() {
+			return size;
+		}
+	}
+
+	private static final class Segment {
+
+		private final int id;
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private int writePosition;
+		// records written and not read yet
+		private int live;
+
+		private Segment(final int id, final File directory, final int size) {
+			this.id = id;
+			try {
+				file = File.createTempFile("frontier-", ".segment", directory);
+				RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				try {
+					raf.setLength(size);
+					buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+				} finally {
+					// the mapping stays valid after the channel is closed
+					raf.close();
+				}
+			} catch (IOException e) {
+				throw new CrawlerException("Could not create frontier segment in " + directory, e);
+			}
+		}
+
+		private int capacity() {
+			return buffer.capacity();
+		}
+
+		private void delete() {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+}
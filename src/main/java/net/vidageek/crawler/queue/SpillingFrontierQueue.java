@@ -0,0 +1,285 @@
+package net.vidageek.crawler.queue;
+
+import java.io.File;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.CrawlContext;
+import net.vidageek.crawler.component.PageCrawlerExecutor;
+import net.vidageek.crawler.http.Url;
+import net.vidageek.crawler.utils.UrlUtils;
+
+/**
+ * Frontier whose size is not bounded by the heap. At most hotWindowSize
+ * executors wait in the wrapped queue, which keeps deciding when they may run;
+ * the urls past that are spilled as compact url and depth records to
+ * memory-mapped segment files, and turned back into executors only when there
+ * is room in the window again.
+ *
+ * Urls are spilled per host, as chains of records in segment files shared by
+ * every host, so the number of mapped files does not grow with the number of
+ * hosts. The window is refilled round-robin across the hosts that have
+ * spilled urls, skipping hosts that already hold their share of the window
+ * while others don't. A host with a huge backlog therefore can't
+ * fill the window and starve the others behind a per-host delay. Urls of the
+ * same host keep their order.
+ *
+ * Only {@link PageCrawlerExecutor}s are spilled. A spilled url keeps counting
+ * as pending in the crawl's counter until its executor runs.
+ */
+final public class SpillingFrontierQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024 * 1024;
+
+	private final BlockingQueue<Runnable> hotWindow;
+	private final int hotWindowSize;
+
+	// guards hosts, spilling, spilled and context; taken on every offer and take
+	private final Object spillLock = new Object();
+	// hosts with executors in the window or spilled urls
+	private final Map<String, Host> hosts = new HashMap<String, Host>();
+	// hosts with spilled urls, in the order they are refilled
+	private final ArrayDeque<Host> spilling = new ArrayDeque<Host>();
+	private final SpillSegments spilled;
+	private CrawlContext context;
+	// read without the lock by size()
+	private volatile long spilledCount;
+
+	public SpillingFrontierQueue(final BlockingQueue<Runnable> hotWindow, final int hotWindowSize,
+			final File directory) {
+		this(hotWindow, hotWindowSize, directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public SpillingFrontierQueue(final BlockingQueue<Runnable> hotWindow, final int hotWindowSize,
+			final File directory, final int segmentSize) {
+		if (hotWindow == null) {
+			throw new IllegalArgumentException("hotWindow cannot be null");
+		}
+		if (hotWindowSize <= 0) {
+			throw new IllegalArgumentException("hotWindowSize must be positive");
+		}
+		if ((directory == null) || !directory.isDirectory()) {
+			throw new IllegalArgumentException("directory must be an existing directory");
+		}
+		spilled = new SpillSegments(directory, segmentSize);
+		this.hotWindow = hotWindow;
+		this.hotWindowSize = hotWindowSize;
+	}
+
+	public boolean offer(final Runnable e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (!(e instanceof PageCrawlerExecutor)) {
+			return hotWindow.offer(e);
+		}
+		PageCrawlerExecutor executor = (PageCrawlerExecutor) e;
+		synchronized (spillLock) {
+			Host host = host(UrlUtils.host(executor.url().link()));
+			if ((host.spilled == null) && (hotWindow.size() < hotWindowSize) && (host.inWindow < share())) {
+				host.inWindow++;
+				return hotWindow.offer(e);
+			}
+			context = executor.context();
+			if (host.spilled == null) {
+				host.spilled = new SpillSegments.Chain();
+				spilling.add(host);
+			}
+			spilled.add(host.spilled, executor.url());
+			spilledCount++;
+			refill();
+		}
+		return true;
+	}
+
+	public boolean offer(final Runnable e, final long timeout, final TimeUnit unit) {
+		return offer(e);
+	}
+
+	public void put(final Runnable e) {
+		offer(e);
+	}
+
+	public Runnable poll() {
+		return refilled(hotWindow.poll());
+	}
+
+	public Runnable take() throws InterruptedException {
+		return refilled(hotWindow.take());
+	}
+
+	public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return refilled(hotWindow.poll(timeout, unit));
+	}
+
+	public Runnable peek() {
+		return hotWindow.peek();
+	}
+
+	/**
+	 * Pending executors, both in memory and spilled to disk.
+	 */
+	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, hotWindow.size() + spilledCount);
+	}
+
+	public long spilledSize() {
+		return spilledCount;
+	}
+
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (!hotWindow.remove(o)) {
+			return false;
+		}
+		refilled((Runnable) o);
+		return true;
+	}
+
+	public int drainTo(final Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Drains the window and then the spilled urls, ignoring delays. Used by
+	 * the executor when it is shut down.
+	 */
+	public int drainTo(final Collection<? super Runnable> c, final int maxElements) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+		int n = 0;
+		synchronized (spillLock) {
+			List<Runnable> drained = new ArrayList<Runnable>();
+			for (;;) {
+				n += hotWindow.drainTo(drained, maxElements - n);
+				for (Runnable runnable : drained) {
+					left(runnable);
+				}
+				c.addAll(drained);
+				drained.clear();
+				if ((n >= maxElements) || (spilledCount == 0)) {
+					return n;
+				}
+				refill();
+			}
+		}
+	}
+
+	/**
+	 * Returns an iterator over the executors in memory. Spilled urls are not
+	 * included.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		return hotWindow.iterator();
+	}
+
+	/**
+	 * Deletes the segment files. Spilled urls that were not run yet are lost.
+	 */
+	public void close() {
+		synchronized (spillLock) {
+			spilled.clear();
+			for (Host host : spilling) {
+				host.spilled = null;
+				if (host.inWindow == 0) {
+					hosts.remove(host.name);
+				}
+			}
+			spilling.clear();
+			spilledCount = 0;
+		}
+	}
+
+	private Runnable refilled(final Runnable runnable) {
+		if ((runnable instanceof PageCrawlerExecutor) || ((runnable != null) && (spilledCount > 0))) {
+			synchronized (spillLock) {
+				left(runnable);
+				refill();
+			}
+		}
+		return runnable;
+	}
+
+	// must hold spillLock
+	private void left(final Runnable runnable) {
+		if (!(runnable instanceof PageCrawlerExecutor)) {
+			return;
+		}
+		Host host = hosts.get(UrlUtils.host(((PageCrawlerExecutor) runnable).url().link()));
+		if (host != null) {
+			host.inWindow--;
+			if ((host.inWindow == 0) && (host.spilled == null)) {
+				hosts.remove(host.name);
+			}
+		}
+	}
+
+	// must hold spillLock
+	private void refill() {
+		// hosts passed over in a row because they hold their share already
+		int skipped = 0;
+		while (!spilling.isEmpty() && (hotWindow.size() < hotWindowSize)) {
+			Host host = spilling.poll();
+			if ((host.inWindow >= share()) && (skipped < spilling.size() + 1)) {
+				spilling.add(host);
+				skipped++;
+				continue;
+			}
+			skipped = 0;
+			Url url = spilled.poll(host.spilled);
+			spilledCount--;
+			host.inWindow++;
+			if (host.spilled.size() > 0) {
+				spilling.add(host);
+			} else {
+				host.spilled = null;
+			}
+			hotWindow.offer(context.restore(url));
+		}
+	}
+
+	// must hold spillLock
+	private Host host(final String name) {
+		Host host = hosts.get(name);
+		if (host == null) {
+			host = new Host(name);
+			hosts.put(name, host);
+		}
+		return host;
+	}
+
+	// must hold spillLock; the part of the window a host may take while others wait
+	private int share() {
+		return Math.max(1, hotWindowSize / hosts.size());
+	}
+
+	private static final class Host {
+
+		private final String name;
+		private int inWindow;
+		// null while the host has nothing spilled
+		private SpillSegments.Chain spilled;
+
+		private Host(final String name) {
+			this.name = name;
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package net.vidageek.crawler.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File handling shared by the crawler's append-only logs, the crawl journal
+ * and the file validator store. Each log is a sequence of records that begin
+ * with a type byte. Records are appended in batches of about
+ * {@link #BATCH_SIZE} bytes. Once a log has grown past twice its live records,
+ * it is compacted into a temporary file, which then replaces it.
+ */
+public final class AppendLog {
+
+	public static final long BATCH_SIZE = 64 * 1024;
+	public static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+	private AppendLog() {
+	}
+
+	/**
+	 * Reads one record whose type byte was just read.
+	 */
+	public interface RecordReader {
+
+		/**
+		 * @param position offset of the type byte in the log
+		 * @return size of the whole record, type byte included
+		 */
+		long read(byte type, DataInputStream input, long position) throws IOException;
+	}
+
+	/**
+	 * True when a log of size bytes holding liveSize bytes of live records is
+	 * worth compacting.
+	 */
+	public static boolean needsCompaction(final long size, final long liveSize) {
+		return size > Math.max(MIN_COMPACTION_SIZE, liveSize * 2);
+	}
+
+	/**
+	 * Hands every record in the first limit bytes of file to reader. A record
+	 * torn by a crash can only be at the end of the log and is skipped.
+	 *
+	 * @return length of the valid records read
+	 */
+	public static long replay(final File file, final long limit, final RecordReader reader) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		long valid = 0;
+		try {
+			while (valid < limit) {
+				byte type;
+				try {
+					type = input.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+				valid += reader.read(type, input, valid);
+			}
+		} catch (EOFException e) {
+			// torn record at the end: everything before it is valid
+		} finally {
+			input.close();
+		}
+		return valid;
+	}
+
+	/**
+	 * Cuts file to the length replay found valid, so records appended later
+	 * don't follow a torn one.
+	 */
+	public static void dropTornTail(final File file, final long valid) throws IOException {
+		if (valid >= file.length()) {
+			return;
+		}
+		RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+		try {
+			truncated.setLength(valid);
+		} finally {
+			truncated.close();
+		}
+	}
+
+	/**
+	 * Moves tmpFile, already synced, over file in a single step. A crash
+	 * leaves either the old log or the new one, never neither.
+	 */
+	public static void replace(final File tmpFile, final File file) throws IOException {
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
@@ -0,0 +1,41 @@
+package net.vidageek.crawler.utils;
+
+/**
+ * 64 bit fingerprints of urls. Fingerprints are FNV-1a over the characters of
+ * the url followed by the MurmurHash3 finalizer, so every bit depends on
+ * every character. With 64 bits the chance of any collision among 100 million
+ * urls is below 0.03%.
+ */
+public final class UrlFingerprint {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private UrlFingerprint() {
+	}
+
+	public static long of(final String link) {
+		if (link == null) {
+			throw new IllegalArgumentException("link must not be null");
+		}
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < link.length(); i++) {
+			hash ^= link.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * MurmurHash3 64 bit finalizer.
+	 */
+	public static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -0,0 +1,232 @@
+package net.vidageek.crawler.utils;
+
+/**
+ * Resolves links against a single base url, giving the same results as
+ * {@link UrlUtils#resolveUrl(String, String)}. The base is parsed once, when
+ * the resolver is created. Each link is only scanned for the positions of
+ * its components and then copied, with the inherited parts of the base, into
+ * one builder, where dot segments are removed in place.
+ *
+ * Thread-safe.
+ */
+public final class UrlResolver {
+
+	private final String base;
+	private final String scheme;
+	private final String location;
+	private final String path;
+	private final String parameters;
+	private final String query;
+	// what a relative path is appended to: the base path up to its last slash
+	private final String directory;
+
+	public UrlResolver(final String baseUrl) {
+		if (baseUrl == null) {
+			throw new IllegalArgumentException("Base URL must not be null");
+		}
+		final String spec = baseUrl.trim();
+		final Components base = new Components(spec);
+		this.base = spec;
+		scheme = base.substring(spec, base.schemeEnd >= 0 ? 0 : -1, base.schemeEnd);
+		location = base.substring(spec, base.locationStart, base.locationEnd);
+		path = base.substring(spec, base.pathStart, base.pathEnd);
+		parameters = base.substring(spec, base.parametersStart, base.parametersEnd);
+		query = base.substring(spec, base.queryStart, base.queryEnd);
+		if (path == null) {
+			directory = "/";
+		} else {
+			directory = path.substring(0, path.lastIndexOf('/') + 1);
+		}
+	}
+
+	public String resolve(final String relativeUrl) {
+		if (relativeUrl == null) {
+			throw new IllegalArgumentException("Relative URL must not be null");
+		}
+		final String spec = relativeUrl.trim();
+		if (spec.length() == 0) {
+			return base;
+		}
+		final Components url = new Components(spec);
+		if (url.schemeEnd >= 0) {
+			return spec;
+		}
+
+		final StringBuilder sb = new StringBuilder(base.length() + spec.length());
+		if (scheme != null) {
+			sb.append(scheme).append(':');
+		}
+		if (url.locationStart >= 0) {
+			sb.append(spec, url.locationStart - 2, spec.length());
+			return sb.toString();
+		}
+		if (location != null) {
+			sb.append("//").append(location);
+		}
+
+		if (url.pathStart >= 0) {
+			final int pathStart = sb.length();
+			if (spec.charAt(url.pathStart) != '/') {
+				sb.append(directory);
+			}
+			sb.append(spec, url.pathStart, url.pathEnd);
+			if (spec.charAt(url.pathStart) != '/') {
+				removeDotSegments(sb, pathStart);
+			}
+			removeLeadingSlashPoints(sb, pathStart);
+			// the rest of the link is copied as it is
+			sb.append(spec, url.pathEnd, spec.length());
+			return sb.toString();
+		}
+
+		if (path != null) {
+			sb.append(path);
+		}
+		if (url.parametersStart >= 0) {
+			sb.append(spec, url.parametersStart - 1, spec.length());
+			return sb.toString();
+		}
+		if (parameters != null) {
+			sb.append(';').append(parameters);
+		}
+		if (url.queryStart >= 0) {
+			sb.append(spec, url.queryStart - 1, spec.length());
+			return sb.toString();
+		}
+		if (query != null) {
+			sb.append('?').append(query);
+		}
+		// only a fragment is left
+		sb.append(spec);
+		return sb.toString();
+	}
+
+	// Step 6, a) to d), of RFC 1808 section 4, as UrlUtils does it
+	private static void removeDotSegments(final StringBuilder sb, final int pathStart) {
+		int index;
+		while ((index = sb.indexOf("/./", pathStart)) >= 0) {
+			sb.delete(index + 1, index + 3);
+		}
+		if ((sb.length() - pathStart >= 2) && endsWith(sb, "/.")) {
+			sb.setLength(sb.length() - 1);
+		}
+		while ((index = sb.indexOf("/../", pathStart)) > pathStart) {
+			final int slashIndex = sb.lastIndexOf("/", index - 1);
+			if (slashIndex < pathStart) {
+				break;
+			}
+			sb.delete(slashIndex + 1, index + 4);
+		}
+		if ((sb.length() - pathStart >= 3) && endsWith(sb, "/..")) {
+			final int slashIndex = sb.lastIndexOf("/", sb.length() - 4);
+			if (slashIndex >= pathStart) {
+				sb.setLength(slashIndex + 1);
+			}
+		}
+	}
+
+	private static void removeLeadingSlashPoints(final StringBuilder sb, final int pathStart) {
+		while ((sb.length() - pathStart >= 3) && (sb.charAt(pathStart) == '/') && (sb.charAt(pathStart + 1) == '.')
+				&& (sb.charAt(pathStart + 2) == '.')) {
+			sb.delete(pathStart, pathStart + 3);
+		}
+	}
+
+	private static boolean endsWith(final StringBuilder sb, final String suffix) {
+		final int offset = sb.length() - suffix.length();
+		for (int i = 0; i < suffix.length(); i++) {
+			if (sb.charAt(offset + i) != suffix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Positions of the components of a url, found as UrlUtils parses them
+	 * (RFC 1808 section 2.4). A start of -1 means the component is absent.
+	 */
+	private static final class Components {
+
+		private int schemeEnd = -1;
+		private int locationStart = -1;
+		private int locationEnd = -1;
+		private int pathStart = -1;
+		private int pathEnd = -1;
+		private int parametersStart = -1;
+		private int parametersEnd = -1;
+		private int queryStart = -1;
+		private int queryEnd = -1;
+
+		private Components(final String spec) {
+			int startIndex = 0;
+			int endIndex = spec.length();
+
+			final int crosshatchIndex = UrlUtils.indexOf(spec, '#', startIndex, endIndex);
+			if (crosshatchIndex >= 0) {
+				endIndex = crosshatchIndex;
+			}
+
+			final int colonIndex = UrlUtils.indexOf(spec, ':', startIndex, endIndex);
+			if ((colonIndex > 0) && isValidScheme(spec, colonIndex)) {
+				schemeEnd = colonIndex;
+				startIndex = colonIndex + 1;
+			}
+
+			if (spec.startsWith("//", startIndex)) {
+				locationStart = startIndex + 2;
+				locationEnd = UrlUtils.indexOf(spec, '/', locationStart, endIndex);
+				if (locationEnd >= 0) {
+					startIndex = locationEnd;
+				}
+			}
+
+			final int questionMarkIndex = UrlUtils.indexOf(spec, '?', startIndex, endIndex);
+			if (questionMarkIndex >= 0) {
+				if ((locationStart >= 0) && (locationEnd < 0)) {
+					locationEnd = questionMarkIndex;
+					startIndex = questionMarkIndex;
+				}
+				queryStart = questionMarkIndex + 1;
+				queryEnd = endIndex;
+				endIndex = questionMarkIndex;
+			}
+
+			final int semicolonIndex = UrlUtils.indexOf(spec, ';', startIndex, endIndex);
+			if (semicolonIndex >= 0) {
+				if ((locationStart >= 0) && (locationEnd < 0)) {
+					locationEnd = semicolonIndex;
+					startIndex = semicolonIndex;
+				}
+				parametersStart = semicolonIndex + 1;
+				parametersEnd = endIndex;
+				endIndex = semicolonIndex;
+			}
+
+			if ((locationStart >= 0) && (locationEnd < 0)) {
+				locationEnd = endIndex;
+			} else if (startIndex < endIndex) {
+				pathStart = startIndex;
+				pathEnd = endIndex;
+			}
+		}
+
+		private String substring(final String spec, final int start, final int end) {
+			return start < 0 ? null : spec.substring(start, end);
+		}
+
+		private static boolean isValidScheme(final String spec, final int end) {
+			if (!Character.isLetter(spec.charAt(0))) {
+				return false;
+			}
+			for (int i = 1; i < end; i++) {
+				final char c = spec.charAt(i);
+				if (!Character.isLetterOrDigit(c) && (c != '.') && (c != '+') && (c != '-')) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
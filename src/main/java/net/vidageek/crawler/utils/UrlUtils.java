@@ -1,5 +1,7 @@
 package net.vidageek.crawler.utils;
 
+import java.util.Locale;
+
 /**
  * Code copied from HtmlUnit
  * (src/main/java/com/gargoylesoftware/htmlunit/util/UrlUtils.java)
@@ -22,6 +24,49 @@ public final class UrlUtils {
 		return url.toString();
 	}
 
+	/**
+	 * Returns the lower-cased network location (host and optional port) of an
+	 * absolute url, without user info. Returns an empty string if the url has
+	 * no network location.
+	 */
+	public static String host(final String url) {
+		if (url == null) {
+			throw new IllegalArgumentException("url must not be null");
+		}
+		int startIndex = url.indexOf("://");
+		if (startIndex < 0) {
+			return "";
+		}
+		startIndex += 3;
+		int endIndex = startIndex;
+		while (endIndex < url.length()) {
+			final char c = url.charAt(endIndex);
+			if ((c == '/') || (c == '?') || (c == '#')) {
+				break;
+			}
+			endIndex++;
+		}
+		final int atIndex = url.lastIndexOf('@', endIndex - 1);
+		if (atIndex >= startIndex) {
+			startIndex = atIndex + 1;
+		}
+		return url.substring(startIndex, endIndex).toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Returns {@link #host(String)} without the port: the name to resolve.
+	 * IPv6 literals keep their brackets.
+	 */
+	public static String hostName(final String url) {
+		final String host = host(url);
+		final int bracketIndex = host.lastIndexOf(']');
+		final int colonIndex = host.lastIndexOf(':');
+		if (colonIndex > bracketIndex) {
+			return host.substring(0, colonIndex);
+		}
+		return host;
+	}
+
 	private static Url parseUrl(final String spec) {
 		final Url url = new Url();
 		int startIndex = 0;
@@ -50,6 +50,11 @@ public class OkPageTest {
 		assertEquals("test.page", links.get(0));
 	}
 
+	@Test
+	public void testThatEmptyPageHasNoLinks() {
+		assertEquals(0, new OkPage("defaultUrl", "").getLinks().size());
+	}
+
 	@Test
 	public void testPageAlwaysUTF8() {
 		assertEquals("UTF-8", new OkPage("url", "content").getCharset());
@@ -3,19 +3,39 @@
  */
 package net.vidageek.crawler;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.vidageek.crawler.component.CrawlJournal;
 import net.vidageek.crawler.component.LinkNormalizer.impl.DefaultLinkNormalizer;
 import net.vidageek.crawler.component.Downloader.Downloader;
 import net.vidageek.crawler.component.LinkNormalizer.LinkNormalizer;
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Metrics.CrawlStage;
+import net.vidageek.crawler.component.Progress.CrawlProgress;
+import net.vidageek.crawler.component.Progress.ProgressListener;
+import net.vidageek.crawler.component.Sitemap.SitemapSource;
+import net.vidageek.crawler.component.ValidatorStore.impl.FileValidatorStore;
+import net.vidageek.crawler.config.CrawlerConfiguration;
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Status;
 import net.vidageek.crawler.http.Url;
+import net.vidageek.crawler.http.page.NotModifiedPage;
 import net.vidageek.crawler.http.page.OkPage;
 
 import net.vidageek.crawler.component.visitor.PageVisitor;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.sun.net.httpserver.HttpExchange;
+
 /**
  * @author jonasabreu
  * 
@@ -92,4 +112,196 @@ public class PageCrawlerTest {
 		new PageCrawler("http://test.com", downloader, new DefaultLinkNormalizer("http://test.com")).crawl(visitor);
 	}
 
+	@Test
+	public void testThatResumeDoesNotRefetchFinishedPages() throws IOException {
+		File directory = File.createTempFile("checkpoint", "");
+		directory.delete();
+		directory.mkdir();
+
+		CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		journal.scheduled(new Url("http://test.com", 0));
+		journal.scheduled(new Url("http://test.com/a", 1));
+		journal.done(new Url("http://test.com", 0));
+		journal.close();
+
+		mockery.checking(new Expectations() {
+			{
+				one(downloader).get("http://test.com/a");
+				will(returnValue(new OkPage("http://test.com/a", "<a href=\"http://test.com\">")));
+
+				one(visitor).visit(with(any(OkPage.class)));
+			}
+		});
+		new PageCrawler(CrawlerConfiguration.forStartPoint("http://test.com").withDownloader(downloader)
+				.withCheckpoints(directory, 1000).build()).resume(visitor);
+
+		Assert.assertTrue(new CrawlJournal(directory).replay().isFinished());
+		new File(directory, "crawl.journal").delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testThatProgressListenerIsCalledWhileCrawling() {
+		mockery.checking(new Expectations() {
+			{
+				one(downloader).get("http://test.com");
+				will(returnValue(new OkPage("http://test.com", "<a href=\"http://test.com/a\">")));
+				one(visitor).visit(with(any(OkPage.class)));
+				one(visitor).followUrl(with(any(Url.class)));
+				will(returnValue(true));
+
+				one(downloader).get("http://test.com/a");
+				will(returnValue(new OkPage("http://test.com/a", "")));
+				one(visitor).visit(with(any(OkPage.class)));
+			}
+		});
+		final AtomicInteger calls = new AtomicInteger();
+		new PageCrawler(CrawlerConfiguration.forStartPoint("http://test.com").withDownloader(downloader)
+				.withProgressListener(new ProgressListener() {
+					public void onProgress(final CrawlProgress progress) {
+						calls.incrementAndGet();
+					}
+				}, 100).build()).crawl(visitor);
+
+		Assert.assertTrue(calls.get() > 0);
+	}
+
+	@Test
+	public void testThatCrawlsOnVirtualThreads() {
+		mockery.checking(new Expectations() {
+			{
+				one(downloader).get("http://test.com");
+				will(returnValue(new OkPage("http://test.com", "<a href=\"http://test.com/a\"><a href=\"http://test.com/b\">")));
+				exactly(3).of(visitor).visit(with(any(OkPage.class)));
+				exactly(2).of(visitor).followUrl(with(any(Url.class)));
+				will(returnValue(true));
+
+				one(downloader).get("http://test.com/a");
+				will(returnValue(new OkPage("http://test.com/a", "")));
+				one(downloader).get("http://test.com/b");
+				will(returnValue(new OkPage("http://test.com/b", "")));
+			}
+		});
+		new PageCrawler(CrawlerConfiguration.forStartPoint("http://test.com").withDownloader(downloader)
+				.withRequestDelay(0).withVirtualThreads().build()).crawl(visitor);
+	}
+
+	@Test
+	public void testThatUrlsDisallowedByRobotsAreReportedWithoutFetching() {
+		final Downloader robotsDownloader = mockery.mock(Downloader.class, "robotsDownloader");
+		mockery.checking(new Expectations() {
+			{
+				one(robotsDownloader).get("http://test.com/robots.txt");
+				will(returnValue(new OkPage("http://test.com/robots.txt", "User-agent: *\nDisallow: /private\n")));
+
+				one(downloader).get("http://test.com");
+				will(returnValue(new OkPage("http://test.com",
+						"<a href=\"http://test.com/a\"><a href=\"http://test.com/private\">")));
+				exactly(2).of(visitor).visit(with(any(OkPage.class)));
+				exactly(2).of(visitor).followUrl(with(any(Url.class)));
+				will(returnValue(true));
+
+				one(downloader).get("http://test.com/a");
+				will(returnValue(new OkPage("http://test.com/a", "")));
+				one(visitor).onError(new Url("http://test.com/private", 1), Status.DISALLOWED);
+			}
+		});
+		CrawlerConfiguration config = CrawlerConfiguration.forStartPoint("http://test.com").withDownloader(downloader)
+				.withRequestDelay(0).withRobots("vidageek").build();
+		config.robotsDownloader(robotsDownloader);
+		new PageCrawler(config).crawl(visitor);
+	}
+
+	@Test
+	public void testThatSitemapUrlsAreScheduledOnceWithTheirLastModification() {
+		mockery.checking(new Expectations() {
+			{
+				one(downloader).get("http://test.com");
+				will(returnValue(new OkPage("http://test.com", "")));
+				one(downloader).get("http://test.com/a");
+				will(returnValue(new OkPage("http://test.com/a", "")));
+				exactly(2).of(visitor).visit(with(any(OkPage.class)));
+				one(visitor).followUrl(with(any(Url.class)));
+				will(returnValue(true));
+			}
+		});
+		CrawlerConfiguration config = CrawlerConfiguration.forStartPoint("http://test.com").withDownloader(downloader)
+				.withRequestDelay(0).withSitemaps("http://test.com/sitemap.xml").build();
+		config.sitemapSource(new SitemapSource() {
+			public InputStream open(final String url) throws IOException {
+				return new ByteArrayInputStream(("<urlset><url><loc>http://test.com</loc></url>"
+						+ "<url><loc>http://test.com/a</loc><lastmod>2020-01-01</lastmod></url></urlset>")
+						.getBytes("UTF-8"));
+			}
+		});
+		new PageCrawler(config).crawl(visitor);
+	}
+
+	@Test
+	public void testThatMetricsRecordEachStageOfTheCrawl() {
+		mockery.checking(new Expectations() {
+			{
+				one(downloader).get("http://test.com");
+				will(returnValue(new OkPage("http://test.com", "<a href=\"http://test.com/a\"><a href=\"/a\">")));
+				one(downloader).get("http://test.com/a");
+				will(returnValue(new OkPage("http://test.com/a", "")));
+				exactly(2).of(visitor).visit(with(any(OkPage.class)));
+				one(visitor).followUrl(with(any(Url.class)));
+				will(returnValue(true));
+			}
+		});
+		CrawlMetrics metrics = new CrawlMetrics();
+		new PageCrawler(CrawlerConfiguration.forStartPoint("http://test.com").withDownloader(downloader)
+				.withRequestDelay(0).withMetrics(metrics).build()).crawl(visitor);
+
+		Assert.assertEquals(2, metrics.stage(CrawlStage.QUEUE_WAIT).count());
+		Assert.assertEquals(2, metrics.stage(CrawlStage.VISIT).count());
+		Assert.assertEquals(2, metrics.stage(CrawlStage.LINK_EXTRACTION).count());
+		Assert.assertEquals(2, metrics.stage(CrawlStage.NORMALIZATION).count());
+		Assert.assertEquals(2, metrics.stage(CrawlStage.VISITED_CHECK).count());
+		// only the default downloaders are metered
+		Assert.assertEquals(0, metrics.stage(CrawlStage.HTTP).count());
+	}
+
+	@Test
+	public void testThatNotModifiedSeedStillLeadsToItsChildren() throws IOException {
+		final AtomicInteger fullResponses = new AtomicInteger();
+		LocalHttpServer server = new LocalHttpServer().handle("/", (final HttpExchange exchange) -> {
+			if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			fullResponses.incrementAndGet();
+			byte[] body = ("/".equals(exchange.getRequestURI().getPath()) ? "<a href=\"/child\">child</a>" : "")
+					.getBytes("UTF-8");
+			exchange.getResponseHeaders().add("ETag", "\"v1\"");
+			LocalHttpServer.respond(exchange, 200, "text/html; charset=UTF-8", body);
+		}).start();
+		File file = File.createTempFile("validators", "");
+		file.delete();
+		try {
+			String base = server.base() + "/";
+			FileValidatorStore store = new FileValidatorStore(file);
+			mockery.checking(new Expectations() {
+				{
+					exactly(2).of(visitor).visit(with(any(OkPage.class)));
+					exactly(2).of(visitor).visit(with(any(NotModifiedPage.class)));
+					exactly(2).of(visitor).followUrl(with(any(Url.class)));
+					will(returnValue(true));
+				}
+			});
+			new PageCrawler(CrawlerConfiguration.forStartPoint(base).withRequestDelay(0)
+					.withValidatorStore(store).build()).crawl(visitor);
+			new PageCrawler(CrawlerConfiguration.forStartPoint(base).withRequestDelay(0)
+					.withValidatorStore(new FileValidatorStore(file)).build()).crawl(visitor);
+
+			Assert.assertEquals(2, fullResponses.get());
+		} finally {
+			server.stop();
+			file.delete();
+		}
+	}
+
 }
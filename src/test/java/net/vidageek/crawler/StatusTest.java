@@ -1,5 +1,7 @@
 package net.vidageek.crawler;
 
+import java.lang.reflect.Field;
+
 import net.vidageek.crawler.http.Status;
 import org.junit.Assert;
 
@@ -11,4 +13,42 @@ public class StatusTest {
 	public void testToCheckNotFoundIsReturned() {
 		Assert.assertEquals(Status.NOT_FOUND, Status.fromHttpCode(404));
 	}
+
+	@Test
+	public void testThatCrawlerStatusesAreNotMappedFromHttpCodes() {
+		for (int code = 0; code < 1000; code++) {
+			Assert.assertNotSame(Status.TRUNCATED, Status.fromHttpCode(code));
+			Assert.assertNotSame(Status.ABORTED, Status.fromHttpCode(code));
+			Assert.assertNotSame(Status.DISALLOWED, Status.fromHttpCode(code));
+		}
+	}
+
+	@Test
+	public void testThatLookupTableGivesTheSameStatusesAsScanningDeclarationOrder() throws Exception {
+		Field begin = Status.class.getDeclaredField("begin");
+		Field end = Status.class.getDeclaredField("end");
+		begin.setAccessible(true);
+		end.setAccessible(true);
+		for (int code = -10; code < 1100; code++) {
+			Status expected = Status.UNSPECIFIED_ERROR;
+			for (Status status : Status.values()) {
+				if ((begin.getInt(status) <= code) && (end.getInt(status) >= code)) {
+					expected = status;
+					break;
+				}
+			}
+			Assert.assertSame("code " + code, expected, Status.fromHttpCode(code));
+		}
+	}
+
+	@Test
+	public void testThatSpecificCodesComeBeforeTheirClass() {
+		Assert.assertSame(Status.OK, Status.fromHttpCode(200));
+		Assert.assertSame(Status.CREATED_201, Status.fromHttpCode(201));
+		Assert.assertSame(Status.OK, Status.fromHttpCode(250));
+		Assert.assertSame(Status.CLIENT_ERROR, Status.fromHttpCode(418));
+		Assert.assertSame(Status.UNSPECIFIED_ERROR, Status.fromHttpCode(0));
+		Assert.assertSame(Status.UNSPECIFIED_ERROR, Status.fromHttpCode(1000));
+		Assert.assertSame(Status.UNSPECIFIED_ERROR, Status.fromHttpCode(Integer.MIN_VALUE));
+	}
 }
@@ -0,0 +1,56 @@
+package net.vidageek.crawler.component;
+
+import net.vidageek.crawler.component.VisitedSet.impl.BloomFilterVisitedSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class BloomFilterVisitedSetTest {
+
+	@Test
+	public void testThatNeverAcceptsAUrlTwice() {
+		BloomFilterVisitedSet set = new BloomFilterVisitedSet(10000, 0.01);
+
+		for (int i = 0; i < 10000; i++) {
+			set.add("http://test.com/" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			Assert.assertFalse(set.add("http://test.com/" + i));
+		}
+	}
+
+	@Test
+	public void testThatSkipRateStaysCloseToConfiguredRate() {
+		BloomFilterVisitedSet set = new BloomFilterVisitedSet(100000, 0.01);
+
+		int skipped = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (!set.add("http://test.com/" + i)) {
+				skipped++;
+			}
+		}
+		// while filling up, the real rate is below the final one
+		Assert.assertTrue(skipped < 1000);
+		Assert.assertEquals(100000 - skipped, set.size());
+		Assert.assertTrue(set.fill() > 0.4 && set.fill() < 0.6);
+		Assert.assertEquals(0.01, set.estimatedFalsePositiveRate(), 0.003);
+	}
+
+	@Test
+	public void testThatEstimatedRateGrowsPastExpectedUrls() {
+		BloomFilterVisitedSet set = new BloomFilterVisitedSet(1000, 0.01);
+		long sizeInBytes = set.sizeInBytes();
+
+		for (int i = 0; i < 5000; i++) {
+			set.add("http://test.com/" + i);
+		}
+		Assert.assertTrue(set.estimatedFalsePositiveRate() > 0.1);
+		Assert.assertEquals(sizeInBytes, set.sizeInBytes());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatThrowsExceptionIfFalsePositiveRateIsNotAProbability() {
+		new BloomFilterVisitedSet(1000, 1);
+	}
+
+}
@@ -0,0 +1,190 @@
+package net.vidageek.crawler.component;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.vidageek.crawler.http.Url;
+import net.vidageek.crawler.utils.UrlFingerprint;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+final public class CrawlJournalTest {
+
+	private File directory;
+
+	@Before
+	public void setup() throws IOException {
+		directory = File.createTempFile("journal", "");
+		directory.delete();
+		directory.mkdir();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testThatReplayReturnsUnfinishedUrlsInOrder() {
+		CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		journal.scheduled(new Url("http://test.com", 0));
+		journal.scheduled(new Url("http://test.com/a", 1));
+		journal.scheduled(new Url("http://test.com/b", 1));
+		journal.done(new Url("http://test.com", 0));
+		journal.checkpoint();
+
+		CrawlJournal.State state = new CrawlJournal(directory).replay();
+
+		Assert.assertEquals(links("http://test.com/a", "http://test.com/b"), links(state.pending()));
+		Assert.assertEquals(1, state.pending().iterator().next().depth());
+		Assert.assertEquals(3, state.visited().length);
+		Assert.assertEquals(UrlFingerprint.of("http://test.com"), state.visited()[0]);
+	}
+
+	@Test
+	public void testThatStartCompactsState() {
+		CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		for (int i = 0; i < 1000; i++) {
+			journal.scheduled(new Url("http://test.com/" + i, 1));
+			journal.done(new Url("http://test.com/" + i, 1));
+		}
+		journal.scheduled(new Url("http://test.com/pending", 2));
+		journal.close();
+		long size = new File(directory, "crawl.journal").length();
+
+		journal.start(journal.replay());
+		journal.close();
+
+		Assert.assertTrue(new File(directory, "crawl.journal").length() < size);
+		CrawlJournal.State state = journal.replay();
+		Assert.assertEquals(links("http://test.com/pending"), links(state.pending()));
+		Assert.assertEquals(1001, state.visited().length);
+	}
+
+	@Test
+	public void testThatTornRecordAtTheEndIsIgnored() throws IOException {
+		CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		journal.scheduled(new Url("http://test.com", 0));
+		journal.close();
+
+		FileOutputStream output = new FileOutputStream(new File(directory, "crawl.journal"), true);
+		output.write(new byte[] { 'S', 0, 0, 0, 1, 0, 0 });
+		output.close();
+
+		Assert.assertEquals(links("http://test.com"), links(journal.replay().pending()));
+	}
+
+	@Test
+	public void testThatRecordsOfConcurrentWorkersAreAllKept() throws InterruptedException {
+		final CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int worker = t;
+			workers.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 5000; i++) {
+						Url url = new Url("http://test.com/" + worker + "/" + i, 1);
+						journal.scheduled(url);
+						if (i % 2 == 0) {
+							journal.done(url);
+						}
+					}
+				}
+			});
+		}
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		journal.close();
+
+		CrawlJournal.State state = journal.replay();
+		Assert.assertEquals(10000, links(state.pending()).size());
+		Assert.assertEquals(20000, state.visited().length);
+	}
+
+	@Test
+	public void testThatRecordsLoggedAfterCloseAreDropped() {
+		CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		journal.scheduled(new Url("http://test.com", 0));
+		journal.close();
+
+		journal.done(new Url("http://test.com", 0));
+		journal.scheduled(new Url("http://test.com/late", 1));
+		journal.checkpoint();
+
+		Assert.assertEquals(links("http://test.com"), links(journal.replay().pending()));
+	}
+
+	@Test
+	public void testThatCheckpointCompactsWithoutLosingConcurrentRecords() throws InterruptedException {
+		final CrawlJournal journal = new CrawlJournal(directory);
+		journal.start(new CrawlJournal.State());
+		for (int i = 0; i < 40000; i++) {
+			Url url = new Url("http://test.com/done/" + i, 1);
+			journal.scheduled(url);
+			journal.done(url);
+		}
+		Thread worker = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 20000; i++) {
+					journal.scheduled(new Url("http://test.com/pending/" + i, 2));
+				}
+			}
+		};
+		worker.start();
+		journal.checkpoint();
+		worker.join();
+		journal.checkpoint();
+		long size = new File(directory, "crawl.journal").length();
+		journal.close();
+
+		Assert.assertTrue(size < 40000 * 9 + 20000 * 40);
+		CrawlJournal.State state = journal.replay();
+		Assert.assertEquals(20000, links(state.pending()).size());
+		Assert.assertEquals("http://test.com/pending/0", state.pending().iterator().next().link());
+		Assert.assertEquals(60000, state.visited().length);
+	}
+
+	@Test
+	public void testThatEmptyDirectoryHasEmptyState() {
+		CrawlJournal.State state = new CrawlJournal(directory).replay();
+
+		Assert.assertTrue(state.isEmpty());
+	}
+
+	private static List<String> links(final Iterable<Url> urls) {
+		List<String> links = new ArrayList<String>();
+		for (Url url : urls) {
+			links.add(url.link());
+		}
+		return links;
+	}
+
+	private static List<String> links(final String... links) {
+		List<String> list = new ArrayList<String>();
+		for (String link : links) {
+			list.add(link);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,134 @@
+package net.vidageek.crawler.component.Dns.impl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.vidageek.crawler.component.Dns.DnsResolver;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+final public class CachingDnsResolverTest {
+
+	private StandInResolver standIn;
+	private CachingDnsResolver resolver;
+
+	@Before
+	public void setup() {
+		standIn = new StandInResolver();
+		resolver = new CachingDnsResolver(standIn, 60000, 60000);
+	}
+
+	@After
+	public void tearDown() {
+		resolver.shutdown();
+	}
+
+	@Test
+	public void testThatCachesAddresses() throws UnknownHostException {
+		Assert.assertEquals("127.0.0.1", resolver.resolve("a.test")[0].getHostAddress());
+		Assert.assertEquals("127.0.0.1", resolver.resolve("A.test")[0].getHostAddress());
+
+		Assert.assertEquals(1, standIn.lookups("a.test"));
+		Assert.assertEquals(1, resolver.hits());
+		Assert.assertEquals(1, resolver.misses());
+	}
+
+	@Test
+	public void testThatCachesUnknownHosts() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				resolver.resolve("unknown.test");
+				Assert.fail();
+			} catch (UnknownHostException e) {
+				// expected
+			}
+		}
+		Assert.assertEquals(1, standIn.lookups("unknown.test"));
+	}
+
+	@Test
+	public void testThatResolvesAgainAfterTtl() throws Exception {
+		CachingDnsResolver shortLived = new CachingDnsResolver(standIn, 1, 1);
+		try {
+			shortLived.resolve("a.test");
+			Thread.sleep(10);
+			shortLived.resolve("a.test");
+		} finally {
+			shortLived.shutdown();
+		}
+		Assert.assertEquals(2, standIn.lookups("a.test"));
+	}
+
+	@Test
+	public void testThatPrefetchedHostIsAnsweredFromTheCache() throws Exception {
+		resolver.prefetch("a.test");
+		for (int i = 0; (i < 100) && (standIn.lookups("a.test") == 0); i++) {
+			Thread.sleep(10);
+		}
+
+		resolver.resolve("a.test");
+		Assert.assertEquals(1, standIn.lookups("a.test"));
+		Assert.assertEquals(1, resolver.hits());
+		Assert.assertEquals(0, resolver.misses());
+	}
+
+	@Test
+	public void testThatConcurrentResolutionsShareOneLookup() throws Exception {
+		standIn.block = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		final AtomicInteger resolved = new AtomicInteger();
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				try {
+					resolver.resolve("a.test");
+					resolved.incrementAndGet();
+				} catch (UnknownHostException e) {
+					// counted as not resolved
+				}
+			});
+			threads[i].start();
+		}
+		Thread.sleep(50);
+		standIn.block.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(threads.length, resolved.get());
+		Assert.assertEquals(1, standIn.lookups("a.test"));
+	}
+
+	private static final class StandInResolver implements DnsResolver {
+
+		private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<String, AtomicInteger>();
+		private volatile CountDownLatch block;
+
+		public InetAddress[] resolve(final String host) throws UnknownHostException {
+			lookups.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet();
+			if (block != null) {
+				try {
+					block.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (host.startsWith("unknown")) {
+				throw new UnknownHostException(host);
+			}
+			return new InetAddress[] { InetAddress.getByAddress(host, new byte[] { 127, 0, 0, 1 }) };
+		}
+
+		private int lookups(final String host) {
+			AtomicInteger count = lookups.get(host);
+			return count == null ? 0 : count.get();
+		}
+	}
+
+}
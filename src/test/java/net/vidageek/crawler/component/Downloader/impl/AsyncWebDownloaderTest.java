@@ -0,0 +1,117 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.Metrics.CrawlMetrics;
+import net.vidageek.crawler.component.Metrics.CrawlStage;
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.page.OkPage;
+import net.vidageek.crawler.http.page.RejectedMimeTypePage;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+final public class AsyncWebDownloaderTest {
+
+	private LocalHttpServer server;
+	private AsyncWebDownloader downloader;
+	private String base;
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer()
+				.handle("/page", exchange -> LocalHttpServer.respond(exchange, 200, "text/html; charset=ISO-8859-1",
+						"<a href=\"/a\">ação</a>".getBytes("ISO-8859-1")))
+				.handle("/image", exchange -> LocalHttpServer.respond(exchange, 200, "image/png", new byte[10]))
+				.handle("/missing", exchange -> LocalHttpServer.respond(exchange, 404, "text/html", new byte[0]))
+				.handle("/failing", exchange -> {
+					exchange.sendResponseHeaders(500, -1);
+					exchange.close();
+				})
+				.handle("/video", AsyncWebDownloaderTest::respondSlowly)
+				.start();
+		base = server.base();
+		downloader = new AsyncWebDownloader(4, 2);
+	}
+
+	@After
+	public void tearDown() {
+		downloader.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void testThatDownloadsPagesAsynchronously() {
+		Page page = downloader.getAsync(base + "/page").join();
+
+		Assert.assertEquals(Status.OK, page.getStatusCode());
+		Assert.assertEquals("<a href=\"/a\">ação</a>", page.getContent());
+		Assert.assertEquals("ISO-8859-1", page.getCharset());
+		Assert.assertEquals(0, downloader.inFlight());
+	}
+
+	@Test
+	public void testThatBuildsErrorAndRejectedPages() {
+		Assert.assertEquals(Status.NOT_FOUND, downloader.get(base + "/missing").getStatusCode());
+		Assert.assertTrue(downloader.get(base + "/image") instanceof RejectedMimeTypePage);
+		Assert.assertTrue(downloader.get(base + "/page") instanceof OkPage);
+	}
+
+	@Test
+	public void testThatLongRejectedBodiesAreNotDownloaded() {
+		long start = System.nanoTime();
+		Assert.assertTrue(downloader.get(base + "/video") instanceof RejectedMimeTypePage);
+		Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+	}
+
+	@Test
+	public void testThatErrorsWithoutContentTypeAreReportedWithTheirStatus() {
+		Assert.assertEquals(Status.INTERNAL_SERVER_ERROR, downloader.get(base + "/failing").getStatusCode());
+	}
+
+	@Test
+	public void testThatBothDownloadersRecordTheirStages() {
+		CrawlMetrics metrics = new CrawlMetrics();
+		AsyncWebDownloader async = AsyncWebDownloader.builder(4, 2).withMetrics(metrics).build();
+		try {
+			async.get(base + "/page");
+		} finally {
+			async.shutdown();
+		}
+		WebDownloader.builder().withMetrics(metrics).build().get(base + "/page");
+
+		Assert.assertEquals(2, metrics.stage(CrawlStage.HTTP).count());
+		Assert.assertEquals(2, metrics.stage(CrawlStage.BODY_READ).count());
+		Assert.assertEquals(2, metrics.stage(CrawlStage.CHARSET).count());
+	}
+
+	/**
+	 * Sends 3.2 MB of video in 50 chunks, 100 ms apart.
+	 */
+	private static void respondSlowly(final HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "video/mp4");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream output = exchange.getResponseBody();
+		try {
+			for (int i = 0; i < 50; i++) {
+				output.write(new byte[64 * 1024]);
+				output.flush();
+				Thread.sleep(100);
+			}
+			output.close();
+		} catch (IOException e) {
+			// the client aborted
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
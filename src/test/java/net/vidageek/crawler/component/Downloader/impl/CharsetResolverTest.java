@@ -0,0 +1,80 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class CharsetResolverTest {
+
+	@Test
+	public void testThatContentTypeCharsetWins() throws UnsupportedEncodingException {
+		byte[] bytes = "<meta charset=\"utf-8\"><p>olá</p>".getBytes("ISO-8859-1");
+
+		Charset charset = CharsetResolver.resolve("text/html; charset=ISO-8859-1", bytes, bytes.length);
+
+		Assert.assertEquals(Charset.forName("ISO-8859-1"), charset);
+		Assert.assertTrue(CharsetResolver.decode(bytes, bytes.length, charset).contains("olá"));
+	}
+
+	@Test
+	public void testThatQuotedContentTypeCharsetIsAccepted() {
+		Assert.assertEquals(Charset.forName("UTF-8"), CharsetResolver.fromContentType("text/html;charset=\"utf-8\""));
+	}
+
+	@Test
+	public void testThatUnknownContentTypeCharsetIsIgnored() {
+		Assert.assertNull(CharsetResolver.fromContentType("text/html; charset=no-such-charset"));
+		Assert.assertNull(CharsetResolver.fromContentType("text/html"));
+	}
+
+	@Test
+	public void testThatMetaCharsetIsUsedWithoutContentTypeCharset() throws UnsupportedEncodingException {
+		byte[] bytes = "<html><head><META CHARSET='windows-1252'></head>".getBytes("US-ASCII");
+
+		Assert.assertEquals(Charset.forName("windows-1252"), CharsetResolver.resolve("text/html", bytes, bytes.length));
+	}
+
+	@Test
+	public void testThatHttpEquivMetaIsUsed() throws UnsupportedEncodingException {
+		byte[] bytes = "<meta name=x><meta http-equiv=\"Content-Type\" content=\"text/html; charset=GBK\">"
+				.getBytes("US-ASCII");
+
+		Assert.assertEquals(Charset.forName("GBK"), CharsetResolver.fromMeta(bytes, bytes.length));
+	}
+
+	@Test
+	public void testThatMetaIsOnlySearchedInsideLength() throws UnsupportedEncodingException {
+		byte[] bytes = "<p>text</p><meta charset=\"GBK\">".getBytes("US-ASCII");
+
+		Assert.assertNull(CharsetResolver.fromMeta(bytes, 11));
+	}
+
+	@Test
+	public void testThatUtf8ByteOrderMarkWinsAndIsSkipped() throws UnsupportedEncodingException {
+		byte[] text = "olá".getBytes("UTF-8");
+		byte[] bytes = new byte[text.length + 3];
+		bytes[0] = (byte) 0xEF;
+		bytes[1] = (byte) 0xBB;
+		bytes[2] = (byte) 0xBF;
+		System.arraycopy(text, 0, bytes, 3, text.length);
+
+		Charset charset = CharsetResolver.resolve("text/html; charset=ISO-8859-1", bytes, bytes.length);
+
+		Assert.assertEquals(Charset.forName("UTF-8"), charset);
+		Assert.assertEquals("olá", CharsetResolver.decode(bytes, bytes.length, charset));
+	}
+
+	@Test
+	public void testThatDetectsCharsetWhenNothingIsDeclared() throws UnsupportedEncodingException {
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < 50; i++) {
+			html.append("<p>programação em português, coração, ação</p>");
+		}
+		byte[] bytes = html.toString().getBytes("UTF-8");
+
+		Assert.assertEquals(Charset.forName("UTF-8"), CharsetResolver.resolve(null, bytes, bytes.length));
+	}
+
+}
@@ -0,0 +1,97 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.MeteredDownloader;
+import net.vidageek.crawler.component.Downloader.TransferStatistics;
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Page;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+final public class CompressedTransferTest {
+
+	private LocalHttpServer server;
+	private String base;
+	private String html;
+
+	@Before
+	public void setup() throws IOException {
+		StringBuilder builder = new StringBuilder("<html><body>");
+		for (int i = 0; i < 200; i++) {
+			builder.append("<a href=\"/page").append(i).append("\">página ").append(i).append("</a>");
+		}
+		html = builder.append("</body></html>").toString();
+		server = new LocalHttpServer().handle("/page", this::respond).start();
+		base = server.base();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testThatWebDownloaderDecodesGzipAndCountsBothSizes() {
+		assertDecoded(new WebDownloader());
+	}
+
+	@Test
+	public void testThatPooledWebDownloaderReusesConnectionAfterGzip() {
+		WebDownloader downloader = WebDownloader.pooled(1, 1);
+		try {
+			assertDecoded(downloader);
+			// the only pooled connection must have been released
+			Assert.assertEquals(html, downloader.get(base + "/page").getContent());
+		} finally {
+			downloader.shutdown();
+		}
+	}
+
+	@Test
+	public void testThatAsyncWebDownloaderDecodesGzipAndCountsBothSizes() {
+		AsyncWebDownloader downloader = new AsyncWebDownloader(2, 2);
+		try {
+			assertDecoded(downloader);
+		} finally {
+			downloader.shutdown();
+		}
+	}
+
+	private void assertDecoded(final Downloader downloader) {
+		Page page = downloader.get(base + "/page");
+
+		Assert.assertEquals(html, page.getContent());
+		TransferStatistics statistics = ((MeteredDownloader) downloader).transferStatistics();
+		Assert.assertEquals(1, statistics.responses());
+		Assert.assertTrue(statistics.decodedBytes() > 5 * statistics.wireBytes());
+	}
+
+	private void respond(final HttpExchange exchange) throws IOException {
+		byte[] body = html.getBytes("UTF-8");
+		String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if ((accepted != null) && accepted.contains("gzip")) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+			gzip.write(body);
+			gzip.close();
+			body = bytes.toByteArray();
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+		}
+		exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(body);
+		output.close();
+	}
+
+}
@@ -0,0 +1,100 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.ValidatorStore.impl.FileValidatorStore;
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.page.NotModifiedPage;
+import net.vidageek.crawler.http.page.OkPage;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+final public class ConditionalGetTest {
+
+	private static final String ETAG = "\"v1\"";
+
+	private LocalHttpServer server;
+	private String base;
+	private File file;
+	private FileValidatorStore store;
+	private final AtomicInteger fullResponses = new AtomicInteger();
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer().handle("/page", this::respond).start();
+		base = server.base();
+		file = File.createTempFile("validators", "");
+		file.delete();
+		store = new FileValidatorStore(file);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+		file.delete();
+	}
+
+	@Test
+	public void testThatWebDownloaderReturnsNotModifiedPageOnSecondFetch() {
+		WebDownloader downloader = WebDownloader.builder().withValidatorStore(store).build();
+
+		assertConditionalGet(downloader);
+	}
+
+	@Test
+	public void testThatAsyncWebDownloaderReturnsNotModifiedPageOnSecondFetch() {
+		AsyncWebDownloader downloader = AsyncWebDownloader.builder(4, 2).withValidatorStore(store).build();
+		try {
+			assertConditionalGet(downloader);
+		} finally {
+			downloader.shutdown();
+		}
+	}
+
+	@Test
+	public void testThatValidatorsSurviveAReload() {
+		WebDownloader downloader = WebDownloader.builder().withValidatorStore(store).build();
+		downloader.get(base + "/page");
+		store.flush();
+
+		WebDownloader next = WebDownloader.builder().withValidatorStore(new FileValidatorStore(file))
+				.build();
+		Assert.assertTrue(next.get(base + "/page") instanceof NotModifiedPage);
+		Assert.assertEquals(1, fullResponses.get());
+	}
+
+	private void assertConditionalGet(final Downloader downloader) {
+		Page first = downloader.get(base + "/page");
+		Assert.assertTrue(first instanceof OkPage);
+		Assert.assertEquals(ETAG, store.get(base + "/page").etag());
+
+		Page second = downloader.get(base + "/page");
+		Assert.assertTrue(second instanceof NotModifiedPage);
+		Assert.assertEquals(Status.NOT_MODIFIED_304, second.getStatusCode());
+		Assert.assertEquals(Arrays.asList("/a"), second.getLinks());
+		Assert.assertEquals(1, fullResponses.get());
+	}
+
+	private void respond(final HttpExchange exchange) throws IOException {
+		if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+		fullResponses.incrementAndGet();
+		exchange.getResponseHeaders().add("ETag", ETAG);
+		LocalHttpServer.respond(exchange, 200, "text/html; charset=UTF-8", "<a href=\"/a\">a</a>".getBytes("UTF-8"));
+	}
+
+}
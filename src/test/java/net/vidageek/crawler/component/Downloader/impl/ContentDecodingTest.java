@@ -0,0 +1,97 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.vidageek.crawler.exception.CrawlerException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class ContentDecodingTest {
+
+	private static final String HTML = "<html><body><a href=\"/a\">ação</a></body></html>";
+
+	@Test
+	public void testThatDecodesGzip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+		gzip.write(HTML.getBytes("UTF-8"));
+		gzip.close();
+
+		Assert.assertEquals(HTML, read(ContentDecoding.decode("gzip", new ByteArrayInputStream(bytes.toByteArray()))));
+	}
+
+	@Test
+	public void testThatDecodesZlibWrappedDeflate() throws IOException {
+		Assert.assertEquals(HTML, read(ContentDecoding.decode("deflate", deflated(false))));
+	}
+
+	@Test
+	public void testThatDecodesRawDeflate() throws IOException {
+		Assert.assertEquals(HTML, read(ContentDecoding.decode("Deflate", deflated(true))));
+	}
+
+	@Test
+	public void testThatIdentityIsNotDecoded() throws IOException {
+		InputStream body = new ByteArrayInputStream(new byte[0]);
+
+		Assert.assertSame(body, ContentDecoding.decode(null, body));
+		Assert.assertSame(body, ContentDecoding.decode("identity", body));
+	}
+
+	@Test
+	public void testThatIdentityListsAreNotDecoded() throws IOException {
+		InputStream body = new ByteArrayInputStream(new byte[0]);
+
+		Assert.assertTrue(ContentDecoding.isIdentity("identity, identity"));
+		Assert.assertSame(body, ContentDecoding.decode(" identity ,", body));
+	}
+
+	@Test
+	public void testThatDecodesCodingListsFromTheLastToTheFirst() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+		byte[] deflatedBytes = new byte[1024];
+		InputStream deflated = deflated(false);
+		int read;
+		while ((read = deflated.read(deflatedBytes)) != -1) {
+			gzip.write(deflatedBytes, 0, read);
+		}
+		gzip.close();
+
+		Assert.assertFalse(ContentDecoding.isIdentity("gzip, identity"));
+		Assert.assertEquals(HTML, read(ContentDecoding.decode("deflate, identity, gzip",
+				new ByteArrayInputStream(bytes.toByteArray()))));
+	}
+
+	@Test(expected = CrawlerException.class)
+	public void testThatThrowsExceptionOnUnsupportedCodingInList() throws IOException {
+		ContentDecoding.decode("gzip, br", new ByteArrayInputStream(new byte[0]));
+	}
+
+	@Test(expected = CrawlerException.class)
+	public void testThatThrowsExceptionOnUnsupportedEncoding() throws IOException {
+		ContentDecoding.decode("br", new ByteArrayInputStream(new byte[0]));
+	}
+
+	private static InputStream deflated(final boolean raw) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DeflaterOutputStream deflate = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+		deflate.write(HTML.getBytes("UTF-8"));
+		deflate.close();
+		return new ByteArrayInputStream(bytes.toByteArray());
+	}
+
+	private static String read(final InputStream input) throws IOException {
+		ResponseBody body = ResponseBody.read(input, -1);
+		input.close();
+		return new String(body.toByteArray(), "UTF-8");
+	}
+
+}
@@ -0,0 +1,107 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.FetchLimits;
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Status;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+final public class FetchLimitsTest {
+
+	private static final FetchLimits LIMITS = new FetchLimits(1000, 1000, 4096, 600);
+
+	private LocalHttpServer server;
+	private String base;
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer()
+				.handle("/small", exchange -> LocalHttpServer.respond(exchange, 200, "text/html", new byte[100]))
+				.handle("/big", exchange -> LocalHttpServer.respond(exchange, 200, "text/html", new byte[100000]))
+				.handle("/big-chunked", FetchLimitsTest::respondChunked)
+				.handle("/drip", this::drip)
+				.start();
+		base = server.base();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testThatWebDownloaderEnforcesLimits() {
+		assertLimits(WebDownloader.builder().withFetchLimits(LIMITS).build());
+	}
+
+	@Test
+	public void testThatAsyncWebDownloaderEnforcesLimits() {
+		AsyncWebDownloader downloader = AsyncWebDownloader.builder(4, 4).withFetchLimits(LIMITS).build();
+		try {
+			assertLimits(downloader);
+		} finally {
+			downloader.shutdown();
+		}
+	}
+
+	@Test
+	public void testThatLimitedInputStreamCountsBytes() throws IOException {
+		LimitedInputStream input = new LimitedInputStream(new ByteArrayInputStream(new byte[10]), 10,
+				Long.MAX_VALUE);
+		Assert.assertEquals(10, ResponseBody.read(input, -1).length());
+	}
+
+	private void assertLimits(final Downloader downloader) {
+		Assert.assertEquals(Status.OK, downloader.get(base + "/small").getStatusCode());
+		Assert.assertEquals(Status.TRUNCATED, downloader.get(base + "/big").getStatusCode());
+		Assert.assertEquals(Status.TRUNCATED, downloader.get(base + "/big-chunked").getStatusCode());
+
+		long start = System.currentTimeMillis();
+		Assert.assertEquals(Status.ABORTED, downloader.get(base + "/drip").getStatusCode());
+		Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+	}
+
+	private static void respondChunked(final HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "text/html");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream output = exchange.getResponseBody();
+		try {
+			output.write(new byte[100000]);
+			output.close();
+		} catch (IOException e) {
+			// the client gave up on the body
+		}
+	}
+
+	/**
+	 * Sends a byte well within the read timeout, forever.
+	 */
+	private void drip(final HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "text/html");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream output = exchange.getResponseBody();
+		try {
+			for (int i = 0; i < 100; i++) {
+				output.write(' ');
+				output.flush();
+				Thread.sleep(200);
+			}
+			output.close();
+		} catch (IOException e) {
+			// the client aborted
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
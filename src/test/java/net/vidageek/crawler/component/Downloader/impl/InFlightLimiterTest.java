@@ -0,0 +1,147 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class InFlightLimiterTest {
+
+	// the host delay starts requests on the watchdog's thread
+	private final List<CompletableFuture<String>> started =
+			Collections.synchronizedList(new ArrayList<CompletableFuture<String>>());
+
+	@Test
+	public void testThatRespectsGlobalLimit() {
+		InFlightLimiter limiter = new InFlightLimiter(2, 2);
+		submit(limiter, "a");
+		submit(limiter, "b");
+		submit(limiter, "c");
+
+		Assert.assertEquals(2, started.size());
+		Assert.assertEquals(1, limiter.waiting());
+
+		started.get(0).complete("done");
+
+		Assert.assertEquals(3, started.size());
+		Assert.assertEquals(2, limiter.inFlight());
+	}
+
+	@Test
+	public void testThatRespectsPerHostLimitWithoutBlockingOtherHosts() {
+		InFlightLimiter limiter = new InFlightLimiter(10, 1);
+		submit(limiter, "a");
+		submit(limiter, "a");
+		submit(limiter, "b");
+
+		Assert.assertEquals(2, started.size());
+		Assert.assertEquals(1, limiter.waiting());
+
+		started.get(0).complete("done");
+
+		Assert.assertEquals(3, started.size());
+	}
+
+	@Test
+	public void testThatHostsTakeTurnsForGlobalSlots() {
+		InFlightLimiter limiter = new InFlightLimiter(1, 1);
+		List<String> order = new ArrayList<String>();
+		submit(limiter, "a");
+		submit(limiter, "a").thenAccept(order::add);
+		submit(limiter, "a").thenAccept(order::add);
+		submit(limiter, "b").thenAccept(order::add);
+
+		started.get(0).complete("a0");
+		started.get(1).complete("a1");
+		started.get(2).complete("b");
+		started.get(3).complete("a2");
+
+		Assert.assertEquals(List.of("a1", "b", "a2"), order);
+	}
+
+	@Test
+	public void testThatFailuresReleaseTheirSlot() {
+		InFlightLimiter limiter = new InFlightLimiter(1, 1);
+		CompletableFuture<String> failed = submit(limiter, "a");
+		submit(limiter, "a");
+
+		started.get(0).completeExceptionally(new RuntimeException());
+
+		Assert.assertTrue(failed.isCompletedExceptionally());
+		Assert.assertEquals(2, started.size());
+	}
+
+	@Test
+	public void testThatCapacityCountsWaitingRequests() throws InterruptedException {
+		InFlightLimiter limiter = new InFlightLimiter(2, 1);
+		submit(limiter, "a");
+		Assert.assertTrue(limiter.awaitCapacity(0, TimeUnit.NANOSECONDS));
+
+		submit(limiter, "a");
+		Assert.assertFalse(limiter.awaitCapacity(10, TimeUnit.MILLISECONDS));
+
+		started.get(0).complete("done");
+		Assert.assertEquals(2, started.size());
+		Assert.assertTrue(limiter.awaitCapacity(0, TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testThatReleasedRequestsWaitForTheHostDelay() throws InterruptedException {
+		InFlightLimiter limiter = new InFlightLimiter(10, 1, 300);
+		submit(limiter, "a");
+		CompletableFuture<String> second = submit(limiter, "a");
+		long start = System.nanoTime();
+
+		started.get(0).complete("done");
+		Assert.assertEquals(1, started.size());
+
+		while (started.size() < 2) {
+			Thread.sleep(5);
+		}
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+		started.get(1).complete("second");
+		Assert.assertEquals("second", second.getNow(null));
+	}
+
+	@Test
+	public void testThatIdleHostsStillWaitForTheHostDelay() throws InterruptedException {
+		InFlightLimiter limiter = new InFlightLimiter(10, 1, 300);
+		submit(limiter, "a");
+		long start = System.nanoTime();
+		started.get(0).complete("done");
+		Assert.assertEquals(0, limiter.inFlight());
+
+		submit(limiter, "a");
+		Assert.assertEquals(1, started.size());
+		while (started.size() < 2) {
+			Thread.sleep(5);
+		}
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+	}
+
+	@Test
+	public void testThatIdleHostsAreForgottenOnceTheirDelayHasPassed() throws InterruptedException {
+		InFlightLimiter limiter = new InFlightLimiter(10, 1, 50);
+		submit(limiter, "a");
+		started.get(0).complete("done");
+		Assert.assertEquals(1, limiter.numberOfHosts());
+
+		Thread.sleep(100);
+		submit(limiter, "b");
+
+		Assert.assertEquals(1, limiter.numberOfHosts());
+	}
+
+	private CompletableFuture<String> submit(final InFlightLimiter limiter, final String host) {
+		return limiter.submit(host, () -> {
+			CompletableFuture<String> future = new CompletableFuture<String>();
+			started.add(future);
+			return future;
+		});
+	}
+
+}
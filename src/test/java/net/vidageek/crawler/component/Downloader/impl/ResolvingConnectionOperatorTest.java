@@ -0,0 +1,77 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.vidageek.crawler.component.Dns.DnsResolver;
+import net.vidageek.crawler.exception.CrawlerException;
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Status;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+final public class ResolvingConnectionOperatorTest {
+
+	private LocalHttpServer server;
+	private int port;
+	private final List<String> resolved = new ArrayList<String>();
+
+	private final DnsResolver standIn = new DnsResolver() {
+		public InetAddress[] resolve(final String host) throws UnknownHostException {
+			synchronized (resolved) {
+				resolved.add(host);
+			}
+			if (!"crawler.test".equals(host)) {
+				throw new UnknownHostException(host);
+			}
+			return new InetAddress[] { InetAddress.getByAddress(host, new byte[] { 127, 0, 0, 1 }) };
+		}
+	};
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer()
+				.handle("/page", exchange -> LocalHttpServer.respond(exchange, 200, "text/html",
+						"<html></html>".getBytes("UTF-8")))
+				.start();
+		port = server.port();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testThatPooledClientConnectsThroughTheResolver() {
+		WebDownloader downloader = WebDownloader.builder()
+				.withSharedClient(WebDownloader.createPooledClient(2, 2, standIn)).build();
+		try {
+			Assert.assertEquals(Status.OK, downloader.get("http://crawler.test:" + port + "/page").getStatusCode());
+		} finally {
+			downloader.shutdown();
+		}
+		Assert.assertEquals(Arrays.asList("crawler.test"), resolved);
+	}
+
+	@Test
+	public void testThatPerRequestClientConnectsThroughTheResolver() {
+		WebDownloader downloader = WebDownloader.builder().withDnsResolver(standIn).build();
+
+		Assert.assertEquals(Status.OK, downloader.get("http://crawler.test:" + port + "/page").getStatusCode());
+		Assert.assertEquals(Arrays.asList("crawler.test"), resolved);
+	}
+
+	@Test(expected = CrawlerException.class)
+	public void testThatUnknownHostFailsTheFetch() {
+		WebDownloader.builder().withDnsResolver(standIn).build().get("http://other.test:" + port + "/page");
+	}
+
+}
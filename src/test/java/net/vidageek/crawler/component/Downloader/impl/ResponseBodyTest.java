@@ -0,0 +1,83 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class ResponseBodyTest {
+
+	@Test
+	public void testThatBodyWithContentLengthIsNotCopied() {
+		byte[] content = content(5000);
+
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), content.length);
+
+		Assert.assertEquals(content.length, body.length());
+		Assert.assertSame(body.bytes(), body.toByteArray());
+		Assert.assertArrayEquals(content, body.toByteArray());
+	}
+
+	@Test
+	public void testThatReadsBodyWithoutContentLength() {
+		byte[] content = content(100000);
+
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), -1);
+
+		Assert.assertArrayEquals(content, body.toByteArray());
+	}
+
+	@Test
+	public void testThatReadsWholeBodyWhenContentLengthIsTooSmall() {
+		byte[] content = content(3000);
+
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), 1000);
+
+		Assert.assertArrayEquals(content, body.toByteArray());
+	}
+
+	@Test
+	public void testThatReadsShortBodyWhenContentLengthIsTooBig() {
+		byte[] content = content(10);
+
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), 1000);
+
+		Assert.assertArrayEquals(content, body.toByteArray());
+	}
+
+	@Test
+	public void testThatForgedContentLengthDoesNotAllocateItsSize() {
+		byte[] content = content(10);
+
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), Integer.MAX_VALUE - 100);
+
+		Assert.assertArrayEquals(content, body.toByteArray());
+		Assert.assertTrue(body.bytes().length <= ResponseBody.MAX_INITIAL_BUFFER_SIZE);
+	}
+
+	@Test
+	public void testThatLargeBodyWithContentLengthEndsExactlySized() {
+		byte[] content = content(3 * ResponseBody.MAX_INITIAL_BUFFER_SIZE + 5);
+
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), content.length);
+
+		Assert.assertSame(body.bytes(), body.toByteArray());
+		Assert.assertArrayEquals(content, body.toByteArray());
+	}
+
+	@Test
+	public void testThatReadsEmptyBody() {
+		ResponseBody body = ResponseBody.read(new ByteArrayInputStream(new byte[0]), 0);
+
+		Assert.assertEquals(0, body.length());
+	}
+
+	private byte[] content(final int length) {
+		byte[] content = new byte[length];
+		Arrays.fill(content, (byte) 'a');
+		content[length - 1] = 'z';
+		return content;
+	}
+
+}
@@ -0,0 +1,57 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class UrlEncodingTest {
+
+	@Test
+	public void testThatEncodesLikeURLEncoderOneCharacterAtATime() throws UnsupportedEncodingException {
+		Random random = new Random(7);
+		String alphabet = "aZ09:/.?&#=-*_ +;@!~'()[]$,\"<>{}|\\^`çãé€中 \t";
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder url = new StringBuilder("http://test.com/");
+			for (int j = random.nextInt(40); j > 0; j--) {
+				url.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			Assert.assertEquals(reference(url.toString()), WebDownloader.encode(url.toString()));
+		}
+	}
+
+	@Test
+	public void testThatExistingEscapesAreLeftAlone() {
+		Assert.assertEquals("http://test.com/a%20b?q=%C3%A7%C3%A3", WebDownloader.encode("http://test.com/a%20b?q=çã"));
+		Assert.assertEquals("http://test.com/100%25?x=%252", WebDownloader.encode("http://test.com/100%?x=%2"));
+		Assert.assertEquals("http://test.com/%25zz", WebDownloader.encode("http://test.com/%zz"));
+	}
+
+	@Test
+	public void testThatUrlsWithNothingToEncodeAreReturnedAsTheyAre() {
+		String url = "http://test.com/search?q=abc&page=2#top";
+		Assert.assertSame(url, WebDownloader.encode(url));
+	}
+
+	@Test
+	public void testThatSupplementaryCharactersAreEncodedWhole() {
+		Assert.assertEquals("http://test.com/%F0%9F%98%80", WebDownloader.encode("http://test.com/😀"));
+		Assert.assertEquals("http://test.com/%3Fa", WebDownloader.encode("http://test.com/\uD83Da"));
+	}
+
+	// the encoder WebDownloader used to have
+	private static String reference(final String url) throws UnsupportedEncodingException {
+		StringBuilder res = new StringBuilder();
+		for (char c : url.toCharArray()) {
+			if (":/.?&#=".indexOf(c) < 0) {
+				res.append(URLEncoder.encode("" + c, "UTF-8"));
+			} else {
+				res.append(c);
+			}
+		}
+		return res.toString();
+	}
+
+}
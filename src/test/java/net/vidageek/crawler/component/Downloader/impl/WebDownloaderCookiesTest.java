@@ -0,0 +1,68 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.vidageek.crawler.http.Cookie;
+import net.vidageek.crawler.http.LocalHttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+final public class WebDownloaderCookiesTest {
+
+	private LocalHttpServer server;
+	private String base;
+	private final List<String> sent = new ArrayList<String>();
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer().handle("/", exchange -> {
+			synchronized (sent) {
+				sent.add(String.valueOf(exchange.getRequestHeaders().getFirst("Cookie")));
+			}
+			exchange.getResponseHeaders().add("Set-Cookie", "session=1; Path=/");
+			LocalHttpServer.respond(exchange, 200, "text/html", "<html></html>".getBytes("UTF-8"));
+		}).start();
+		base = server.base();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testThatPooledClientSendsOnlyTheGivenCookies() {
+		assertOnlyGivenCookies(WebDownloader.builder().withCookies(cookies())
+				.withSharedClient(WebDownloader.createPooledClient(2, 2)).build());
+	}
+
+	@Test
+	public void testThatPerRequestClientSendsOnlyTheGivenCookies() {
+		assertOnlyGivenCookies(WebDownloader.builder().withCookies(cookies()).build());
+	}
+
+	private void assertOnlyGivenCookies(final WebDownloader downloader) {
+		try {
+			downloader.get(base + "/first");
+			downloader.get(base + "/second");
+		} finally {
+			downloader.shutdown();
+		}
+		Assert.assertEquals(2, sent.size());
+		for (String cookie : sent) {
+			Assert.assertTrue(cookie, cookie.contains("user=a"));
+			Assert.assertFalse(cookie, cookie.contains("session"));
+		}
+	}
+
+	private static List<Cookie> cookies() {
+		return Arrays.asList(new Cookie("user", "a", "127.0.0.1", "/"));
+	}
+
+}
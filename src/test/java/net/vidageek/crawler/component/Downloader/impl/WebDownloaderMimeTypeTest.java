@@ -0,0 +1,119 @@
+package net.vidageek.crawler.component.Downloader.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.vidageek.crawler.http.LocalHttpServer;
+import net.vidageek.crawler.http.Page;
+import net.vidageek.crawler.http.Status;
+import net.vidageek.crawler.http.page.OkPage;
+import net.vidageek.crawler.http.page.RejectedMimeTypePage;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+final public class WebDownloaderMimeTypeTest {
+
+	private LocalHttpServer server;
+	private String base;
+	private WebDownloader downloader;
+	private final List<Integer> clientPorts = new ArrayList<Integer>();
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer()
+				.handle("/page", exchange -> respond(exchange, "text/html", "<a href=\"/a\">a</a>".getBytes("UTF-8")))
+				.handle("/image", exchange -> respond(exchange, "image/png", new byte[10]))
+				.handle("/video", exchange -> respond(exchange, "video/mp4",
+						new byte[WebDownloader.MAX_DRAINED_BYTES + 1]))
+				.handle("/missing", exchange -> respond(exchange, 404, "text/html", new byte[10]))
+				.handle("/broken", exchange -> respond(exchange, 500, "text/html",
+						new byte[WebDownloader.MAX_DRAINED_BYTES + 1]))
+				.handle("/failing", exchange -> {
+					exchange.sendResponseHeaders(500, -1);
+					exchange.close();
+				})
+				.start();
+		base = server.base();
+		downloader = WebDownloader.builder().withSharedClient(WebDownloader.createPooledClient(1, 1)).build();
+	}
+
+	@After
+	public void tearDown() {
+		downloader.shutdown();
+		server.stop();
+	}
+
+	@Test
+	public void testThatAcceptedMimeTypesAreDownloaded() {
+		Assert.assertTrue(downloader.get(base + "/page") instanceof OkPage);
+	}
+
+	@Test
+	public void testThatOtherMimeTypesAreRejected() {
+		Page page = downloader.get(base + "/image");
+
+		Assert.assertTrue(page instanceof RejectedMimeTypePage);
+		Assert.assertEquals("image/png", ((RejectedMimeTypePage) page).getMimeType());
+	}
+
+	@Test
+	public void testThatErrorsWithoutContentTypeAreReportedWithTheirStatus() {
+		Page page = downloader.get(base + "/failing");
+
+		Assert.assertTrue(page instanceof RejectedMimeTypePage);
+		Assert.assertEquals(Status.INTERNAL_SERVER_ERROR, page.getStatusCode());
+		Assert.assertNull(((RejectedMimeTypePage) page).getMimeType());
+	}
+
+	@Test
+	public void testThatShortRejectedResponsesKeepTheirConnection() {
+		downloader.get(base + "/image");
+		downloader.get(base + "/page");
+
+		Assert.assertEquals(clientPorts.get(0), clientPorts.get(1));
+	}
+
+	@Test
+	public void testThatLongRejectedResponsesAreNotDownloaded() {
+		downloader.get(base + "/video");
+		downloader.get(base + "/page");
+
+		Assert.assertFalse(clientPorts.get(0).equals(clientPorts.get(1)));
+	}
+
+	@Test
+	public void testThatShortErrorResponsesKeepTheirConnection() {
+		Assert.assertEquals(Status.NOT_FOUND, downloader.get(base + "/missing").getStatusCode());
+		downloader.get(base + "/page");
+
+		Assert.assertEquals(clientPorts.get(0), clientPorts.get(1));
+	}
+
+	@Test
+	public void testThatLongErrorResponsesAreNotDownloaded() {
+		Assert.assertEquals(Status.INTERNAL_SERVER_ERROR, downloader.get(base + "/broken").getStatusCode());
+		downloader.get(base + "/page");
+
+		Assert.assertFalse(clientPorts.get(0).equals(clientPorts.get(1)));
+	}
+
+	private void respond(final HttpExchange exchange, final String contentType, final byte[] body)
+			throws IOException {
+		respond(exchange, 200, contentType, body);
+	}
+
+	private void respond(final HttpExchange exchange, final int status, final String contentType,
+			final byte[] body) throws IOException {
+		synchronized (clientPorts) {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+		}
+		LocalHttpServer.respond(exchange, status, contentType, body);
+	}
+
+}
@@ -0,0 +1,46 @@
+package net.vidageek.crawler.component;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class ExecutorCounterTest {
+
+	@Test
+	public void testThatAwaitZeroReturnsWhenLastExecutorFinishes() throws InterruptedException {
+		final ExecutorCounter counter = new ExecutorCounter();
+		counter.increase();
+		counter.increase();
+		new Thread() {
+			@Override
+			public void run() {
+				counter.decrease();
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					return;
+				}
+				counter.decrease();
+			}
+		}.start();
+
+		long start = System.currentTimeMillis();
+		Assert.assertTrue(counter.awaitZero(10, TimeUnit.SECONDS));
+		Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+
+	@Test
+	public void testThatAwaitZeroTimesOutWhileExecutorsAreAlive() throws InterruptedException {
+		ExecutorCounter counter = new ExecutorCounter();
+		counter.increase();
+
+		Assert.assertFalse(counter.awaitZero(50, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testThatAwaitZeroDoesNotWaitIfNoExecutorIsAlive() throws InterruptedException {
+		Assert.assertTrue(new ExecutorCounter().awaitZero(0, TimeUnit.MILLISECONDS));
+	}
+
+}
@@ -0,0 +1,71 @@
+package net.vidageek.crawler.component;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.vidageek.crawler.component.VisitedSet.VisitedSet;
+import net.vidageek.crawler.component.VisitedSet.impl.FingerprintVisitedSet;
+import net.vidageek.crawler.utils.UrlFingerprint;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class FingerprintVisitedSetTest {
+
+	@Test
+	public void testThatAcceptsEachUrlOnce() {
+		VisitedSet set = new FingerprintVisitedSet(0);
+
+		for (int i = 0; i < 100000; i++) {
+			Assert.assertTrue(set.add("http://test.com/" + i));
+		}
+		for (int i = 0; i < 100000; i++) {
+			Assert.assertFalse(set.add("http://test.com/" + i));
+		}
+		Assert.assertEquals(100000, set.size());
+	}
+
+	@Test
+	public void testThatFingerprintsAndLinksAreInterchangeable() {
+		VisitedSet set = new FingerprintVisitedSet();
+
+		Assert.assertTrue(set.add(UrlFingerprint.of("http://test.com")));
+		Assert.assertFalse(set.add("http://test.com"));
+		Assert.assertTrue(set.add(0));
+		Assert.assertFalse(set.add(0));
+	}
+
+	@Test
+	public void testThatConcurrentAddsAcceptEachUrlOnce() throws InterruptedException {
+		final VisitedSet set = new FingerprintVisitedSet(16);
+		final AtomicInteger accepted = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 50000; i++) {
+						if (set.add("http://test.com/" + i)) {
+							accepted.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(50000, accepted.get());
+		Assert.assertEquals(50000, set.size());
+	}
+
+}
@@ -0,0 +1,46 @@
+package net.vidageek.crawler.component.Metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class CrawlMetricsTest {
+
+	@Test
+	public void testThatStagesAreRecordedSeparately() {
+		CrawlMetrics metrics = new CrawlMetrics();
+		metrics.record(CrawlStage.HTTP, 2000000);
+		metrics.record(CrawlStage.HTTP, 4000000);
+		metrics.record(CrawlStage.VISIT, 1000);
+
+		Assert.assertEquals(2, metrics.stage(CrawlStage.HTTP).count());
+		Assert.assertEquals(6000000, metrics.stage(CrawlStage.HTTP).totalNanos());
+		Assert.assertEquals(1, metrics.stage(CrawlStage.VISIT).count());
+		Assert.assertEquals(0, metrics.stage(CrawlStage.QUEUE_WAIT).count());
+		Assert.assertTrue(metrics.toString().contains("HTTP"));
+	}
+
+	@Test
+	public void testThatStagesAreExportedOverJmx() throws Exception {
+		CrawlMetrics metrics = new CrawlMetrics();
+		metrics.record(CrawlStage.HTTP, 2000000);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName http = new ObjectName("net.vidageek.crawler:type=CrawlMetrics,name=\"test\",stage=HTTP");
+
+		metrics.registerMBeans("test");
+		try {
+			Assert.assertEquals(1L, server.getAttribute(http, "Count"));
+			Assert.assertEquals(2000L, server.getAttribute(http, "MaxMicroseconds"));
+			Assert.assertEquals(CrawlStage.values().length,
+					server.queryNames(new ObjectName("net.vidageek.crawler:type=CrawlMetrics,*"), null).size());
+		} finally {
+			metrics.unregisterMBeans();
+		}
+		Assert.assertFalse(server.isRegistered(http));
+	}
+
+}
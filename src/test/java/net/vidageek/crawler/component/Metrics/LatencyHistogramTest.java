@@ -0,0 +1,59 @@
+package net.vidageek.crawler.component.Metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class LatencyHistogramTest {
+
+	@Test
+	public void testThatBucketsCoverEveryValueInOrder() {
+		for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 999999, 1L << 40, Long.MAX_VALUE }) {
+			int bucket = LatencyHistogram.bucket(value);
+			Assert.assertTrue(value + " above its bucket", value <= LatencyHistogram.upperBound(bucket));
+			Assert.assertTrue(value + " below its bucket", (bucket == 0)
+					|| (value > LatencyHistogram.upperBound(bucket - 1)));
+		}
+		Assert.assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testThatPercentilesAreWithinABucketOfTheRealOnes() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+
+		Assert.assertEquals(1000, histogram.count());
+		Assert.assertEquals(1000000, histogram.maxNanos());
+		Assert.assertEquals(500500.0, histogram.meanNanos(), 0.001);
+		assertWithin(500000, histogram.percentileNanos(0.5));
+		assertWithin(990000, histogram.percentileNanos(0.99));
+		Assert.assertEquals(1000000, histogram.percentileNanos(1));
+	}
+
+	@Test
+	public void testThatEmptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.percentileNanos(0.5));
+		Assert.assertEquals(0, histogram.meanNanos(), 0);
+	}
+
+	@Test
+	public void testThatNegativeLatenciesCountAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		Assert.assertEquals(1, histogram.count());
+		Assert.assertEquals(0, histogram.totalNanos());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatPercentileThrowsExceptionIfFractionIsNotInRange() {
+		new LatencyHistogram().percentileNanos(0);
+	}
+
+	private static void assertWithin(final long expected, final long actual) {
+		Assert.assertTrue(actual + " is below " + expected, actual >= expected);
+		Assert.assertTrue(actual + " is too far above " + expected, actual <= expected * 1.125);
+	}
+
+}
@@ -0,0 +1,114 @@
+package net.vidageek.crawler.component.Robots;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.vidageek.crawler.component.Downloader.impl.WebDownloader;
+import net.vidageek.crawler.http.LocalHttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+final public class RobotsCacheTest {
+
+	private LocalHttpServer server;
+	private String base;
+	private volatile int status;
+	private volatile String robots;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final ConcurrentHashMap<String, Long> delays = new ConcurrentHashMap<String, Long>();
+	private WebDownloader downloader;
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer().handle("/robots.txt", this::respond).start();
+		base = server.base();
+		status = 200;
+		robots = "User-agent: *\nDisallow: /private\nCrawl-delay: 90\n";
+		downloader = WebDownloader.builder().withMimeTypes(Arrays.asList("text/"))
+				.withSharedClient(WebDownloader.createPooledClient(8, 8)).build();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testThatRobotsTxtIsFetchedOncePerSite() throws InterruptedException {
+		final RobotsCache cache = new RobotsCache(downloader, "vidageek", 60000, 30000, delays::put);
+		final CountDownLatch done = new CountDownLatch(8);
+		final List<Boolean> answers = new ArrayList<Boolean>();
+		for (int i = 0; i < 8; i++) {
+			final int page = i;
+			new Thread(() -> {
+				boolean allowed = cache.allows(base + (page % 2 == 0 ? "/private/" : "/public/") + page);
+				synchronized (answers) {
+					answers.add(allowed == (page % 2 == 1));
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+
+		Assert.assertEquals(1, requests.get());
+		Assert.assertEquals(1, cache.fetches());
+		Assert.assertFalse(answers.contains(false));
+		Assert.assertEquals(Long.valueOf(30000), delays.get("127.0.0.1:" + server.port()));
+	}
+
+	@Test
+	public void testThatExpiredRulesAreFetchedAgain() throws InterruptedException {
+		RobotsCache cache = new RobotsCache(downloader, "vidageek", 50, 0, null);
+		Assert.assertFalse(cache.allows(base + "/private"));
+
+		robots = "User-agent: *\nDisallow:\n";
+		Thread.sleep(100);
+
+		Assert.assertTrue(cache.allows(base + "/private"));
+		Assert.assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void testThatMissingRobotsTxtAllowsEverything() {
+		status = 404;
+		RobotsCache cache = new RobotsCache(downloader, "vidageek");
+
+		Assert.assertTrue(cache.allows(base + "/private"));
+	}
+
+	@Test
+	public void testThatUnreachableRobotsTxtDisallowsEverything() {
+		status = 503;
+		RobotsCache cache = new RobotsCache(downloader, "vidageek");
+
+		Assert.assertFalse(cache.allows(base + "/"));
+		Assert.assertFalse(cache.allows(base + "/public"));
+		Assert.assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void testThatUrlsAreSplitIntoSiteAndPath() {
+		Assert.assertEquals("http://a.com:8080", RobotsCache.origin("HTTP://user@A.com:8080/x?y#z"));
+		Assert.assertNull(RobotsCache.origin("/relative"));
+		Assert.assertEquals("/x?y", RobotsCache.path("http://a.com/x?y#z"));
+		Assert.assertEquals("/?y", RobotsCache.path("http://a.com?y"));
+		Assert.assertEquals("/", RobotsCache.path("http://a.com#z"));
+		Assert.assertEquals("/", RobotsCache.path("http://a.com"));
+	}
+
+	private void respond(final HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		LocalHttpServer.respond(exchange, status, "text/plain; charset=UTF-8", robots.getBytes("UTF-8"));
+	}
+
+}
@@ -0,0 +1,82 @@
+package net.vidageek.crawler.component.Robots;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class RobotsTxtParserTest {
+
+	@Test
+	public void testThatLongestMatchWins() {
+		RobotsRules rules = RobotsTxtParser.parse("User-agent: *\n" + "Disallow: /private\n"
+				+ "Allow: /private/public\n", "vidageek");
+
+		Assert.assertTrue(rules.allows("/"));
+		Assert.assertFalse(rules.allows("/private"));
+		Assert.assertFalse(rules.allows("/private/secret.html"));
+		Assert.assertTrue(rules.allows("/private/public/page.html"));
+	}
+
+	@Test
+	public void testThatAllowWinsATie() {
+		RobotsRules rules = RobotsTxtParser.parse("User-agent: *\nDisallow: /page\nAllow: /page\n", "vidageek");
+
+		Assert.assertTrue(rules.allows("/page"));
+	}
+
+	@Test
+	public void testThatSpecificGroupReplacesTheDefaultOne() {
+		String robots = "User-agent: *\n" + "Disallow: /\n" + "\n" + "User-agent: other\n" + "Disallow: /other\n"
+				+ "\n" + "User-agent: VidaGeek\n" + "Disallow: /mine\n" + "Crawl-delay: 2.5\n";
+		RobotsRules rules = RobotsTxtParser.parse(robots, "vidageek/1.0 (+http://vidageek.net)");
+
+		Assert.assertTrue(rules.allows("/other"));
+		Assert.assertFalse(rules.allows("/mine/page"));
+		Assert.assertEquals(2500, rules.crawlDelayMilliseconds());
+
+		Assert.assertFalse(RobotsTxtParser.parse(robots, "someone").allows("/other"));
+		Assert.assertEquals(-1, RobotsTxtParser.parse(robots, "someone").crawlDelayMilliseconds());
+	}
+
+	@Test
+	public void testThatGroupsWithSeveralAgentsAndRepeatedAgentsAreMerged() {
+		String robots = "User-agent: a\n" + "User-agent: vidageek\n" + "Disallow: /one\n" + "User-agent: b\n"
+				+ "Disallow: /b\n" + "User-agent: vidageek\n" + "Disallow: /two # comment\n";
+		RobotsRules rules = RobotsTxtParser.parse(robots, "vidageek");
+
+		Assert.assertFalse(rules.allows("/one"));
+		Assert.assertFalse(rules.allows("/two"));
+		Assert.assertTrue(rules.allows("/b"));
+	}
+
+	@Test
+	public void testThatWildcardsAndEndAnchorsMatch() {
+		RobotsRules rules = RobotsTxtParser.parse("User-agent: *\n" + "Disallow: /*.pdf$\n" + "Disallow: /*?session=\n"
+				+ "Allow: /docs/*.pdf$\n", "vidageek");
+
+		Assert.assertFalse(rules.allows("/files/a.pdf"));
+		Assert.assertTrue(rules.allows("/files/a.pdf.html"));
+		Assert.assertFalse(rules.allows("/list?session=1"));
+		Assert.assertTrue(rules.allows("/list?page=1"));
+		Assert.assertTrue(rules.allows("/docs/a.pdf"));
+	}
+
+	@Test
+	public void testThatEmptyAndMissingRulesAllowEverything() {
+		Assert.assertTrue(RobotsTxtParser.parse("User-agent: *\nDisallow:\n", "vidageek").allows("/a"));
+		Assert.assertTrue(RobotsTxtParser.parse("", "vidageek").allows("/a"));
+		Assert.assertTrue(RobotsTxtParser.parse("<html>not robots</html>", "vidageek").allows("/a"));
+	}
+
+	@Test
+	public void testThatRobotsTxtIsAlwaysAllowed() {
+		Assert.assertTrue(RobotsTxtParser.parse("User-agent: *\nDisallow: /\n", "vidageek").allows("/robots.txt"));
+	}
+
+	@Test
+	public void testThatCrLfLinesAreParsed() {
+		RobotsRules rules = RobotsTxtParser.parse("User-agent: *\r\nDisallow: /a\r\n", "vidageek");
+
+		Assert.assertFalse(rules.allows("/a"));
+	}
+
+}
@@ -0,0 +1,127 @@
+package net.vidageek.crawler.component.Sitemap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class SitemapReaderTest {
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+	private static final String URLSET = "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">";
+	private static final String INDEX = "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">";
+
+	private final Map<String, byte[]> documents = new HashMap<String, byte[]>();
+	private final List<String> opened = new ArrayList<String>();
+	private final List<String> urls = new ArrayList<String>();
+	private final List<Long> lastModified = new ArrayList<Long>();
+
+	private final SitemapSource source = new SitemapSource() {
+		public InputStream open(final String url) throws IOException {
+			opened.add(url);
+			byte[] document = documents.get(url);
+			if (document == null) {
+				throw new IOException("not found: " + url);
+			}
+			return new ByteArrayInputStream(document);
+		}
+	};
+
+	private final SitemapListener listener = new SitemapListener() {
+		public void onUrl(final String url, final long modified) {
+			urls.add(url);
+			lastModified.add(modified);
+		}
+	};
+
+	@Test
+	public void testThatUrlsAreReadWithTheirLastModification() throws IOException {
+		documents.put("http://a.com/sitemap.xml", bytes(HEADER + URLSET
+				+ "<url><loc> http://a.com/1 </loc><lastmod>2020-01-02</lastmod></url>"
+				+ "<url><lastmod>2020-01-02T03:04:05+01:00</lastmod><loc>http://a.com/2?a=1&amp;b=2</loc></url>"
+				+ "<url><loc>http://a.com/3</loc><lastmod>yesterday</lastmod></url>"
+				+ "<url><loc>ftp://a.com/4</loc></url>" + "</urlset>"));
+
+		Assert.assertEquals(3, new SitemapReader(source).read("http://a.com/sitemap.xml", listener));
+
+		Assert.assertEquals("http://a.com/1", urls.get(0));
+		Assert.assertEquals("http://a.com/2?a=1&b=2", urls.get(1));
+		Assert.assertEquals("http://a.com/3", urls.get(2));
+		Assert.assertEquals(Long.valueOf(1577923200000L), lastModified.get(0));
+		Assert.assertEquals(Long.valueOf(1577930645000L), lastModified.get(1));
+		Assert.assertEquals(Long.valueOf(0), lastModified.get(2));
+	}
+
+	@Test
+	public void testThatIndexesAreFollowedOnceAndGzipIsDetected() throws IOException {
+		documents.put("http://a.com/index.xml", bytes(HEADER + INDEX
+				+ "<sitemap><loc>http://a.com/one.xml.gz</loc><lastmod>2020-01-01</lastmod></sitemap>"
+				+ "<sitemap><loc>http://a.com/two.xml</loc></sitemap>"
+				+ "<sitemap><loc>http://a.com/one.xml.gz</loc></sitemap>"
+				+ "<sitemap><loc>http://a.com/missing.xml</loc></sitemap>"
+				+ "<sitemap><loc>http://a.com/index.xml</loc></sitemap>" + "</sitemapindex>"));
+		documents.put("http://a.com/one.xml.gz", gzip(bytes(URLSET + "<url><loc>http://a.com/1</loc></url></urlset>")));
+		documents.put("http://a.com/two.xml", bytes(URLSET + "<url><loc>http://a.com/2</loc></url></urlset>"));
+
+		Assert.assertEquals(2, new SitemapReader(source).read("http://a.com/index.xml", listener));
+
+		Assert.assertEquals(4, opened.size());
+		Assert.assertTrue(urls.contains("http://a.com/1"));
+		Assert.assertTrue(urls.contains("http://a.com/2"));
+	}
+
+	@Test
+	public void testThatBrokenSitemapKeepsTheUrlsReadBeforeTheError() throws IOException {
+		documents.put("http://a.com/sitemap.xml", bytes(URLSET + "<url><loc>http://a.com/1</loc></url><url><loc>"));
+
+		Assert.assertEquals(1, new SitemapReader(source).read("http://a.com/sitemap.xml", listener));
+	}
+
+	@Test
+	public void testThatStopsAfterMaxSitemaps() throws IOException {
+		StringBuilder index = new StringBuilder(INDEX);
+		for (int i = 0; i < 10; i++) {
+			index.append("<sitemap><loc>http://a.com/" + i + ".xml</loc></sitemap>");
+			documents.put("http://a.com/" + i + ".xml", bytes(URLSET + "<url><loc>http://a.com/" + i
+					+ "</loc></url></urlset>"));
+		}
+		documents.put("http://a.com/index.xml", bytes(index.append("</sitemapindex>").toString()));
+
+		Assert.assertEquals(3, new SitemapReader(source, 4).read("http://a.com/index.xml", listener));
+		Assert.assertEquals(4, opened.size());
+	}
+
+	@Test
+	public void testThatExternalEntitiesAreNotResolved() throws IOException {
+		documents.put("http://a.com/sitemap.xml", bytes(HEADER
+				+ "<!DOCTYPE urlset [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>" + URLSET
+				+ "<url><loc>http://a.com/&secret;</loc></url></urlset>"));
+
+		new SitemapReader(source).read("http://a.com/sitemap.xml", listener);
+
+		for (String url : urls) {
+			Assert.assertFalse(url.contains("root"));
+		}
+	}
+
+	private static byte[] bytes(final String document) throws IOException {
+		return document.getBytes("UTF-8");
+	}
+
+	private static byte[] gzip(final byte[] document) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(output);
+		gzip.write(document);
+		gzip.close();
+		return output.toByteArray();
+	}
+
+}
@@ -0,0 +1,96 @@
+package net.vidageek.crawler.component.Sitemap.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import net.vidageek.crawler.component.Downloader.FetchLimits;
+import net.vidageek.crawler.component.Sitemap.SitemapReader;
+import net.vidageek.crawler.http.LocalHttpServer;
+
+final public class HttpSitemapSourceTest {
+
+	private static final int URLS = 20000;
+
+	private LocalHttpServer server;
+	private String base;
+
+	@Before
+	public void setup() throws IOException {
+		server = new LocalHttpServer()
+				.handle("/sitemap.xml.gz", this::respond)
+				.handle("/stalled.xml", exchange -> {
+					exchange.sendResponseHeaders(200, 0);
+					exchange.getResponseBody().write("<urlset>".getBytes("UTF-8"));
+					exchange.getResponseBody().flush();
+					try {
+						Thread.sleep(3000);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					exchange.close();
+				})
+				.start();
+		base = server.base();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testThatStreamsAGzippedSitemap() {
+		final int[] count = new int[1];
+		long urls = new SitemapReader(new HttpSitemapSource()).read(base + "/sitemap.xml.gz",
+				(url, lastModified) -> count[0]++);
+
+		Assert.assertEquals(URLS, urls);
+		Assert.assertEquals(URLS, count[0]);
+	}
+
+	@Test(expected = IOException.class)
+	public void testThatMissingSitemapThrowsIOException() throws IOException {
+		InputStream input = new HttpSitemapSource().open(base + "/missing.xml");
+		input.close();
+	}
+
+	@Test
+	public void testThatABodyStalledMidwayTimesOut() throws IOException {
+		InputStream input = new HttpSitemapSource(new FetchLimits(1000, 200, 0, 0)).open(base + "/stalled.xml");
+		long start = System.nanoTime();
+		try {
+			while (input.read() != -1) {
+			}
+			Assert.fail("read a stalled body to the end");
+		} catch (SocketTimeoutException e) {
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		} finally {
+			input.close();
+		}
+	}
+
+	private void respond(final HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "application/x-gzip");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream output = new GZIPOutputStream(exchange.getResponseBody());
+		output.write("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">".getBytes("UTF-8"));
+		for (int i = 0; i < URLS; i++) {
+			output.write(("<url><loc>http://127.0.0.1/page/" + i + "</loc><lastmod>2024-05-01</lastmod></url>")
+					.getBytes("UTF-8"));
+		}
+		output.write("</urlset>".getBytes("UTF-8"));
+		output.close();
+	}
+
+}
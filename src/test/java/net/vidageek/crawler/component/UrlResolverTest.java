@@ -0,0 +1,58 @@
+package net.vidageek.crawler.component;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.vidageek.crawler.utils.UrlResolver;
+import net.vidageek.crawler.utils.UrlUtils;
+
+import org.junit.Test;
+
+public class UrlResolverTest {
+
+	private static final String[] EXAMPLES = { "g:h", "g", "./g", "g/", "/g", "//g", "?y", "g?y", "g?y/./x", "#s",
+			"g#s", "g#s/./x", "g?y#s", ";x", "g;x", "g;x?y#s", ".", "./", "..", "../", "../g", "../..", "../../",
+			"../../g", "", "../../../g", "../../../../g", "/./g", "/../g", "g.", ".g", "g..", "..g", "./../g", "./g/.",
+			"g/./h", "g/../h", "http:g", "http:", ";", "?", "#", "  ../f.html  " };
+
+	private static final String[] BASES = { "http://a/b/c/d;p?q#f", "http://a/otherFile.html", "http://test.com",
+			"http://test.com/", "https://test.com/a/b/", "http://test.com?q", "http://test.com;p",
+			"http://user@test.com:8080/x/y.html?q=1#top", "  http://test.com/foo  " };
+
+	private static final String[] PIECES = { "g", ".", "..", "/", "./", "../", "a", "b.html", ";p", "?q", "#f",
+			"//h", "http:", ":", "?", ";", "#", "..g", "/..", "x/", "&", "=", " " };
+
+	@Test
+	public void resolvesTheUrlUtilsExamplesLikeUrlUtils() {
+		for (String base : BASES) {
+			UrlResolver resolver = new UrlResolver(base);
+			for (String example : EXAMPLES) {
+				assertEquals(base + " + " + example, UrlUtils.resolveUrl(base, example), resolver.resolve(example));
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void resolvesGeneratedLinksLikeUrlUtils() {
+		Random random = new Random(42);
+		for (String base : BASES) {
+			UrlResolver resolver = new UrlResolver(base);
+			for (int i = 0; i < 5000; i++) {
+				StringBuilder link = new StringBuilder();
+				int pieces = random.nextInt(7);
+				for (int j = 0; j < pieces; j++) {
+					link.append(PIECES[random.nextInt(PIECES.length)]);
+				}
+				String relative = link.toString();
+				assertEquals(base + " + " + relative, UrlUtils.resolveUrl(base, relative), resolver.resolve(relative));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfBaseIsNull() {
+		new UrlResolver(null);
+	}
+
+}
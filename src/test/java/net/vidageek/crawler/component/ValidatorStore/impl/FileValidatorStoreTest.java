@@ -0,0 +1,142 @@
+package net.vidageek.crawler.component.ValidatorStore.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import net.vidageek.crawler.http.Validators;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+final public class FileValidatorStoreTest {
+
+	private File file;
+
+	@Before
+	public void setup() throws IOException {
+		file = File.createTempFile("validators", "");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testThatFlushedValidatorsAreReadBack() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null));
+		store.put("http://test.com/ação", new Validators(null, "Wed, 21 Oct 2015 07:28:00 GMT"));
+		store.flush();
+
+		FileValidatorStore reloaded = new FileValidatorStore(file);
+		Assert.assertEquals(2, reloaded.size());
+		Assert.assertEquals("\"abc\"", reloaded.get("http://test.com/a").etag());
+		Assert.assertNull(reloaded.get("http://test.com/a").lastModified());
+		Assert.assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", reloaded.get("http://test.com/ação").lastModified());
+	}
+
+	@Test
+	public void testThatLinksAreReadBack() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null, Arrays.asList("/b", "http://test.com/c")));
+		store.flush();
+
+		Assert.assertEquals(Arrays.asList("/b", "http://test.com/c"),
+				new FileValidatorStore(file).get("http://test.com/a").links());
+	}
+
+	@Test
+	public void testThatEmptyValidatorsRemoveTheUrl() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null));
+		store.put("http://test.com/a", new Validators(null, null));
+
+		Assert.assertNull(store.get("http://test.com/a"));
+		Assert.assertEquals(0, store.size());
+	}
+
+	@Test
+	public void testThatLinksOfFlushedUrlsAreReadFromTheFile() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null, Arrays.asList("/b", "/c")));
+		store.flush();
+		store.put("http://test.com/d", new Validators("\"def\"", null, Arrays.asList("/e")));
+
+		Assert.assertEquals(Arrays.asList("/b", "/c"), store.get("http://test.com/a").links());
+		Assert.assertEquals(Arrays.asList("/e"), store.get("http://test.com/d").links());
+		store.close();
+	}
+
+	@Test
+	public void testThatFlushAppendsOnlyWhatChanged() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null, Arrays.asList("/b", "/c")));
+		store.flush();
+		long length = file.length();
+		store.flush();
+		Assert.assertEquals(length, file.length());
+
+		store.put("http://test.com/d", new Validators("\"def\"", null));
+		store.flush();
+		Assert.assertTrue(file.length() - length < length);
+		store.close();
+	}
+
+	@Test
+	public void testThatRemovalsAreReadBack() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null));
+		store.flush();
+		store.put("http://test.com/a", null);
+		store.close();
+
+		Assert.assertNull(new FileValidatorStore(file).get("http://test.com/a"));
+	}
+
+	@Test
+	public void testThatRewrittenUrlsAreCompacted() {
+		FileValidatorStore store = new FileValidatorStore(file);
+		for (int i = 0; i < 2000; i++) {
+			store.put("http://test.com/a", new Validators("\"" + i + "\"", null, Arrays.asList(new String(new char[1000]))));
+			store.flush();
+		}
+		store.put("http://test.com/b", new Validators("\"b\"", null, Arrays.asList("/c")));
+		store.close();
+
+		Assert.assertTrue(file.length() < 1024 * 1024);
+		FileValidatorStore reloaded = new FileValidatorStore(file);
+		Assert.assertEquals("\"1999\"", reloaded.get("http://test.com/a").etag());
+		Assert.assertEquals(Arrays.asList("/c"), reloaded.get("http://test.com/b").links());
+	}
+
+	@Test
+	public void testThatATornRecordAtTheEndIsDropped() throws IOException {
+		FileValidatorStore store = new FileValidatorStore(file);
+		store.put("http://test.com/a", new Validators("\"abc\"", null, Arrays.asList("/b")));
+		store.flush();
+		store.put("http://test.com/d", new Validators("\"def\"", null, Arrays.asList("/e")));
+		store.close();
+		RandomAccessFile torn = new RandomAccessFile(file, "rw");
+		torn.setLength(torn.length() - 3);
+		torn.close();
+
+		FileValidatorStore reloaded = new FileValidatorStore(file);
+		Assert.assertEquals(1, reloaded.size());
+		reloaded.put("http://test.com/f", new Validators("\"f\"", null));
+		reloaded.close();
+		Assert.assertEquals(Arrays.asList("/b"), new FileValidatorStore(file).get("http://test.com/a").links());
+		Assert.assertEquals("\"f\"", new FileValidatorStore(file).get("http://test.com/f").etag());
+	}
+
+	@Test
+	public void testThatStartsEmptyWithoutFile() {
+		Assert.assertEquals(0, new FileValidatorStore(file).size());
+	}
+
+}
@@ -0,0 +1,43 @@
+package net.vidageek.crawler.component;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class VirtualThreadExecutorTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatThrowsExceptionIfMaxRunningIsNotPositive() {
+		new VirtualThreadExecutor(new LinkedBlockingQueue<Runnable>(), 0);
+	}
+
+	@Test
+	public void testThatRunsNoMoreThanMaxRunningTasksAtOnce() throws InterruptedException {
+		LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+		VirtualThreadExecutor executor = new VirtualThreadExecutor(queue, 2);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger mostRunning = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(20);
+		for (int i = 0; i < 20; i++) {
+			executor.execute(() -> {
+				mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				done.countDown();
+			});
+		}
+
+		Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		Assert.assertEquals(2, mostRunning.get());
+	}
+
+}
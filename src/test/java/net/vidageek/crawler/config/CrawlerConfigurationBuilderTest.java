@@ -1,5 +1,6 @@
 package net.vidageek.crawler.config;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -18,4 +19,91 @@ final public class CrawlerConfigurationBuilderTest {
 		CrawlerConfiguration.forStartPoint("http://www").withLinkNormalizer(null);
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithConnectionPoolThrowsExceptionIfLimitIsNotPositive() {
+		CrawlerConfiguration.forStartPoint("http://www").withConnectionPool(0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithConnectionPoolThrowsExceptionIfPerRouteLimitIsGreaterThanTotal() {
+		CrawlerConfiguration.forStartPoint("http://www").withConnectionPool(2, 4);
+	}
+
+	@Test
+	public void testThatWithConnectionPoolBuildsASingleSharedDownloader() {
+		CrawlerConfiguration configuration = CrawlerConfiguration.forStartPoint("http://www").withConnectionPool(20, 5)
+				.build();
+
+		Assert.assertTrue(configuration.usesConnectionPool());
+		Assert.assertSame(configuration.downloader(), configuration.downloader());
+	}
+
+	@Test
+	public void testThatVirtualThreadsAreNotCappedByTheThreadPoolSize() {
+		CrawlerConfiguration configuration = CrawlerConfiguration.forStartPoint("http://www")
+				.withMaxParallelRequests(8).withVirtualThreads().build();
+
+		Assert.assertTrue(configuration.virtualThreads());
+		Assert.assertEquals(CrawlerConfigurationBuilder.DEFAULT_MAX_VIRTUAL_THREADS, configuration.maxVirtualThreads());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithVirtualThreadsThrowsExceptionIfLimitIsNotPositive() {
+		CrawlerConfiguration.forStartPoint("http://www").withVirtualThreads(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithProbabilisticVisitedSetThrowsExceptionIfExpectedUrlsIsNotPositive() {
+		CrawlerConfiguration.forStartPoint("http://www").withProbabilisticVisitedSet(0, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithValidatorStoreThrowsExceptionIfStoreIsNull() {
+		CrawlerConfiguration.forStartPoint("http://www").withValidatorStore(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithTimeoutsThrowsExceptionIfTimeoutIsNotPositive() {
+		CrawlerConfiguration.forStartPoint("http://www").withTimeouts(0, 1000);
+	}
+
+	@Test
+	public void testThatWithFetchLimitsReachesTheDownloaderLimits() {
+		CrawlerConfiguration configuration = CrawlerConfiguration.forStartPoint("http://www").withTimeouts(2000, 3000)
+				.withFetchLimits(1024, 5000).build();
+
+		Assert.assertEquals(2000, configuration.fetchLimits().connectTimeoutMilliseconds());
+		Assert.assertEquals(3000, configuration.fetchLimits().readTimeoutMilliseconds());
+		Assert.assertEquals(1024, configuration.fetchLimits().maxBodyBytes());
+		Assert.assertEquals(5000, configuration.fetchLimits().fetchDeadlineMilliseconds());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithDnsCacheThrowsExceptionIfTtlIsNotPositive() {
+		CrawlerConfiguration.forStartPoint("http://www").withDnsCache(0, 1000);
+	}
+
+	@Test
+	public void testThatWithRobotsSetsUserAgent() {
+		CrawlerConfiguration config = CrawlerConfiguration.forStartPoint("http://www").withRobots("vidageek/1.0")
+				.build();
+		Assert.assertTrue(config.followsRobots());
+		Assert.assertEquals("vidageek/1.0", config.robotsUserAgent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithRobotsThrowsExceptionIfUserAgentIsEmpty() {
+		CrawlerConfiguration.forStartPoint("http://www").withRobots(" ");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithSitemapsThrowsExceptionIfUrlIsNotHttp() {
+		CrawlerConfiguration.forStartPoint("http://www").withSitemaps("http://www/sitemap.xml", "sitemap.xml");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatWithMetricsThrowsExceptionIfMetricsIsNull() {
+		CrawlerConfiguration.forStartPoint("http://www").withMetrics(null);
+	}
+
 }
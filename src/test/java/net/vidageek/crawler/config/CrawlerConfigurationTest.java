@@ -1,5 +1,9 @@
 package net.vidageek.crawler.config;
 
+import net.vidageek.crawler.component.Downloader.Downloader;
+import net.vidageek.crawler.component.Downloader.impl.WebDownloader;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -33,4 +37,27 @@ final public class CrawlerConfigurationTest {
 		new CrawlerConfiguration("https://");
 	}
 
+	@Test
+	public void testThatShutdownReplacesBuiltDownloaders() {
+		CrawlerConfiguration config = new CrawlerConfiguration("http://test.com");
+		Downloader built = config.downloader();
+		Downloader robots = config.robotsDownloader();
+
+		config.shutdownDownloaders();
+
+		Assert.assertNotSame(built, config.downloader());
+		Assert.assertNotSame(robots, config.robotsDownloader());
+	}
+
+	@Test
+	public void testThatShutdownKeepsGivenDownloaders() {
+		CrawlerConfiguration config = new CrawlerConfiguration("http://test.com");
+		Downloader given = new WebDownloader();
+		config.downloader(given);
+
+		config.shutdownDownloaders();
+
+		Assert.assertSame(given, config.downloader());
+	}
+
 }
@@ -0,0 +1,72 @@
+package net.vidageek.crawler.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An http server on a free port of 127.0.0.1 for tests that need a real peer.
+ * Register handlers, call {@link #start()} in the set up and {@link #stop()} in
+ * the tear down. Each exchange runs on its own thread, so a handler that stalls
+ * does not hold up the others.
+ */
+final public class LocalHttpServer {
+
+	private final HttpServer server;
+	private final ExecutorService handlers = Executors.newCachedThreadPool();
+
+	public LocalHttpServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(handlers);
+	}
+
+	public LocalHttpServer handle(final String path, final HttpHandler handler) {
+		server.createContext(path, handler);
+		return this;
+	}
+
+	public LocalHttpServer start() {
+		server.start();
+		return this;
+	}
+
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return http://127.0.0.1:port, without a trailing slash
+	 */
+	public String base() {
+		return "http://127.0.0.1:" + port();
+	}
+
+	public void stop() {
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	/**
+	 * Sends body with the given status and Content-Type. A client that hangs up
+	 * before the whole body is written is not an error.
+	 */
+	public static void respond(final HttpExchange exchange, final int status, final String contentType,
+			final byte[] body) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		OutputStream output = exchange.getResponseBody();
+		try {
+			output.write(body);
+			output.close();
+		} catch (IOException e) {
+			// the client gave up on the body
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package net.vidageek.crawler.http.page;
 
+import java.util.Arrays;
+
 import net.vidageek.crawler.http.Page;
 import net.vidageek.crawler.http.Status;
 import org.junit.Before;
@@ -33,6 +35,36 @@ public class DefaultPageFactoryTest {
 		assertThat(okPage.getContent(), is(content));
 	}
 
+	@Test
+	public void shouldBuildOkPageWithCharset() throws Exception {
+		Page okPage = factory.buildOkPage("http://test.com", "<html></html>", "ISO-8859-1");
+
+		assertThat(okPage, instanceOf(OkPage.class));
+		assertThat(okPage.getCharset(), is("ISO-8859-1"));
+	}
+
+	@Test
+	public void shouldLetFactoriesWithoutCharsetSupportBuildOkPagesWithCharset() throws Exception {
+		PageFactory legacy = new PageFactory() {
+			public Page buildOkPage(String url, String content) {
+				return new OkPage(url, content);
+			}
+
+			public Page buildErrorPage(String url, Status status) {
+				return new ErrorPage(url, status);
+			}
+
+			public Page buildRejectedMimeTypePage(String url, Status status, String mimeType) {
+				return new RejectedMimeTypePage(url, status, mimeType);
+			}
+		};
+
+		Page okPage = legacy.buildOkPage("http://test.com", "<html></html>", "ISO-8859-1");
+
+		assertThat(okPage, instanceOf(OkPage.class));
+		assertThat(okPage.getContent(), is("<html></html>"));
+	}
+
 	@Test
 	public void shouldBuildErrorPage() throws Exception {
 		String url = "http://test.com";
@@ -59,4 +91,14 @@ public class DefaultPageFactoryTest {
 		assertThat(returned.getStatusCode(), is(status));
 		assertThat(returned.getMimeType(), is(mimeType));
 	}
+
+	@Test
+	public void shouldBuildNotModifiedPage() throws Exception {
+		Page notModifiedPage = factory.buildNotModifiedPage("http://test.com", Arrays.asList("/a"));
+
+		assertThat(notModifiedPage, instanceOf(NotModifiedPage.class));
+		assertThat(notModifiedPage.getUrl(), is("http://test.com"));
+		assertThat(notModifiedPage.getStatusCode(), is(Status.NOT_MODIFIED_304));
+		assertThat(notModifiedPage.getLinks(), is(Arrays.asList("/a")));
+	}
 }
@@ -0,0 +1,57 @@
+package net.vidageek.crawler.link;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.vidageek.crawler.component.LinkFinder.impl.HtmlLinkFinder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HtmlLinkFinderTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalArgumentException() {
+		new HtmlLinkFinder(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyIllegalArgumentException() {
+		new HtmlLinkFinder("");
+	}
+
+	@Test
+	public void testCanRecoverLinksFromAllTagsInDocumentOrder() {
+		List<String> links = new HtmlLinkFinder(
+				"<frameset><frame src=\"nada.html\" name=\"top\"></frameset><a id=\"link1\" href=\"test.page1\"></a>"
+						+ "<iframe src=\"frame.html\"></iframe><area shape=rect href=\"map.html\"><iframe href=\"old.html\">")
+				.getLinks();
+		Assert.assertEquals(Arrays.asList("nada.html", "test.page1", "frame.html", "map.html", "old.html"), links);
+	}
+
+	@Test
+	public void testCanRecoverSingleQuotedAndUnquotedLinks() {
+		List<String> links = new HtmlLinkFinder("<A HREF='single.html'>x</A><a class=x href=unquoted.html>"
+				+ "<a\nhref = \"spaced.html\" >").getLinks();
+		Assert.assertEquals(Arrays.asList("single.html", "unquoted.html", "spaced.html"), links);
+	}
+
+	@Test
+	public void testIgnoresOtherTagsAttributesAndComments() {
+		List<String> links = new HtmlLinkFinder("<abbr href=\"no1\"><link href=\"no2\"><a name=\"top\" data-href=\"no3\">"
+				+ "<!-- <a href=\"no4\"> --><img src=\"no5\"><a title=\"a > b\" href=\"yes\">").getLinks();
+		Assert.assertEquals(Arrays.asList("yes"), links);
+	}
+
+	@Test
+	public void testKeepsQueryStringsAndSessionIds() {
+		List<String> links = new HtmlLinkFinder("<a href=\"test.page2;jsessionid=20?a=1&amp;b=2\">").getLinks();
+		Assert.assertEquals(Arrays.asList("test.page2;jsessionid=20?a=1&amp;b=2"), links);
+	}
+
+	@Test
+	public void testSurvivesUnterminatedMarkup() {
+		Assert.assertEquals(0, new HtmlLinkFinder("<a href=\"never closed").getLinks().size());
+		Assert.assertEquals(0, new HtmlLinkFinder("<!-- <a href=\"x\">").getLinks().size());
+		Assert.assertEquals(0, new HtmlLinkFinder("<a href=").getLinks().size());
+	}
+}
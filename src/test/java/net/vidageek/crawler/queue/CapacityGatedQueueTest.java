@@ -0,0 +1,68 @@
+package net.vidageek.crawler.queue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.Downloader.AsyncDownloader;
+import net.vidageek.crawler.http.Page;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class CapacityGatedQueueTest {
+
+	private volatile boolean capacity;
+
+	private final AsyncDownloader downloader = new AsyncDownloader() {
+		public CompletableFuture<Page> getAsync(final String url) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean awaitCapacity(final long timeout, final TimeUnit unit) throws InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (!capacity) {
+				if (System.nanoTime() - deadline >= 0) {
+					return false;
+				}
+				Thread.sleep(1);
+			}
+			return true;
+		}
+	};
+
+	@Test
+	public void testThatDoesNotHandOutWithoutCapacity() throws InterruptedException {
+		CapacityGatedQueue queue = new CapacityGatedQueue(new LinkedBlockingQueue<Runnable>(), downloader);
+		queue.offer(() -> {
+		});
+
+		Assert.assertNull(queue.poll());
+		Assert.assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(1, queue.size());
+
+		capacity = true;
+		Assert.assertNotNull(queue.poll());
+	}
+
+	@Test
+	public void testThatTakeWaitsForCapacity() throws InterruptedException {
+		final CapacityGatedQueue queue = new CapacityGatedQueue(new LinkedBlockingQueue<Runnable>(), downloader);
+		queue.offer(() -> {
+		});
+		new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				return;
+			}
+			capacity = true;
+		}).start();
+
+		long start = System.nanoTime();
+		Assert.assertNotNull(queue.take());
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+	}
+
+}
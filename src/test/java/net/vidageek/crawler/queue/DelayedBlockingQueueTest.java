@@ -1,5 +1,6 @@
 package net.vidageek.crawler.queue;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
@@ -45,6 +46,19 @@ final public class DelayedBlockingQueueTest {
 		Assert.assertTrue(last < 1300);
 	}
 
+	@Test
+	public void testThatPoolWithArgumentsDoesNotWaitForTheDelayOnAnEmptyQueue() throws InterruptedException {
+		DelayedBlockingQueue queue = new DelayedBlockingQueue(1000);
+		queue.put(new FakeRunnable());
+		queue.poll(100, TimeUnit.NANOSECONDS);
+
+		long first = System.currentTimeMillis();
+		Assert.assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+
+		final long last = System.currentTimeMillis() - first;
+		Assert.assertTrue(last < 500);
+	}
+
 	@Test
 	public void testThatTakeRespectsDelayTime() throws InterruptedException {
 		DelayedBlockingQueue queue = new DelayedBlockingQueue(1000);
@@ -79,6 +93,59 @@ final public class DelayedBlockingQueueTest {
 		Assert.assertTrue(last < 1300);
 	}
 
+	@Test
+	public void testThatOfferDoesNotWaitForConsumers() throws InterruptedException {
+		final DelayedBlockingQueue queue = new DelayedBlockingQueue(5000);
+		queue.put(new FakeRunnable());
+		queue.put(new FakeRunnable());
+		queue.take();
+
+		Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					queue.take();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		consumer.start();
+		Thread.sleep(100);
+
+		// the consumer waits out the 5 s delay: an offer that waited for it would take seconds
+		long first = System.currentTimeMillis();
+		queue.offer(new FakeRunnable());
+
+		Assert.assertTrue(System.currentTimeMillis() - first < 1000);
+		consumer.interrupt();
+		consumer.join();
+	}
+
+	@Test
+	public void testThatTakeWakesUpWhenElementIsOffered() throws InterruptedException {
+		final DelayedBlockingQueue queue = new DelayedBlockingQueue(5000);
+		final CountDownLatch taken = new CountDownLatch(1);
+
+		Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					queue.take();
+					taken.countDown();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		consumer.start();
+		Thread.sleep(300);
+
+		// the first element is due at once: a consumer polling every delay would miss the latch
+		queue.offer(new FakeRunnable());
+
+		Assert.assertTrue(taken.await(1000, TimeUnit.MILLISECONDS));
+		consumer.join();
+	}
+
 	public class FakeRunnable implements Runnable {
 		public void run() {
 		}
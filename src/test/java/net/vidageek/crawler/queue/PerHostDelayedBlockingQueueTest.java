@@ -0,0 +1,118 @@
+package net.vidageek.crawler.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.vidageek.crawler.component.ExecutorCounter;
+import net.vidageek.crawler.component.PageCrawlerExecutor;
+import net.vidageek.crawler.http.Url;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+final public class PerHostDelayedBlockingQueueTest {
+
+	@Test
+	public void testThatDifferentHostsAreNotDelayed() throws InterruptedException {
+		PerHostDelayedBlockingQueue queue = new PerHostDelayedBlockingQueue(1000);
+		queue.put(executorFor("http://a.com/1"));
+		queue.put(executorFor("http://b.com/1"));
+		queue.put(executorFor("http://c.com/1"));
+
+		long first = System.currentTimeMillis();
+		queue.take();
+		queue.take();
+		queue.take();
+
+		Assert.assertTrue(System.currentTimeMillis() - first < 300);
+	}
+
+	@Test
+	public void testThatSameHostRespectsDelayTime() throws InterruptedException {
+		PerHostDelayedBlockingQueue queue = new PerHostDelayedBlockingQueue(1000);
+		queue.put(executorFor("http://a.com/1"));
+		queue.put(executorFor("http://a.com/2"));
+
+		long first = System.currentTimeMillis();
+		queue.take();
+		queue.take();
+
+		final long last = System.currentTimeMillis() - first;
+		Assert.assertTrue(last >= 1000);
+		Assert.assertTrue(last < 1300);
+	}
+
+	@Test
+	public void testThatReadyHostOvertakesWaitingHost() throws InterruptedException {
+		PerHostDelayedBlockingQueue queue = new PerHostDelayedBlockingQueue(1000);
+		queue.put(executorFor("http://a.com/1"));
+		queue.put(executorFor("http://a.com/2"));
+		queue.put(executorFor("http://b.com/1"));
+
+		Assert.assertEquals("http://a.com/1", link(queue.take()));
+		Assert.assertEquals("http://b.com/1", link(queue.take()));
+		Assert.assertNull(queue.poll());
+		Assert.assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+		Assert.assertEquals("http://a.com/2", link(queue.poll(2, TimeUnit.SECONDS)));
+	}
+
+	@Test
+	public void testThatHostDelayOnlySlowsThatHost() throws InterruptedException {
+		PerHostDelayedBlockingQueue queue = new PerHostDelayedBlockingQueue(100);
+		queue.hostDelay("a.com", 1000);
+		queue.hostDelay("b.com", 10);
+		queue.put(executorFor("http://a.com/1"));
+		queue.put(executorFor("http://a.com/2"));
+		queue.put(executorFor("http://b.com/1"));
+		queue.put(executorFor("http://b.com/2"));
+
+		queue.take();
+		queue.take();
+		Assert.assertEquals("http://b.com/2", link(queue.poll(500, TimeUnit.MILLISECONDS)));
+		long waited = System.currentTimeMillis();
+		Assert.assertNull(queue.poll(400, TimeUnit.MILLISECONDS));
+		Assert.assertEquals("http://a.com/2", link(queue.take()));
+		Assert.assertTrue(System.currentTimeMillis() - waited >= 500);
+	}
+
+	@Test
+	public void testThatLongerHostDelayAlsoHoldsTheNextRequest() throws InterruptedException {
+		PerHostDelayedBlockingQueue queue = new PerHostDelayedBlockingQueue(100);
+		queue.put(executorFor("http://a.com/1"));
+		queue.put(executorFor("http://a.com/2"));
+
+		queue.take();
+		long waited = System.currentTimeMillis();
+		queue.hostDelay("a.com", 1000);
+		Assert.assertNull(queue.poll(500, TimeUnit.MILLISECONDS));
+		Assert.assertEquals("http://a.com/2", link(queue.take()));
+		Assert.assertTrue(System.currentTimeMillis() - waited >= 900);
+	}
+
+	@Test
+	public void testThatRemoveAndDrainKeepSizeConsistent() {
+		PerHostDelayedBlockingQueue queue = new PerHostDelayedBlockingQueue(1000);
+		PageCrawlerExecutor removed = executorFor("http://a.com/1");
+		queue.put(removed);
+		queue.put(executorFor("http://a.com/2"));
+		queue.put(executorFor("http://b.com/1"));
+
+		Assert.assertTrue(queue.remove(removed));
+		Assert.assertEquals(2, queue.size());
+
+		List<Runnable> drained = new ArrayList<Runnable>();
+		Assert.assertEquals(2, queue.drainTo(drained));
+		Assert.assertEquals(0, queue.size());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	private PageCrawlerExecutor executorFor(final String link) {
+		return new PageCrawlerExecutor(new Url(link, 0), null, new ExecutorCounter(), null, null, null);
+	}
+
+	private String link(final Runnable runnable) {
+		return ((PageCrawlerExecutor) runnable).url().link();
+	}
+
+}
@@ -0,0 +1,168 @@
+package net.vidageek.crawler.queue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.vidageek.crawler.component.CrawlContext;
+import net.vidageek.crawler.component.ExecutorCounter;
+import net.vidageek.crawler.component.PageCrawlerExecutor;
+import net.vidageek.crawler.http.Url;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+final public class SpillingFrontierQueueTest {
+
+	private File directory;
+	private ExecutorCounter counter;
+	private CrawlContext context;
+
+	@Before
+	public void setup() throws Exception {
+		directory = File.createTempFile("frontier", "");
+		directory.delete();
+		directory.mkdir();
+		counter = new ExecutorCounter();
+		context = CrawlContext.builder(null, counter, null, null, null).build();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testThatKeepsOrderAcrossSpilledSegments() throws InterruptedException {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 10, directory, 64);
+		for (int i = 0; i < 1000; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://test.com/" + i, i % 7, i * 1000L), context));
+		}
+
+		Assert.assertEquals(1000, queue.size());
+		Assert.assertEquals(990, queue.spilledSize());
+		Assert.assertTrue(directory.listFiles().length > 1);
+
+		for (int i = 0; i < 1000; i++) {
+			Url url = ((PageCrawlerExecutor) queue.take()).url();
+			Assert.assertEquals("http://test.com/" + i, url.link());
+			Assert.assertEquals(i % 7, url.depth());
+			Assert.assertEquals(i * 1000L, url.lastModified());
+		}
+		Assert.assertEquals(0, queue.size());
+		Assert.assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void testThatSegmentsAreDeletedOnceRead() throws InterruptedException {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 1, directory, 64);
+		for (int i = 0; i < 100; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://test.com/" + i, 0), context));
+		}
+		int segments = directory.listFiles().length;
+
+		for (int i = 0; i < 50; i++) {
+			queue.take();
+		}
+
+		Assert.assertTrue(directory.listFiles().length < segments);
+	}
+
+	@Test
+	public void testThatOneHostCannotFillTheWindow() throws InterruptedException {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 10, directory);
+		for (int i = 0; i < 1000; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://big.com/" + i, 0), context));
+		}
+		for (int i = 0; i < 3; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://small.com/" + i, 0), context));
+		}
+
+		int small = 0;
+		for (int i = 0; i < 20; i++) {
+			if (((PageCrawlerExecutor) queue.take()).url().link().startsWith("http://small.com/")) {
+				small++;
+			}
+		}
+
+		Assert.assertEquals(3, small);
+		Assert.assertEquals(1003 - 20, queue.size());
+	}
+
+	@Test
+	public void testThatHostsShareSegmentFiles() throws InterruptedException {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 1, directory);
+		for (int i = 0; i < 500; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://host" + i + ".com/", 0), context));
+		}
+
+		Assert.assertEquals(1, directory.listFiles().length);
+		for (int i = 0; i < 500; i++) {
+			queue.take();
+		}
+		Assert.assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void testThatKeepsOrderPerHostInSharedSegments() throws InterruptedException {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 2, directory, 64);
+		for (int i = 0; i < 200; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://" + (char) ('a' + i % 3) + ".com/" + i, 0), context));
+		}
+
+		int[] last = { -1, -1, -1 };
+		for (int i = 0; i < 200; i++) {
+			String link = ((PageCrawlerExecutor) queue.take()).url().link();
+			int host = link.charAt(7) - 'a';
+			int number = Integer.parseInt(link.substring(link.lastIndexOf('/') + 1));
+			Assert.assertTrue(number > last[host]);
+			last[host] = number;
+		}
+		Assert.assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void testThatRestoredExecutorsAreNotCountedTwice() throws InterruptedException {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 1, directory);
+		for (int i = 0; i < 5; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://test.com/" + i, 0), context));
+		}
+		for (int i = 0; i < 5; i++) {
+			queue.take();
+		}
+
+		Assert.assertEquals(5, counter.value());
+	}
+
+	@Test
+	public void testThatDrainToIncludesSpilledUrls() {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 2, directory);
+		for (int i = 0; i < 5; i++) {
+			queue.offer(new PageCrawlerExecutor(new Url("http://test.com/" + i, 0), context));
+		}
+
+		List<Runnable> drained = new ArrayList<Runnable>();
+		Assert.assertEquals(5, queue.drainTo(drained));
+		Assert.assertEquals("http://test.com/4", ((PageCrawlerExecutor) drained.get(4)).url().link());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testThatCloseDeletesSegments() {
+		SpillingFrontierQueue queue = new SpillingFrontierQueue(new LinkedBlockingQueue<Runnable>(), 1, directory);
+		queue.offer(new PageCrawlerExecutor(new Url("http://test.com/1", 0), context));
+		queue.offer(new PageCrawlerExecutor(new Url("http://test.com/2", 0), context));
+
+		queue.close();
+
+		Assert.assertEquals(0, directory.listFiles().length);
+		Assert.assertEquals(1, queue.size());
+	}
+
+}